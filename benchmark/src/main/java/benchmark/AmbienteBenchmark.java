@@ -0,0 +1,95 @@
+package benchmark;
+
+import cache.DisponibilitaFlotta;
+import cache.IndiceValiditaAbbonamenti;
+import cache.RegistroBiglietti;
+import dao.*;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.*;
+import services.GiornaleVendite;
+import services.IngestoreValidazioni;
+import services.OccupazioneMezzi;
+import services.RiproduttoreGiornale;
+import services.ServizioTrasporti;
+import services.ValidatoreBiglietti;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class AmbienteBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int biglietti;
+
+    EmbeddedPostgres postgres;
+    EntityManagerFactory emf;
+    UnitOfWork uow;
+    IndiceValiditaAbbonamenti indiceValidita;
+    RegistroBiglietti registroBiglietti;
+    BigliettoDAO bigliettoDAO;
+    AbbonamentoDAO abbonamentoDAO;
+    TesseraDAO tesseraDAO;
+    PercorrenzaMediaDAO percorrenzaMediaDAO;
+    ValidatoreBiglietti validatoreBiglietti;
+    IngestoreValidazioni ingestoreValidazioni;
+    GiornaleVendite giornaleVendite;
+    RiproduttoreGiornale riproduttoreGiornale;
+    ServizioTrasporti servizioTrasporti;
+    DatiSintetici dati;
+    private Path fileGiornale;
+
+    @Setup(Level.Trial)
+    public void avvia() throws IOException {
+        prepara(VolumiDati.perBiglietti(biglietti), 4);
+    }
+
+    public void prepara(VolumiDati volumi, int parallelismo) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        emf = Persistence.createEntityManagerFactory("bw1be", Map.of(
+                "jakarta.persistence.jdbc.url", postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                "jakarta.persistence.jdbc.user", "postgres",
+                "jakarta.persistence.jdbc.password", "",
+                "hibernate.hbm2ddl.auto", "create"));
+        uow = new UnitOfWork(emf);
+        new MigrazioniSchema(uow).applica();
+        indiceValidita = new IndiceValiditaAbbonamenti();
+        registroBiglietti = new RegistroBiglietti();
+        bigliettoDAO = new BigliettoDAO(uow, registroBiglietti);
+        abbonamentoDAO = new AbbonamentoDAO(uow, indiceValidita);
+        tesseraDAO = new TesseraDAO(uow, indiceValidita);
+        percorrenzaMediaDAO = new PercorrenzaMediaDAO(uow);
+        validatoreBiglietti = new ValidatoreBiglietti(uow, registroBiglietti);
+        ingestoreValidazioni = new IngestoreValidazioni(validatoreBiglietti, 65_536, Duration.ofMillis(5), 1_000);
+        ingestoreValidazioni.avvia();
+        fileGiornale = Files.createTempFile("giornale-vendite", ".dat");
+        giornaleVendite = new GiornaleVendite(fileGiornale, 64 * 1024 * 1024, Duration.ofMillis(10));
+        riproduttoreGiornale = new RiproduttoreGiornale(giornaleVendite, bigliettoDAO, 500, Duration.ofMillis(50));
+        giornaleVendite.avvia();
+        riproduttoreGiornale.avvia();
+        servizioTrasporti = new ServizioTrasporti(uow, bigliettoDAO, abbonamentoDAO, tesseraDAO, ingestoreValidazioni, giornaleVendite,
+                new OccupazioneMezzi(new DisponibilitaFlotta()));
+
+        dati = DatiSintetici.genera(uow, bigliettoDAO, abbonamentoDAO, volumi, parallelismo, 42L);
+        percorrenzaMediaDAO.ricostruisci();
+        uow.eseguiInTransazione(em -> em.createNativeQuery("ANALYZE").executeUpdate());
+        abbonamentoDAO.caricaIndiceValidita(LocalDate.now());
+    }
+
+    @TearDown(Level.Trial)
+    public void ferma() throws IOException {
+        servizioTrasporti.close();
+        ingestoreValidazioni.close();
+        riproduttoreGiornale.close();
+        giornaleVendite.close();
+        Files.deleteIfExists(fileGiornale);
+        emf.close();
+        postgres.close();
+    }
+}
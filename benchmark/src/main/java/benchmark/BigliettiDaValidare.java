@@ -0,0 +1,39 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// biglietti emessi e non ancora validati, rimessi in stato non validato a ogni iterazione
+@State(Scope.Benchmark)
+public class BigliettiDaValidare {
+
+    private static final int DIMENSIONE_POOL = 200_000;
+
+    private long primo;
+    private long ultimo;
+    private final AtomicLong prossimo = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void scegli(AmbienteBenchmark ambiente) {
+        ultimo = ambiente.dati.ultimoBiglietto();
+        primo = Math.max(ambiente.dati.primoBiglietto(), ultimo - DIMENSIONE_POOL + 1);
+    }
+
+    @Setup(Level.Iteration)
+    public void ripristina(AmbienteBenchmark ambiente) {
+        ambiente.uow.eseguiInTransazione(em -> em.createNativeQuery(
+                        "UPDATE biglietto SET \"Data validazione\" = NULL, id_mezzo_validante = NULL " +
+                                "WHERE id BETWEEN :primo AND :ultimo AND \"Data validazione\" IS NOT NULL")
+                .setParameter("primo", primo)
+                .setParameter("ultimo", ultimo)
+                .executeUpdate());
+        prossimo.set(primo);
+    }
+
+    // esaurito il pool si ricomincia dal primo: da lì in poi si misura il rifiuto dei già validati
+    public long prossimo() {
+        long id = prossimo.getAndIncrement();
+        return id <= ultimo ? id : primo + (id - primo) % (ultimo - primo + 1);
+    }
+}
@@ -0,0 +1,41 @@
+package benchmark;
+
+import enums.EsitoValidazione;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BigliettoBenchmark {
+
+    @Benchmark
+    public void save(AmbienteBenchmark ambiente, StatoThread stato) {
+        ambiente.bigliettoDAO.save(ambiente.dati.nuovoBiglietto(stato.random));
+    }
+
+    @Benchmark
+    public void validaBiglietto(AmbienteBenchmark ambiente, StatoThread stato) {
+        ambiente.bigliettoDAO.validaBiglietto(ambiente.dati.biglietto(stato.random), ambiente.dati.mezzo(stato.random).getId());
+    }
+
+    @Benchmark
+    public EsitoValidazione validaBigliettoValidatore(AmbienteBenchmark ambiente, StatoThread stato) {
+        return ambiente.validatoreBiglietti.valida(ambiente.dati.biglietto(stato.random), ambiente.dati.mezzo(stato.random).getId());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public EsitoValidazione validaBigliettoIngest(AmbienteBenchmark ambiente, StatoThread stato) {
+        return ambiente.ingestoreValidazioni.invia(ambiente.dati.biglietto(stato.random), ambiente.dati.mezzo(stato.random).getId()).join();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void validaBigliettoTransazioneSingola(AmbienteBenchmark ambiente, BigliettiDaValidare daValidare, StatoThread stato) {
+        ambiente.bigliettoDAO.validaBiglietto(daValidare.prossimo(), ambiente.dati.mezzo(stato.random).getId());
+    }
+}
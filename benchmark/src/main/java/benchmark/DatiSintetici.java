@@ -0,0 +1,176 @@
+package benchmark;
+
+import cache.DizionarioFermate;
+import dao.AbbonamentoDAO;
+import dao.BigliettoDAO;
+import dao.FermataDAO;
+import dao.UnitOfWork;
+import entities.*;
+import enums.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class DatiSintetici {
+
+    public static final LocalDate INIZIO = LocalDate.of(2024, 1, 1);
+    public static final int GIORNI = 365;
+
+    private static final int BLOCCO = 100_000;
+    private static final String[] CITTA = {"Roma", "Milano", "Napoli", "Torino", "Firenze", "Bologna",
+            "Venezia", "Genova", "Palermo", "Catania", "Bari", "Lecce"};
+
+    private final List<PuntoDiEmissione> punti = new ArrayList<>();
+    private final List<Mezzo> mezzi = new ArrayList<>();
+    private final List<Tessera> tessere = new ArrayList<>();
+    private final List<Tratta> tratte = new ArrayList<>();
+    private long primoBiglietto;
+    private long ultimoBiglietto;
+
+    private DatiSintetici() {
+    }
+
+    public static DatiSintetici genera(UnitOfWork uow, BigliettoDAO bigliettoDAO, AbbonamentoDAO abbonamentoDAO,
+                                       VolumiDati volumi, int parallelismo, long seme) {
+        SplittableRandom random = new SplittableRandom(seme);
+        DatiSintetici dati = new DatiSintetici();
+
+        for (int i = 0; i < volumi.puntiEmissione() / 2; i++) {
+            dati.punti.add(new DistributoreAutomatico("Via Distributore " + i, i, StatoDistributore.IN_SERVIZIO));
+            dati.punti.add(new Rivenditore("Via Rivenditore " + i, "Riv " + i, StatoRivenditore.APERTO));
+        }
+        uow.persistiInBlocchi(dati.punti);
+
+        for (int i = 0; i < volumi.mezzi(); i++) {
+            TipoMezzo tipo = i % 3 == 0 ? TipoMezzo.TRAM : TipoMezzo.AUTOBUS;
+            dati.mezzi.add(new Mezzo(String.format("BN%05d", i), tipo, tipo == TipoMezzo.TRAM ? 80 : 50, StatoMezzo.IN_SERVIZIO));
+        }
+        uow.persistiInBlocchi(dati.mezzi);
+
+        List<Callable<Object>> compiti = new ArrayList<>();
+        SplittableRandom randomTessere = random.split();
+        compiti.add(Executors.callable(() -> dati.generaTessere(uow, abbonamentoDAO, volumi.tessere(), randomTessere)));
+        SplittableRandom randomTratte = random.split();
+        compiti.add(Executors.callable(() -> dati.generaTratte(uow, new FermataDAO(uow, new DizionarioFermate()), volumi.tratte(), volumi.percorrenzePerTratta(), randomTratte)));
+        for (int generati = 0; generati < volumi.biglietti(); generati += BLOCCO) {
+            int quanti = Math.min(BLOCCO, volumi.biglietti() - generati);
+            SplittableRandom randomBlocco = random.split();
+            compiti.add(Executors.callable(() -> dati.generaBiglietti(bigliettoDAO, quanti, randomBlocco)));
+        }
+        ExecutorService esecutore = Executors.newFixedThreadPool(parallelismo);
+        try {
+            for (Future<Object> compito : esecutore.invokeAll(compiti)) {
+                compito.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generazione dei dati sintetici interrotta", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Generazione dei dati sintetici fallita", e.getCause());
+        } finally {
+            esecutore.shutdownNow();
+        }
+
+        Object[] estremi = uow.inLettura(em -> em.createQuery(
+                "SELECT MIN(b.id), MAX(b.id) FROM Biglietto b", Object[].class).getSingleResult());
+        dati.primoBiglietto = estremi[0] != null ? (Long) estremi[0] : 0;
+        dati.ultimoBiglietto = estremi[1] != null ? (Long) estremi[1] : 0;
+        return dati;
+    }
+
+    private void generaTessere(UnitOfWork uow, AbbonamentoDAO abbonamentoDAO, int numeroTessere, SplittableRandom random) {
+        List<Utente> utenti = new ArrayList<>(numeroTessere);
+        for (int i = 0; i < numeroTessere; i++) {
+            utenti.add(new Utente("Nome" + (i % 1000), "Cognome" + (i % 100), "u" + i, RuoloUtente.UTENTE_SEMPLICE));
+        }
+        uow.persistiInBlocchi(utenti);
+        for (Utente utente : utenti) {
+            tessere.add(new Tessera(INIZIO, INIZIO.plusYears(5), utente));
+        }
+        uow.persistiInBlocchi(tessere);
+
+        List<Abbonamento> abbonamenti = new ArrayList<>(numeroTessere);
+        LocalDate oggi = LocalDate.now();
+        for (Tessera tessera : tessere) {
+            boolean mensile = random.nextBoolean();
+            LocalDate inizio = random.nextInt(4) == 0 ? oggi.minusDays(random.nextInt(7)) : giorno(random);
+            LocalDate fine = mensile ? inizio.plusMonths(1) : inizio.plusWeeks(1);
+            abbonamenti.add(new Abbonamento(mensile ? TipoAbbonamento.MENSILE : TipoAbbonamento.SETTIMANALE,
+                    inizio, fine, inizio, mensile ? 35.00 : 15.00, punto(random), tessera));
+        }
+        abbonamentoDAO.copyAll(abbonamenti);
+    }
+
+    private void generaTratte(UnitOfWork uow, FermataDAO fermate, int numeroTratte, int percorrenzePerTratta, SplittableRandom random) {
+        for (int i = 0; i < numeroTratte; i++) {
+            String partenza = CITTA[random.nextInt(CITTA.length)];
+            String arrivo = CITTA[(List.of(CITTA).indexOf(partenza) + 1 + random.nextInt(CITTA.length - 1)) % CITTA.length];
+            tratte.add(new Tratta(mezzo(random), LocalTime.of(1 + random.nextInt(8), 0), fermate.fermata(partenza), fermate.fermata(arrivo)));
+        }
+        uow.persistiInBlocchi(tratte);
+
+        List<PercorrenzaMedia> percorrenze = new ArrayList<>();
+        for (Tratta tratta : tratte) {
+            for (int i = 0; i < percorrenzePerTratta; i++) {
+                int secondi = tratta.getTempoPrevisto().toSecondOfDay() + random.nextInt(-1800, 1800);
+                percorrenze.add(new PercorrenzaMedia(tratta, LocalTime.ofSecondOfDay(secondi)));
+            }
+        }
+        uow.persistiInBlocchi(percorrenze);
+    }
+
+    private void generaBiglietti(BigliettoDAO bigliettoDAO, int quanti, SplittableRandom random) {
+        List<Biglietto> blocco = new ArrayList<>(quanti);
+        for (int i = 0; i < quanti; i++) {
+            LocalDate emissione = giorno(random);
+            boolean validato = random.nextInt(10) < 7;
+            blocco.add(new Biglietto(random.nextBoolean() ? 90 : 60, random.nextBoolean() ? 5.20 : 4.10, emissione,
+                    punto(random), validato ? emissione : null, validato ? mezzo(random) : null));
+        }
+        bigliettoDAO.copyAll(blocco);
+    }
+
+    public Biglietto nuovoBiglietto(SplittableRandom random) {
+        return new Biglietto(90, 5.20, LocalDate.now(), punto(random), null, null);
+    }
+
+    public LocalDate giorno(SplittableRandom random) {
+        return INIZIO.plusDays(random.nextInt(GIORNI));
+    }
+
+    public PuntoDiEmissione punto(SplittableRandom random) {
+        return punti.get(random.nextInt(punti.size()));
+    }
+
+    public Mezzo mezzo(SplittableRandom random) {
+        return mezzi.get(random.nextInt(mezzi.size()));
+    }
+
+    public Tessera tessera(SplittableRandom random) {
+        return tessere.get(random.nextInt(tessere.size()));
+    }
+
+    public Tratta tratta(SplittableRandom random) {
+        return tratte.get(random.nextInt(tratte.size()));
+    }
+
+    public long biglietto(SplittableRandom random) {
+        return random.nextLong(primoBiglietto, ultimoBiglietto + 1);
+    }
+
+    public long primoBiglietto() {
+        return primoBiglietto;
+    }
+
+    public long ultimoBiglietto() {
+        return ultimoBiglietto;
+    }
+}
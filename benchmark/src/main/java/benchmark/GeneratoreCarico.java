@@ -0,0 +1,176 @@
+package benchmark;
+
+import metriche.IstogrammaLatenze;
+import metriche.MetricheOperazione;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class GeneratoreCarico {
+
+    enum TipoOperazione {
+        VENDITA(30), VALIDAZIONE(55), VERIFICA_TESSERA(12), REPORT(3);
+
+        final int peso;
+
+        TipoOperazione(int peso) {
+            this.peso = peso;
+        }
+    }
+
+    // distribuzione oraria delle operazioni su una giornata feriale, picchi alle 8 e alle 18
+    private static final int[] PROFILO_ORARIO = {1, 1, 1, 1, 2, 4, 8, 14, 16, 10, 7, 6, 7, 7, 6, 7, 10, 14, 15, 10, 6, 4, 3, 2};
+    private static final long ORA_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final AmbienteBenchmark ambiente;
+    private final Map<TipoOperazione, IstogrammaLatenze> latenze = new EnumMap<>(TipoOperazione.class);
+    private final Map<TipoOperazione, LongAdder> errori = new EnumMap<>(TipoOperazione.class);
+
+    public GeneratoreCarico(AmbienteBenchmark ambiente) {
+        this.ambiente = ambiente;
+        for (TipoOperazione tipo : TipoOperazione.values()) {
+            latenze.put(tipo, new IstogrammaLatenze());
+            errori.put(tipo, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        VolumiDati volumi = VolumiDati.daProprieta();
+        int parallelismo = Integer.getInteger("carico.parallelismo", 4);
+        int operazioni = Integer.getInteger("carico.operazioni", 200_000);
+        int compressione = Integer.getInteger("carico.compressione", 720);
+
+        AmbienteBenchmark ambiente = new AmbienteBenchmark();
+        try {
+            long inizio = System.nanoTime();
+            ambiente.prepara(volumi, parallelismo);
+            System.out.printf("Dati generati in %d s: %s%n", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inizio), volumi);
+            new GeneratoreCarico(ambiente).riproduciGiornata(operazioni, compressione, 7L);
+        } finally {
+            ambiente.ferma();
+        }
+    }
+
+    public void riproduciGiornata(int operazioni, int compressione, long seme) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(seme);
+        long[] istanti = new long[operazioni];
+        TipoOperazione[] tipi = new TipoOperazione[operazioni];
+        pianifica(random, istanti, tipi, compressione);
+        Map<String, long[]> primaDelCarico = istantaneaDatabase();
+
+        CountDownLatch completate = new CountDownLatch(operazioni);
+        long inizio = System.nanoTime();
+        for (int i = 0; i < operazioni; i++) {
+            long previsto = inizio + istanti[i];
+            long attesa = previsto - System.nanoTime();
+            if (attesa > 0) {
+                LockSupport.parkNanos(attesa);
+            }
+            TipoOperazione tipo = tipi[i];
+            CompletableFuture<?> esito;
+            try {
+                esito = avvia(tipo, random);
+            } catch (RuntimeException e) {
+                esito = CompletableFuture.failedFuture(e);
+            }
+            // latenza misurata dall'istante previsto, così i ritardi di invio non vengono nascosti
+            esito.whenComplete((risultato, errore) -> {
+                latenze.get(tipo).registra(System.nanoTime() - previsto);
+                if (errore != null) {
+                    errori.get(tipo).increment();
+                }
+                completate.countDown();
+            });
+        }
+        completate.await();
+        long durata = System.nanoTime() - inizio;
+        stampaRisultati(durata, compressione);
+        stampaTempoDatabase(primaDelCarico);
+    }
+
+    private CompletableFuture<?> avvia(TipoOperazione tipo, SplittableRandom random) {
+        DatiSintetici dati = ambiente.dati;
+        return switch (tipo) {
+            case VENDITA -> ambiente.servizioTrasporti.emettiBiglietto(dati.nuovoBiglietto(random));
+            case VALIDAZIONE -> ambiente.servizioTrasporti.validaBiglietto(dati.biglietto(random), dati.mezzo(random).getId());
+            case VERIFICA_TESSERA -> ambiente.servizioTrasporti.verificaTessera(dati.tessera(random).getId());
+            case REPORT -> {
+                LocalDate inizio = dati.giorno(random);
+                yield ambiente.servizioTrasporti.contaBigliettiPerPeriodo(inizio, inizio.plusDays(30));
+            }
+        };
+    }
+
+    private static void pianifica(SplittableRandom random, long[] istanti, TipoOperazione[] tipi, int compressione) {
+        int pesoTotaleOre = Arrays.stream(PROFILO_ORARIO).sum();
+        int pesoTotaleTipi = Arrays.stream(TipoOperazione.values()).mapToInt(t -> t.peso).sum();
+        int n = 0;
+        for (int ora = 0; ora < 24 && n < istanti.length; ora++) {
+            int quante = ora == 23 ? istanti.length - n : (int) ((long) istanti.length * PROFILO_ORARIO[ora] / pesoTotaleOre);
+            int fine = Math.min(istanti.length, n + quante);
+            for (int i = n; i < fine; i++) {
+                istanti[i] = (ora * ORA_NANOS + random.nextLong(ORA_NANOS)) / compressione;
+            }
+            Arrays.sort(istanti, n, fine);
+            n = fine;
+        }
+        for (int i = 0; i < tipi.length; i++) {
+            int estratto = random.nextInt(pesoTotaleTipi);
+            for (TipoOperazione tipo : TipoOperazione.values()) {
+                estratto -= tipo.peso;
+                if (estratto < 0) {
+                    tipi[i] = tipo;
+                    break;
+                }
+            }
+        }
+    }
+
+    private Map<String, long[]> istantaneaDatabase() {
+        Map<String, long[]> istantanea = new HashMap<>();
+        for (MetricheOperazione operazione : ambiente.uow.getMetriche().getOperazioni()) {
+            istantanea.put(operazione.getNome(), new long[]{operazione.getChiamate(), operazione.getLatenze().somma()});
+        }
+        return istantanea;
+    }
+
+    private void stampaRisultati(long durata, int compressione) {
+        double secondi = durata / 1e9;
+        System.out.printf("%nGiornata riprodotta in %.1f s (compressione %dx)%n", secondi, compressione);
+        System.out.printf("%-18s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operazione", "totale", "errori", "op/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (TipoOperazione tipo : TipoOperazione.values()) {
+            IstogrammaLatenze istogramma = latenze.get(tipo);
+            System.out.printf("%-18s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    tipo, istogramma.conteggio(), errori.get(tipo).sum(), istogramma.conteggio() / secondi,
+                    millis(istogramma.percentile(0.5)), millis(istogramma.percentile(0.9)),
+                    millis(istogramma.percentile(0.99)), millis(istogramma.massimo()));
+        }
+    }
+
+    private void stampaTempoDatabase(Map<String, long[]> primaDelCarico) {
+        System.out.printf("%n%-55s %10s %12s %10s%n", "operazione DAO", "chiamate", "tempo DB ms", "media ms");
+        for (MetricheOperazione operazione : ambiente.uow.getMetriche().getOperazioni()) {
+            long[] prima = primaDelCarico.getOrDefault(operazione.getNome(), new long[2]);
+            long chiamate = operazione.getChiamate() - prima[0];
+            if (chiamate == 0) {
+                continue;
+            }
+            long tempo = operazione.getLatenze().somma() - prima[1];
+            System.out.printf("%-55s %10d %12.1f %10.3f%n", operazione.getNome(), chiamate, millis(tempo), millis(tempo) / chiamate);
+        }
+    }
+
+    private static double millis(long nanosecondi) {
+        return nanosecondi / 1e6;
+    }
+}
@@ -0,0 +1,25 @@
+package benchmark;
+
+import dto.StatistichePercorrenza;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PercorrenzaMediaBenchmark {
+
+    @Benchmark
+    public LocalTime calcolaTempoMedioEffettivo(AmbienteBenchmark ambiente, StatoThread stato) {
+        return ambiente.percorrenzaMediaDAO.calcolaTempoMedioEffettivo(ambiente.dati.tratta(stato.random).getId());
+    }
+
+    @Benchmark
+    public StatistichePercorrenza statistichePerTratta(AmbienteBenchmark ambiente, StatoThread stato) {
+        return ambiente.percorrenzaMediaDAO.statistichePerTratta(ambiente.dati.tratta(stato.random).getId());
+    }
+}
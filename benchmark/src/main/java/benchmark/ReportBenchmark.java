@@ -0,0 +1,61 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    @Param({"30", "365"})
+    public int giorniPeriodo;
+
+    @Benchmark
+    public long countBigliettiByPeriodo(AmbienteBenchmark ambiente, StatoThread stato) {
+        LocalDate inizio = inizio(stato);
+        return ambiente.bigliettoDAO.countBigliettiByPeriodo(inizio, inizio.plusDays(giorniPeriodo));
+    }
+
+    @Benchmark
+    public long countBigliettiByPuntoEmissioneAndPeriodo(AmbienteBenchmark ambiente, StatoThread stato) {
+        LocalDate inizio = inizio(stato);
+        return ambiente.bigliettoDAO.countBigliettiByPuntoEmissioneAndPeriodo(
+                ambiente.dati.punto(stato.random).getIdPuntoEmissione(), inizio, inizio.plusDays(giorniPeriodo));
+    }
+
+    @Benchmark
+    public long countBigliettiVidimatiByMezzo(AmbienteBenchmark ambiente, StatoThread stato) {
+        LocalDate inizio = inizio(stato);
+        return ambiente.bigliettoDAO.countBigliettiVidimatiByMezzo(
+                ambiente.dati.mezzo(stato.random).getId(), inizio, inizio.plusDays(giorniPeriodo));
+    }
+
+    @Benchmark
+    public long countBigliettiVidimatiByPeriodo(AmbienteBenchmark ambiente, StatoThread stato) {
+        LocalDate inizio = inizio(stato);
+        return ambiente.bigliettoDAO.countBigliettiVidimatiByPeriodo(inizio, inizio.plusDays(giorniPeriodo));
+    }
+
+    @Benchmark
+    public long countAbbonamentiByPeriodo(AmbienteBenchmark ambiente, StatoThread stato) {
+        LocalDate inizio = inizio(stato);
+        return ambiente.abbonamentoDAO.countAbbonamentiByPeriodo(inizio, inizio.plusDays(giorniPeriodo));
+    }
+
+    @Benchmark
+    public long countAbbonamentiByPuntoEmissioneAndPeriodo(AmbienteBenchmark ambiente, StatoThread stato) {
+        LocalDate inizio = inizio(stato);
+        return ambiente.abbonamentoDAO.countAbbonamentiByPuntoEmissioneAndPeriodo(
+                ambiente.dati.punto(stato.random).getIdPuntoEmissione(), inizio, inizio.plusDays(giorniPeriodo));
+    }
+
+    private LocalDate inizio(StatoThread stato) {
+        return DatiSintetici.INIZIO.plusDays(stato.random.nextInt(Math.max(1, DatiSintetici.GIORNI - giorniPeriodo)));
+    }
+}
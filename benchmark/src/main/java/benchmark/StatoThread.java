@@ -0,0 +1,12 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+
+@State(Scope.Thread)
+public class StatoThread {
+
+    final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+}
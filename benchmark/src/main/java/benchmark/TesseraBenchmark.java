@@ -0,0 +1,18 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TesseraBenchmark {
+
+    @Benchmark
+    public boolean verificaValiditaAbbonamento(AmbienteBenchmark ambiente, StatoThread stato) {
+        return ambiente.tesseraDAO.verificaValiditaAbbonamento(ambiente.dati.tessera(stato.random).getId());
+    }
+}
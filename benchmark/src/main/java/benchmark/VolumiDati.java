@@ -0,0 +1,18 @@
+package benchmark;
+
+public record VolumiDati(int biglietti, int tessere, int mezzi, int puntiEmissione, int tratte, int percorrenzePerTratta) {
+
+    public static VolumiDati perBiglietti(int biglietti) {
+        return new VolumiDati(biglietti, Math.max(100, biglietti / 100), 200, 50, 100, 20);
+    }
+
+    public static VolumiDati daProprieta() {
+        VolumiDati base = perBiglietti(Integer.getInteger("carico.biglietti", 1_000_000));
+        return new VolumiDati(base.biglietti(),
+                Integer.getInteger("carico.tessere", base.tessere()),
+                Integer.getInteger("carico.mezzi", base.mezzi()),
+                Integer.getInteger("carico.punti", base.puntiEmissione()),
+                Integer.getInteger("carico.tratte", base.tratte()),
+                Integer.getInteger("carico.percorrenzePerTratta", base.percorrenzePerTratta()));
+    }
+}
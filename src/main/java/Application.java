@@ -2,35 +2,117 @@ import dao.*;
 import entities.*;
 import enums.*;
 import exceptions.*;
-import jakarta.persistence.EntityManager;
+import cache.DisponibilitaFlotta;
+import cache.DizionarioFermate;
+import cache.IndiceValiditaAbbonamenti;
+import cache.RegistroBiglietti;
+import dto.Collegamento;
+import dto.CruscottoVendite;
+import dto.EsitoAccesso;
+import dto.Pagina;
+import dto.Viaggio;
+import dto.TotaliPeriodo;
+import dto.StatistichePercorrenza;
+import esportazione.EsportatoreStorico;
+import metriche.EsportatoreMetriche;
+import percorsi.ReteTratte;
+import services.GiornaleVendite;
+import services.IngestoreValidazioni;
+import services.MotoreReport;
+import services.OccupazioneMezzi;
+import services.RiproduttoreGiornale;
+import services.ServizioTrasporti;
+import services.ValidatoreBiglietti;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Application {
 
+    private static final int DIMENSIONE_PAGINA = 50;
+
     private static EntityManagerFactory emf = Persistence.createEntityManagerFactory("bw1be");
-    private static EntityManager em = emf.createEntityManager();
-    private static UtenteDAO utenteDAO = new UtenteDAO(em);
-    private static TesseraDAO tesseraDAO = new TesseraDAO(em);
-    private static RivenditoreDAO rivenditoreDAO = new RivenditoreDAO(em);
-    private static DistributoreAutomaticoDAO distributoreDAO = new DistributoreAutomaticoDAO(em);
-    private static MezzoDAO mezzoDAO = new MezzoDAO(em);
-    private static BigliettoDAO bigliettoDAO = new BigliettoDAO(em, em);
-    private static AbbonamentoDAO abbonamentoDAO = new AbbonamentoDAO(em, em);
-    private static ManutenzioneDAO manutenzioneDAO = new ManutenzioneDAO(em);
-    private static TrattaDAO trattaDAO = new TrattaDAO(em);
-
-    private static PercorrenzaMediaDAO percorrenzaMediaDAO = new PercorrenzaMediaDAO(em);
+    private static UnitOfWork uow = new UnitOfWork(emf);
+    private static IndiceValiditaAbbonamenti indiceValidita = new IndiceValiditaAbbonamenti();
+    private static UtenteDAO utenteDAO = new UtenteDAO(uow);
+    private static TesseraDAO tesseraDAO = new TesseraDAO(uow, indiceValidita);
+    private static PuntoDiEmissioneDAO puntoDiEmissioneDAO = new PuntoDiEmissioneDAO(uow);
+    private static RivenditoreDAO rivenditoreDAO = new RivenditoreDAO(uow, puntoDiEmissioneDAO);
+    private static DistributoreAutomaticoDAO distributoreDAO = new DistributoreAutomaticoDAO(uow, puntoDiEmissioneDAO);
+    private static DisponibilitaFlotta disponibilitaFlotta = new DisponibilitaFlotta();
+    private static MezzoDAO mezzoDAO = new MezzoDAO(uow, disponibilitaFlotta);
+    private static RegistroBiglietti registroBiglietti = new RegistroBiglietti();
+    private static BigliettoDAO bigliettoDAO = new BigliettoDAO(uow, registroBiglietti);
+    private static AbbonamentoDAO abbonamentoDAO = new AbbonamentoDAO(uow, indiceValidita);
+    private static ManutenzioneDAO manutenzioneDAO = new ManutenzioneDAO(uow, disponibilitaFlotta);
+    private static DizionarioFermate dizionarioFermate = new DizionarioFermate();
+    private static FermataDAO fermataDAO = new FermataDAO(uow, dizionarioFermate);
+    private static ReteTratte reteTratte = new ReteTratte(dizionarioFermate);
+    private static TrattaDAO trattaDAO = new TrattaDAO(uow, dizionarioFermate, reteTratte);
+
+    private static PercorrenzaMediaDAO percorrenzaMediaDAO = new PercorrenzaMediaDAO(uow);
+    private static VenditaGiornalieraDAO venditaGiornalieraDAO = new VenditaGiornalieraDAO(uow);
+    private static CruscottoDAO cruscottoDAO = new CruscottoDAO(uow);
+    private static EsportatoreStorico esportatoreStorico = new EsportatoreStorico(uow,
+            Path.of(System.getProperty("bw1be.esportazioni.cartella", "esportazioni")));
+    private static ValidatoreBiglietti validatoreBiglietti = new ValidatoreBiglietti(uow, registroBiglietti);
+    private static IngestoreValidazioni ingestoreValidazioni = new IngestoreValidazioni(validatoreBiglietti, 65_536, Duration.ofMillis(5), 1_000);
+    private static GiornaleVendite giornaleVendite = new GiornaleVendite(Path.of(System.getProperty("bw1be.giornale.file", "giornale-vendite.dat")),
+            64 * 1024 * 1024, Duration.ofMillis(10));
+    private static RiproduttoreGiornale riproduttoreGiornale = new RiproduttoreGiornale(giornaleVendite, bigliettoDAO, 500, Duration.ofMillis(50));
+    private static OccupazioneMezzi occupazioneMezzi = new OccupazioneMezzi(disponibilitaFlotta);
+    private static ServizioTrasporti servizioTrasporti = new ServizioTrasporti(uow, bigliettoDAO, abbonamentoDAO, tesseraDAO,
+            ingestoreValidazioni, giornaleVendite, occupazioneMezzi);
+    private static MotoreReport motoreReport = new MotoreReport(servizioTrasporti, uow.getDimensionePool() / 2);
     private static Scanner scanner = new Scanner(System.in);
+    private static ScheduledExecutorService pianificatore = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "pulizia-indice-validita");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public static void main(String[] args) {
+        EsportatoreMetriche esportatoreMetriche = new EsportatoreMetriche(uow.getMetriche(), Integer.getInteger("bw1be.metriche.porta", 9464));
+        esportatoreMetriche.avvia();
+        new MigrazioniSchema(uow).applica();
+        List<String> querySenzaIndice = new VerificaPianiQuery(uow).querySenzaIndice();
+        if (!querySenzaIndice.isEmpty()) {
+            System.err.println("Query senza un piano basato su indici: " + querySenzaIndice);
+        }
+        venditaGiornalieraDAO.inizializza();
+        percorrenzaMediaDAO.inizializza();
+        abbonamentoDAO.caricaIndiceValidita(LocalDate.now());
+        mezzoDAO.caricaDisponibilita();
+        bigliettoDAO.caricaRegistro();
+        fermataDAO.caricaDizionario();
+        trattaDAO.caricaRete();
+        ingestoreValidazioni.avvia();
+        giornaleVendite.avvia();
+        riproduttoreGiornale.avvia();
+        pianificatore.scheduleWithFixedDelay(() -> {
+            try {
+                trattaDAO.aggiornaTempiMisurati();
+            } catch (RuntimeException e) {
+                System.err.println("Aggiornamento dei tempi misurati della rete fallito: " + e.getMessage());
+            }
+        }, 5, 5, TimeUnit.MINUTES);
+        long minutiAMezzanotte = Duration.between(LocalDateTime.now(), LocalDate.now().plusDays(1).atStartOfDay()).toMinutes();
+        pianificatore.scheduleAtFixedRate(() -> indiceValidita.rimuoviScaduti(LocalDate.now()),
+                minutiAMezzanotte, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
         popolaDatabase();
 
         boolean continua = true;
@@ -79,12 +161,33 @@ public class Application {
                     case 13:
                         System.out.println("\u001b[32mAntimo è ascendente su Valorant!\u001b[0m");
                         break;
+                    case 14:
+                        validaBiglietto();
+                        break;
+                    case 15:
+                        stampaStatisticheCache();
+                        break;
+                    case 16:
+                        stampaCruscottoVendite();
+                        break;
+                    case 17:
+                        esportaStorico();
+                        break;
+                    case 18:
+                        pianificaViaggio();
+                        break;
+                    case 19:
+                        visualizzaMezziDisponibili();
+                        break;
+                    case 20:
+                        visualizzaOccupazioneMezzo();
+                        break;
                     case 0:
                         continua = false;
                         System.out.println("\nArrivederci!");
                         break;
                     default:
-                        System.err.println("Scelta non valida! Seleziona un numero tra 0 e 12.");
+                        System.err.println("Scelta non valida! Seleziona un numero tra 0 e 20.");
                 }
             } catch (InputMismatchCustomException e) {
                 System.err.println(e.getMessage());
@@ -95,7 +198,12 @@ public class Application {
             }
         }
 
-        em.close();
+        pianificatore.shutdownNow();
+        servizioTrasporti.close();
+        ingestoreValidazioni.close();
+        riproduttoreGiornale.close();
+        giornaleVendite.close();
+        esportatoreMetriche.close();
         emf.close();
         scanner.close();
     }
@@ -116,6 +224,13 @@ public class Application {
         System.out.println("11. Conta percorrenze di una tratta");
         System.out.println("12. Calcola tempo medio di percorrenza");
         System.out.println("13. Una piccola chicca su Antimo");
+        System.out.println("14. Valida biglietto su un mezzo");
+        System.out.println("15. Statistiche cache");
+        System.out.println("16. Cruscotto vendite e validazioni per periodo");
+        System.out.println("17. Esporta storico emissioni e validazioni per analisi");
+        System.out.println("18. Pianifica un viaggio tra due fermate");
+        System.out.println("19. Mezzi disponibili per tipo in un periodo");
+        System.out.println("20. Occupazione in tempo reale di un mezzo");
         System.out.println("0. Esci");
         System.out.print("Scegli un'opzione: ");
     }
@@ -170,10 +285,7 @@ public class Application {
     }
 
     private static boolean verificaEsistenzaPuntoEmissione(long id) {
-        DistributoreAutomatico dist = distributoreDAO.findById(id);
-        if (dist != null) return true;
-        Rivenditore riv = rivenditoreDAO.findById(id);
-        return riv != null;
+        return puntoDiEmissioneDAO.esiste(id);
     }
 
     private static void popolaDatabase() {
@@ -257,11 +369,7 @@ public class Application {
             Biglietto big3 = new Biglietto(90, 5.20, LocalDate.of(2025, 9, 10), dist2, null, null);
             Biglietto big4 = new Biglietto(15, 2.00, LocalDate.of(2025, 9, 15), riv2, LocalDate.of(2025, 9, 15), bus3);
             Biglietto big5 = new Biglietto(30, 2.95, LocalDate.of(2025, 9, 20), dist1, LocalDate.of(2025, 9, 20), tram3);
-            bigliettoDAO.save(big1);
-            bigliettoDAO.save(big2);
-            bigliettoDAO.save(big3);
-            bigliettoDAO.save(big4);
-            bigliettoDAO.save(big5);
+            bigliettoDAO.saveAll(List.of(big1, big2, big3, big4, big5));
             System.out.println("✓ 5 Biglietti creati\n");
 
           /*  System.out.println("--- CREAZIONE ABBONAMENTI ---");*/
@@ -275,24 +383,20 @@ public class Application {
                     LocalDate.of(2025, 9, 22), LocalDate.of(2025, 9, 15), 15.00, dist2, tessera1);
             Abbonamento abb5 = new Abbonamento(TipoAbbonamento.MENSILE, LocalDate.of(2025, 9, 20),
                     LocalDate.of(2025, 10, 20), LocalDate.of(2025, 9, 20), 35.00, riv1, tessera2);
-            abbonamentoDAO.save(abb1);
-            abbonamentoDAO.save(abb2);
-            abbonamentoDAO.save(abb3);
-            abbonamentoDAO.save(abb4);
-            abbonamentoDAO.save(abb5);
+            abbonamentoDAO.saveAll(List.of(abb1, abb2, abb3, abb4, abb5));
             System.out.println("✓ 5 Abbonamenti creati\n");
 
            /* System.out.println("--- CREAZIONE TRATTE ---");*/
-            Tratta tratta1 = new Tratta(bus1, LocalTime.of(8, 0), "Roma", "Milano");
-            Tratta tratta2 = new Tratta(bus3, LocalTime.of(8, 0), "Roma", "Milano");
-            Tratta tratta3 = new Tratta(tram1, LocalTime.of(8, 0), "Roma", "Milano");
-            Tratta tratta4 = new Tratta(tram3, LocalTime.of(6, 0), "Napoli", "Firenze");
-            Tratta tratta5 = new Tratta(bus1, LocalTime.of(6, 0), "Napoli", "Firenze");
-            Tratta tratta6 = new Tratta(bus3, LocalTime.of(6, 0), "Napoli", "Firenze");
-            Tratta tratta7 = new Tratta(tram1, LocalTime.of(10, 0), "Bologna", "Torino");
-            Tratta tratta8 = new Tratta(tram3, LocalTime.of(14, 0), "Venezia", "Genova");
-            Tratta tratta9 = new Tratta(bus1, LocalTime.of(16, 0), "Palermo", "Catania");
-            Tratta tratta10 = new Tratta(bus3, LocalTime.of(12, 0), "Bari", "Lecce");
+            Tratta tratta1 = new Tratta(bus1, LocalTime.of(8, 0), fermataDAO.fermata("Roma"), fermataDAO.fermata("Milano"));
+            Tratta tratta2 = new Tratta(bus3, LocalTime.of(8, 0), fermataDAO.fermata("Roma"), fermataDAO.fermata("Milano"));
+            Tratta tratta3 = new Tratta(tram1, LocalTime.of(8, 0), fermataDAO.fermata("Roma"), fermataDAO.fermata("Milano"));
+            Tratta tratta4 = new Tratta(tram3, LocalTime.of(6, 0), fermataDAO.fermata("Napoli"), fermataDAO.fermata("Firenze"));
+            Tratta tratta5 = new Tratta(bus1, LocalTime.of(6, 0), fermataDAO.fermata("Napoli"), fermataDAO.fermata("Firenze"));
+            Tratta tratta6 = new Tratta(bus3, LocalTime.of(6, 0), fermataDAO.fermata("Napoli"), fermataDAO.fermata("Firenze"));
+            Tratta tratta7 = new Tratta(tram1, LocalTime.of(10, 0), fermataDAO.fermata("Bologna"), fermataDAO.fermata("Torino"));
+            Tratta tratta8 = new Tratta(tram3, LocalTime.of(14, 0), fermataDAO.fermata("Venezia"), fermataDAO.fermata("Genova"));
+            Tratta tratta9 = new Tratta(bus1, LocalTime.of(16, 0), fermataDAO.fermata("Palermo"), fermataDAO.fermata("Catania"));
+            Tratta tratta10 = new Tratta(bus3, LocalTime.of(12, 0), fermataDAO.fermata("Bari"), fermataDAO.fermata("Lecce"));
 
             trattaDAO.save(tratta1);
             trattaDAO.save(tratta2);
@@ -375,10 +479,8 @@ public class Application {
             System.out.println("Numero biglietti emessi nel periodo: " + count);
 
             if (count > 0){
-                List<Biglietto> biglietti = bigliettoDAO.findBigliettoByPeriodo(dataInizio, dataFine);
-                for(Biglietto b : biglietti){
-                    System.out.println("ID biglietto emesso: " + b.getId());
-                }
+                bigliettoDAO.streamIdBigliettiByPeriodo(dataInizio, dataFine,
+                        id -> System.out.println("ID biglietto emesso: " + id));
             }
 
         } catch (InvalidDataException | InputMismatchCustomException e) {
@@ -408,10 +510,8 @@ public class Application {
             System.out.println("Numero biglietti emessi: " + count);
 
             if (count > 0) {
-                List<Biglietto> biglietti = bigliettoDAO.findBigliettoByPuntoEmissioneAndPeriodo(puntoId, dataInizio, dataFine);
-                for(Biglietto b : biglietti) {
-                    System.out.println("ID biglietto emesso: " + b.getId());
-                }
+                bigliettoDAO.streamIdBigliettiByPuntoEmissioneAndPeriodo(puntoId, dataInizio, dataFine,
+                        id -> System.out.println("ID biglietto emesso: " + id));
             }
 
 
@@ -444,10 +544,8 @@ public class Application {
             long count = bigliettoDAO.countBigliettiVidimatiByMezzo(mezzoId, dataInizio, dataFine);
             System.out.println("Numero biglietti vidimati sul mezzo: " + count);
             if (count > 0) {
-                List<Biglietto> biglietti = bigliettoDAO.trovaBigliettiVidimatiByMezzo(mezzoId, dataInizio, dataFine);
-                for(Biglietto b : biglietti) {
-                    System.out.println("ID biglietto vidimato: " + b.getId());
-                }
+                bigliettoDAO.streamIdBigliettiVidimatiByMezzo(mezzoId, dataInizio, dataFine,
+                        id -> System.out.println("ID biglietto vidimato: " + id));
             }
         } catch (NotFoundException e) {
             System.err.println(e.getMessage());
@@ -468,13 +566,14 @@ public class Application {
                 throw new InvalidDataException("La data di inizio non può essere successiva alla data di fine!");
             }
 
-            long count = bigliettoDAO.countBigliettiVidimatiByPeriodo(dataInizio, dataFine);
+            TotaliPeriodo totali = motoreReport.esegui(dataInizio, dataFine, Duration.ofSeconds(30),
+                    bigliettoDAO::totaliVidimatiByPeriodo).get();
+            long count = totali.conteggio();
             System.out.println("Numero totale biglietti vidimati: " + count);
+            System.out.printf("Valore dei biglietti vidimati: €%.2f%n", totali.somma());
             if (count > 0) {
-                List<Biglietto> biglietti = bigliettoDAO.countBigliettiVidimatiTotal(dataInizio, dataFine);
-                for(Biglietto b : biglietti) {
-                    System.out.println("ID biglietto vidimato: " + b.getId());
-                }
+                bigliettoDAO.streamIdBigliettiVidimatiByPeriodo(dataInizio, dataFine,
+                        id -> System.out.println("ID biglietto vidimato: " + id));
             }
         } catch (InvalidDataException | InputMismatchCustomException e) {
             System.err.println(e.getMessage());
@@ -496,10 +595,8 @@ public class Application {
             long count = abbonamentoDAO.countAbbonamentiByPeriodo(dataInizio, dataFine);
             System.out.println("Numero abbonamenti emessi nel periodo: " + count);
             if (count > 0) {
-                List<Abbonamento> abbonamenti = abbonamentoDAO.StampaAbbonamentiByPeriodo(dataInizio, dataFine);
-                for(Abbonamento a : abbonamenti) {
-                    System.out.println("ID abbonamento emesso: " + a.getId());
-                }
+                abbonamentoDAO.streamIdAbbonamentiByPeriodo(dataInizio, dataFine,
+                        id -> System.out.println("ID abbonamento emesso: " + id));
             }
 
 
@@ -530,10 +627,8 @@ public class Application {
             System.out.println("Numero abbonamenti emessi: " + count);
 
             if (count > 0) {
-                List<Abbonamento> abbonamenti = abbonamentoDAO.stampaAbbonamentiByPuntoEmissioneAndPeriodo(puntoId,dataInizio, dataFine);
-                for(Abbonamento a : abbonamenti) {
-                    System.out.println("ID abbonamento emesso: " + a.getId());
-                }
+                abbonamentoDAO.streamIdAbbonamentiByPuntoEmissioneAndPeriodo(puntoId, dataInizio, dataFine,
+                        id -> System.out.println("ID abbonamento emesso: " + id));
             }
         } catch (NotFoundException e) {
             System.err.println(e.getMessage());
@@ -544,28 +639,113 @@ public class Application {
         }
     }
 
+    private static void validaBiglietto() {
+        try {
+            System.out.println("\n--- VALIDA BIGLIETTO ---");
+            long bigliettoId = leggiLong("ID biglietto: ");
+            long mezzoId = leggiLong("ID mezzo: ");
+
+            switch (servizioTrasporti.validaBiglietto(bigliettoId, mezzoId).get(10, TimeUnit.SECONDS)) {
+                case VALIDATO -> System.out.println("Biglietto validato con successo");
+                case GIA_VALIDATO -> System.out.println("Il biglietto è già stato validato");
+                case NON_TROVATO -> throw new NotFoundException("Id " + bigliettoId + " non trovato");
+            }
+        } catch (NotFoundException e) {
+            System.err.println(e.getMessage());
+        } catch (InvalidDataException | InputMismatchCustomException e) {
+            System.err.println(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore durante la validazione: " + e.getMessage());
+        }
+    }
+
+    private static void stampaCruscottoVendite() {
+        try {
+            System.out.println("\n--- CRUSCOTTO VENDITE E VALIDAZIONI ---");
+            LocalDate dataInizio = leggiData("Data inizio (YYYY-MM-DD): ");
+            LocalDate dataFine = leggiData("Data fine (YYYY-MM-DD): ");
+
+            if (dataInizio.isAfter(dataFine)) {
+                throw new InvalidDataException("La data di inizio non può essere successiva alla data di fine!");
+            }
+
+            CruscottoVendite cruscotto = cruscottoDAO.cruscotto(dataInizio, dataFine);
+            System.out.println("Biglietti emessi: " + cruscotto.bigliettiEmessi());
+            System.out.println("Biglietti vidimati: " + cruscotto.bigliettiValidati());
+            System.out.println("Abbonamenti emessi: " + cruscotto.abbonamentiEmessi() + " " + cruscotto.abbonamentiPerTipo());
+            System.out.printf("Incasso totale: €%.2f%n", cruscotto.incasso());
+            cruscotto.incassoPerPuntoEmissione().forEach((puntoId, incasso) ->
+                    System.out.printf("Punto di emissione %d - biglietti: %d - abbonamenti: %d - incasso: €%.2f%n", puntoId,
+                            cruscotto.bigliettiPerPuntoEmissione().getOrDefault(puntoId, 0L),
+                            cruscotto.abbonamentiPerPuntoEmissione().getOrDefault(puntoId, 0L), incasso));
+            cruscotto.validazioniPerMezzo().forEach((mezzoId, vidimati) ->
+                    System.out.println("Mezzo " + mezzoId + " - biglietti vidimati: " + vidimati));
+        } catch (InvalidDataException | InputMismatchCustomException e) {
+            System.err.println(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore durante il calcolo del cruscotto: " + e.getMessage());
+        }
+    }
+
+    private static void esportaStorico() {
+        try {
+            System.out.println("\n--- ESPORTAZIONE STORICO ---");
+            esportatoreStorico.esporta().forEach((sorgente, righe) ->
+                    System.out.println(sorgente + ": " + righe + " righe esportate"));
+        } catch (Exception e) {
+            System.err.println("Errore durante l'esportazione: " + e.getMessage());
+        }
+    }
+
+    private static void pianificaViaggio() {
+        try {
+            System.out.println("\n--- PIANIFICA VIAGGIO ---");
+            String partenza = leggiStringa("Inserisci la fermata di partenza: ");
+            String arrivo = leggiStringa("Inserisci la fermata di arrivo: ");
+            Viaggio previsto = reteTratte.viaggioPiuBreve(partenza, arrivo, false);
+            if (previsto == null) {
+                System.out.println("Nessun collegamento da " + partenza + " a " + arrivo);
+                return;
+            }
+            System.out.println("Percorso più breve secondo i tempi previsti (" + formattaDurata(previsto.durata()) + "): "
+                    + String.join(" -> ", previsto.fermate()) + " - tratte " + previsto.tratte());
+            Viaggio misurato = reteTratte.viaggioPiuBreve(partenza, arrivo, true);
+            System.out.println("Percorso più breve secondo i tempi misurati (" + formattaDurata(misurato.durata()) + "): "
+                    + String.join(" -> ", misurato.fermate()) + " - tratte " + misurato.tratte());
+        } catch (InvalidDataException e) {
+            System.err.println(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore durante la pianificazione del viaggio: " + e.getMessage());
+        }
+    }
+
+    private static String formattaDurata(Duration durata) {
+        return String.format("%d:%02d", durata.toHours(), durata.toMinutesPart());
+    }
+
+    private static void stampaStatisticheCache() {
+        System.out.println("\n--- STATISTICHE CACHE ---");
+        System.out.println(mezzoDAO.getCache());
+        System.out.println(puntoDiEmissioneDAO.getCache());
+        System.out.println(trattaDAO.getCache());
+        System.out.println(utenteDAO.getCache());
+        System.out.println(registroBiglietti);
+    }
+
     private static void verificaValiditaAbbonamento() {
         try {
             System.out.println("\n--- VERIFICA VALIDITÀ ABBONAMENTO ---");
             long tesseraId = leggiLong("ID tessera: ");
 
-            Tessera tessera = tesseraDAO.findById(tesseraId);
-            if (tessera == null) {
-                throw new NotFoundException("Id " + tesseraId + " non trovato");
-            }
-
-            boolean valido = tesseraDAO.verificaValiditaAbbonamento(tesseraId);
-            if (valido) {
+            EsitoAccesso esito = servizioTrasporti.verificaTessera(tesseraId).get(10, TimeUnit.SECONDS);
+            if (esito.consentito()) {
                 System.out.println("La tessera ha un abbonamento VALIDO!");
-                Abbonamento abb = tesseraDAO.findAbbonamentoValidoByTessera(tesseraId);
-                if (abb != null) {
-                    System.out.println("Abbonamento: " + abb);
-                }
+                System.out.println("Abbonamento: " + esito.abbonamento());
             } else {
                 System.out.println("La tessera NON ha abbonamenti validi.");
             }
-        } catch (NotFoundException e) {
-            System.err.println(e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.println(e.getCause().getMessage());
         } catch (InvalidDataException | InputMismatchCustomException e) {
             System.err.println(e.getMessage());
         } catch (Exception e) {
@@ -595,13 +775,51 @@ public class Application {
                     throw new InvalidDataException("Scelta non valida! Seleziona 1 o 2.");
             }
 
-            var mezzi = mezzoDAO.findByStato(stato);
             System.out.println("\nMezzi con stato " + stato + ":");
-            if (mezzi.isEmpty()) {
+            Pagina<Mezzo> mezzi = mezzoDAO.findByStato(stato, null, DIMENSIONE_PAGINA);
+            if (mezzi.elementi().isEmpty()) {
                 System.out.println("Nessun mezzo trovato.");
-            } else {
-                mezzi.forEach(System.out::println);
             }
+            mezzi.elementi().forEach(System.out::println);
+            while (mezzi.haSuccessiva()) {
+                mezzi = mezzoDAO.findByStato(stato, mezzi.cursoreSuccessivo(), DIMENSIONE_PAGINA);
+                mezzi.elementi().forEach(System.out::println);
+            }
+        } catch (InvalidDataException | InputMismatchCustomException e) {
+            System.err.println(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore durante la ricerca: " + e.getMessage());
+        }
+    }
+
+    private static void visualizzaMezziDisponibili() {
+        try {
+            System.out.println("\n--- MEZZI DISPONIBILI ---");
+            System.out.println("Tipo di mezzo:");
+            System.out.println("1. AUTOBUS");
+            System.out.println("2. TRAM");
+            System.out.print("Scelta: ");
+            int scelta = leggiIntero();
+            TipoMezzo tipo;
+            switch (scelta) {
+                case 1:
+                    tipo = TipoMezzo.AUTOBUS;
+                    break;
+                case 2:
+                    tipo = TipoMezzo.TRAM;
+                    break;
+                default:
+                    throw new InvalidDataException("Scelta non valida! Seleziona 1 o 2.");
+            }
+            LocalDate dataInizio = leggiData("Data inizio (YYYY-MM-DD): ");
+            LocalDate dataFine = leggiData("Data fine (YYYY-MM-DD): ");
+            if (dataInizio.isAfter(dataFine)) {
+                throw new InvalidDataException("La data di inizio non può essere successiva alla data di fine!");
+            }
+
+            List<Mezzo> disponibili = mezzoDAO.findDisponibili(tipo, dataInizio, dataFine);
+            System.out.println("\nMezzi " + tipo + " senza manutenzioni dal " + dataInizio + " al " + dataFine + ": " + disponibili.size());
+            disponibili.forEach(System.out::println);
         } catch (InvalidDataException | InputMismatchCustomException e) {
             System.err.println(e.getMessage());
         } catch (Exception e) {
@@ -609,6 +827,30 @@ public class Application {
         }
     }
 
+    private static void visualizzaOccupazioneMezzo() {
+        try {
+            System.out.println("\n--- OCCUPAZIONE MEZZO ---");
+            long mezzoId = leggiLong("ID mezzo: ");
+            Mezzo mezzo = mezzoDAO.findById(mezzoId);
+            if (mezzo == null) {
+                throw new NotFoundException("Id " + mezzoId + " non trovato");
+            }
+            for (FinestraOccupazione finestra : FinestraOccupazione.values()) {
+                System.out.printf("%s: %d salite, carico %.0f%% della capienza (%d)%n", finestra,
+                        occupazioneMezzi.salite(mezzoId, finestra), occupazioneMezzi.fattoreCarico(mezzoId, finestra) * 100,
+                        mezzo.getCapienza());
+            }
+            List<Long> affollati = occupazioneMezzi.mezziOltreSoglia(FinestraOccupazione.ULTIMI_5_MINUTI, 1.0);
+            if (!affollati.isEmpty()) {
+                System.out.println("Mezzi al completo negli ultimi 5 minuti: " + affollati);
+            }
+        } catch (NotFoundException | InvalidDataException | InputMismatchCustomException e) {
+            System.err.println(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore durante la lettura dell'occupazione: " + e.getMessage());
+        }
+    }
+
     private static void verificaManutenzione() {
         try {
             System.out.println("\n--- VERIFICA SE MEZZO È IN MANUTENZIONE ---");
@@ -644,12 +886,15 @@ public class Application {
                 throw new NotFoundException("Id " + mezzoId + " non trovato");
             }
 
-            var manutenzioni = manutenzioneDAO.findByMezzo(mezzoId);
             System.out.println("Manutenzioni del mezzo:");
-            if (manutenzioni.isEmpty()) {
+            Pagina<Manutenzione> manutenzioni = manutenzioneDAO.findByMezzo(mezzoId, null, DIMENSIONE_PAGINA);
+            if (manutenzioni.elementi().isEmpty()) {
                 System.out.println("Nessuna manutenzione trovata per questo mezzo.");
-            } else {
-                manutenzioni.forEach(System.out::println);
+            }
+            manutenzioni.elementi().forEach(System.out::println);
+            while (manutenzioni.haSuccessiva()) {
+                manutenzioni = manutenzioneDAO.findByMezzo(mezzoId, manutenzioni.cursoreSuccessivo(), DIMENSIONE_PAGINA);
+                manutenzioni.elementi().forEach(System.out::println);
             }
         } catch (NotFoundException e) {
             System.err.println(e.getMessage());
@@ -662,38 +907,25 @@ public class Application {
     private static void calcolaPercorrenzePerUnaTratta() {
         try {
             System.out.println("\n--- CONTA PERCORRENZE PER TRATTA ---");
+            List<Collegamento> collegamenti = trattaDAO.getCollegamenti();
+            if (collegamenti.isEmpty()) {
+                System.out.println("Nessuna tratta registrata");
+                return;
+            }
             System.out.println("Seleziona una tratta tra:");
-            System.out.println("1. Roma → Milano");
-            System.out.println("2. Napoli → Firenze");
-            System.out.println("3. Bologna → Torino");
-            System.out.println("4. Venezia → Genova");
-            System.out.println("5. Palermo → Catania");
-            System.out.println("6. Bari → Lecce");
+            for (int i = 0; i < collegamenti.size(); i++) {
+                System.out.println((i + 1) + ". " + collegamenti.get(i).partenza() + " → " + collegamenti.get(i).arrivo());
+            }
             System.out.print("Scelta: ");
 
             int scelta = leggiIntero();
-            if (scelta < 1 || scelta > 6) {
-                System.err.println("Scelta non valida. Seleziona un numero tra 1 e 6.");
+            if (scelta < 1 || scelta > collegamenti.size()) {
+                System.err.println("Scelta non valida. Seleziona un numero tra 1 e " + collegamenti.size() + ".");
                 return;
             }
 
-            String partenza = "";
-            String arrivo = "";
-
-            switch (scelta) {
-                case 1:
-                    partenza = "Roma"; arrivo = "Milano"; break;
-                case 2:
-                    partenza = "Napoli"; arrivo = "Firenze"; break;
-                case 3:
-                    partenza = "Bologna"; arrivo = "Torino"; break;
-                case 4:
-                    partenza = "Venezia"; arrivo = "Genova"; break;
-                case 5:
-                    partenza = "Palermo"; arrivo = "Catania"; break;
-                case 6:
-                    partenza = "Bari"; arrivo = "Lecce"; break;
-            }
+            Fermata partenza = collegamenti.get(scelta - 1).partenza();
+            Fermata arrivo = collegamenti.get(scelta - 1).arrivo();
 
             long count = trattaDAO.contaPercorrenzePerTratta(partenza, arrivo);
             List<Long> mezziId = trattaDAO.getMezziIdPerTratta(partenza, arrivo);
@@ -715,21 +947,22 @@ public class Application {
 
 
     private static void calcolaEStampaPercorrenzeMedie() {
-        List<PercorrenzaMedia> percorrenze = percorrenzaMediaDAO.getAllPercorrenzeMedie();
+        Map<Long, StatistichePercorrenza> statistiche = percorrenzaMediaDAO.statisticheTratte();
 
-        if (percorrenze.isEmpty()) {
+        if (statistiche.isEmpty()) {
             System.out.println("Nessuna percorrenza media presente.");
             return;
         }
 
-        System.out.println("--- Percorrenze medie registrate ---");
-        for (PercorrenzaMedia pm : percorrenze) {
-            Long idTratta = pm.getTratta() != null ? pm.getTratta().getId() : null;
-            Long idMezzo = pm.getIdMezzo();
-
-            System.out.println("ID Tratta: " + idTratta + ", ID Mezzo: " + idMezzo +
-                    ", Tempo medio percorrenza: " + pm.getTempoEffettivo());
-        }
+        System.out.println("--- Tempi di percorrenza per tratta ---");
+        statistiche.forEach((idTratta, s) -> System.out.println("ID Tratta: " + idTratta +
+                ", Percorrenze: " + s.campioni() +
+                ", Tempo medio: " + s.medio() +
+                ", Min: " + s.minimo() +
+                ", Max: " + s.massimo() +
+                ", Mediana: " + s.mediana() +
+                ", 90°: " + s.percentile90() +
+                ", 95°: " + s.percentile95()));
     }
     }
 
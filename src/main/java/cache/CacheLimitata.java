@@ -0,0 +1,145 @@
+package cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+public class CacheLimitata<K, V> {
+
+    private final String nome;
+    private final int capacita;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hit = new LongAdder();
+    private final LongAdder miss = new LongAdder();
+    private final LongAdder espulsioni = new LongAdder();
+    private final LinkedHashMap<K, V> voci;
+    // caricamento in corso per chiave: invalida/put lo scartano, così un valore letto prima non viene pubblicato dopo
+    private final Map<K, Object> caricamenti = new HashMap<>();
+    // le entità sono mutabili: la cache conserva e restituisce copie, mai l'istanza del chiamante
+    private final UnaryOperator<V> copia;
+
+    public CacheLimitata(String nome, int capacita, UnaryOperator<V> copia) {
+        this.nome = nome;
+        this.capacita = capacita;
+        this.copia = copia;
+        this.voci = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > CacheLimitata.this.capacita) {
+                    espulsioni.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V getOppureCarica(K chiave, Function<K, V> caricatore) {
+        V valore;
+        Object caricamento = new Object();
+        lock.lock();
+        try {
+            valore = voci.get(chiave);
+            if (valore == null) {
+                caricamenti.put(chiave, caricamento);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (valore != null) {
+            hit.increment();
+            return copia.apply(valore);
+        }
+        miss.increment();
+        V caricato = null;
+        try {
+            caricato = caricatore.apply(chiave);
+            return caricato;
+        } finally {
+            lock.lock();
+            try {
+                if (caricamenti.remove(chiave, caricamento) && caricato != null) {
+                    voci.put(chiave, copia.apply(caricato));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void put(K chiave, V valore) {
+        V copiato = copia.apply(valore);
+        lock.lock();
+        try {
+            caricamenti.remove(chiave);
+            voci.put(chiave, copiato);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalida(K chiave) {
+        lock.lock();
+        try {
+            caricamenti.remove(chiave);
+            voci.remove(chiave);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void svuota() {
+        lock.lock();
+        try {
+            caricamenti.clear();
+            voci.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public int dimensione() {
+        lock.lock();
+        try {
+            return voci.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHit() {
+        return hit.sum();
+    }
+
+    public long getMiss() {
+        return miss.sum();
+    }
+
+    public long getEspulsioni() {
+        return espulsioni.sum();
+    }
+
+    public double rapportoHit() {
+        long totale = getHit() + getMiss();
+        return totale == 0 ? 0 : (double) getHit() / totale;
+    }
+
+    @Override
+    public String toString() {
+        return nome + "{" +
+                "dimensione=" + dimensione() + "/" + capacita +
+                ", hit=" + getHit() +
+                ", miss=" + getMiss() +
+                ", espulsioni=" + getEspulsioni() +
+                ", rapportoHit=" + String.format("%.2f", rapportoHit()) +
+                '}';
+    }
+}
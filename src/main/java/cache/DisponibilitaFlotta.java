@@ -0,0 +1,156 @@
+package cache;
+
+import enums.StatoMezzo;
+import enums.TipoMezzo;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class DisponibilitaFlotta {
+
+    private static final long SENZA_INIZIO = Long.MIN_VALUE;
+    private static final long SENZA_FINE = Long.MAX_VALUE;
+    private static final long[] VUOTO = new long[0];
+
+    // intervalli di un mezzo ordinati per inizio; massimaFine[i] è la fine più lontana tra i primi i + 1,
+    // così "esiste un intervallo che interseca [a, b]" si risolve con una ricerca binaria
+    private record Voce(TipoMezzo tipo, int capienza, long[] manutenzioni, long[] inizi, long[] fini, long[] massimaFine) {
+
+        static final Voce SENZA_MANUTENZIONI = new Voce(null, 0, VUOTO, VUOTO, VUOTO, VUOTO);
+
+        Voce conMezzo(TipoMezzo nuovoTipo, int nuovaCapienza) {
+            return new Voce(nuovoTipo, nuovaCapienza, manutenzioni, inizi, fini, massimaFine);
+        }
+
+        Voce con(long manutenzioneId, long inizio, long fine) {
+            Voce base = senza(manutenzioneId);
+            int posizione = primoOltre(base.inizi, inizio);
+            long[] nuoviId = inserisci(base.manutenzioni, posizione, manutenzioneId);
+            long[] nuoviInizi = inserisci(base.inizi, posizione, inizio);
+            long[] nuoveFini = inserisci(base.fini, posizione, fine);
+            return new Voce(tipo, capienza, nuoviId, nuoviInizi, nuoveFini, massimiProgressivi(nuoveFini));
+        }
+
+        Voce senza(long manutenzioneId) {
+            for (int i = 0; i < manutenzioni.length; i++) {
+                if (manutenzioni[i] == manutenzioneId) {
+                    long[] nuoveFini = rimuovi(fini, i);
+                    return new Voce(tipo, capienza, rimuovi(manutenzioni, i), rimuovi(inizi, i), nuoveFini, massimiProgressivi(nuoveFini));
+                }
+            }
+            return this;
+        }
+
+        boolean interseca(long inizio, long fine) {
+            int ultimo = primoOltre(inizi, fine) - 1;
+            return ultimo >= 0 && massimaFine[ultimo] >= inizio;
+        }
+    }
+
+    private final NavigableMap<Long, Voce> mezzi = new ConcurrentSkipListMap<>();
+
+    public void registraMezzo(long mezzoId, TipoMezzo tipo, int capienza) {
+        mezzi.merge(mezzoId, Voce.SENZA_MANUTENZIONI.conMezzo(tipo, capienza), (voce, nuova) -> voce.conMezzo(tipo, capienza));
+    }
+
+    public void rimuoviMezzo(long mezzoId) {
+        mezzi.remove(mezzoId);
+    }
+
+    public void aggiungiManutenzione(long mezzoId, long manutenzioneId, LocalDate inizio, LocalDate fine) {
+        long giornoInizio = inizio != null ? inizio.toEpochDay() : SENZA_INIZIO;
+        long giornoFine = fine != null ? fine.toEpochDay() : SENZA_FINE;
+        mezzi.compute(mezzoId, (id, voce) ->
+                (voce != null ? voce : Voce.SENZA_MANUTENZIONI).con(manutenzioneId, giornoInizio, giornoFine));
+    }
+
+    public void rimuoviManutenzione(long mezzoId, long manutenzioneId) {
+        mezzi.computeIfPresent(mezzoId, (id, voce) -> voce.senza(manutenzioneId));
+    }
+
+    public int capienza(long mezzoId) {
+        Voce voce = mezzi.get(mezzoId);
+        return voce != null ? voce.capienza() : 0;
+    }
+
+    public boolean isInManutenzione(long mezzoId, LocalDate giorno) {
+        Voce voce = mezzi.get(mezzoId);
+        return voce != null && voce.interseca(giorno.toEpochDay(), giorno.toEpochDay());
+    }
+
+    public boolean isDisponibile(long mezzoId, LocalDate inizio, LocalDate fine) {
+        Voce voce = mezzi.get(mezzoId);
+        return voce != null && !voce.interseca(inizio.toEpochDay(), fine.toEpochDay());
+    }
+
+    public long[] disponibili(TipoMezzo tipo, LocalDate inizio, LocalDate fine) {
+        return filtra(Long.MIN_VALUE, Integer.MAX_VALUE, tipo, inizio.toEpochDay(), fine.toEpochDay(), false);
+    }
+
+    public long[] perStato(StatoMezzo stato, LocalDate giorno, long dopo, int limite) {
+        return filtra(dopo, limite, null, giorno.toEpochDay(), giorno.toEpochDay(), stato == StatoMezzo.IN_MANUTENZIONE);
+    }
+
+    public int dimensione() {
+        return mezzi.size();
+    }
+
+    private long[] filtra(long dopo, int limite, TipoMezzo tipo, long inizio, long fine, boolean inManutenzione) {
+        long[] risultato = new long[Math.min(limite, 64)];
+        int n = 0;
+        for (Map.Entry<Long, Voce> voce : mezzi.tailMap(dopo, false).entrySet()) {
+            if (n == limite) {
+                break;
+            }
+            if (voce.getValue().tipo() == null || (tipo != null && voce.getValue().tipo() != tipo)
+                    || voce.getValue().interseca(inizio, fine) != inManutenzione) {
+                continue;
+            }
+            if (n == risultato.length) {
+                risultato = Arrays.copyOf(risultato, Math.min(limite, risultato.length * 2));
+            }
+            risultato[n++] = voce.getKey();
+        }
+        return Arrays.copyOf(risultato, n);
+    }
+
+    private static int primoOltre(long[] ordinati, long valore) {
+        int basso = 0;
+        int alto = ordinati.length;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (ordinati[medio] <= valore) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return basso;
+    }
+
+    private static long[] massimiProgressivi(long[] valori) {
+        long[] massimi = new long[valori.length];
+        for (int i = 0; i < valori.length; i++) {
+            massimi[i] = i == 0 ? valori[0] : Math.max(massimi[i - 1], valori[i]);
+        }
+        return massimi;
+    }
+
+    private static long[] inserisci(long[] valori, int posizione, long valore) {
+        long[] risultato = new long[valori.length + 1];
+        System.arraycopy(valori, 0, risultato, 0, posizione);
+        risultato[posizione] = valore;
+        System.arraycopy(valori, posizione, risultato, posizione + 1, valori.length - posizione);
+        return risultato;
+    }
+
+    private static long[] rimuovi(long[] valori, int posizione) {
+        long[] risultato = new long[valori.length - 1];
+        System.arraycopy(valori, 0, risultato, 0, posizione);
+        System.arraycopy(valori, posizione + 1, risultato, posizione, valori.length - posizione - 1);
+        return risultato;
+    }
+}
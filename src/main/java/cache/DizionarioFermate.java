@@ -0,0 +1,46 @@
+package cache;
+
+import entities.Fermata;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DizionarioFermate {
+
+    private final Map<String, Fermata> perNome = new ConcurrentHashMap<>();
+    private volatile Fermata[] perId = new Fermata[64];
+
+    public Fermata trova(String nome) {
+        return perNome.get(nome);
+    }
+
+    public Fermata trova(int id) {
+        Fermata[] fermate = perId;
+        return id >= 0 && id < fermate.length ? fermate[id] : null;
+    }
+
+    public int id(String nome) {
+        Fermata fermata = perNome.get(nome);
+        return fermata != null ? fermata.getId() : -1;
+    }
+
+    public String nome(int id) {
+        Fermata fermata = trova(id);
+        return fermata != null ? fermata.getNome() : null;
+    }
+
+    public synchronized void registra(Fermata fermata) {
+        Fermata[] fermate = perId;
+        if (fermata.getId() >= fermate.length) {
+            fermate = Arrays.copyOf(fermate, Math.max(fermate.length * 2, fermata.getId() + 1));
+        }
+        fermate[fermata.getId()] = fermata;
+        perId = fermate;
+        perNome.put(fermata.getNome(), fermata);
+    }
+
+    public int dimensione() {
+        return perNome.size();
+    }
+}
@@ -0,0 +1,149 @@
+package cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FiltroBloomScalabile {
+
+    private static final double CRESCITA = 2.0;
+    private static final double RESTRIZIONE = 0.5;
+    // 128 MiB per livello: raggiunto il limite i livelli smettono di ingrandirsi e se ne aggiungono altri della stessa misura
+    private static final int PAROLE_MASSIME = 1 << 24;
+
+    // ogni livello è un filtro di Bloom classico; quando si riempie se ne apre uno più grande con un errore più basso,
+    // così la probabilità di falso positivo complessiva resta sotto la soglia iniziale
+    private static final class Livello {
+        final AtomicLongArray parole;
+        final long bit;
+        final int funzioni;
+        final long capacita;
+        final LongAdder inseriti = new LongAdder();
+
+        Livello(long capacita, double probabilitaErrore, int paroleMassime) {
+            this.parole = new AtomicLongArray(paroleNecessarie(capacita, probabilitaErrore, paroleMassime));
+            this.bit = parole.length() * 64L;
+            // se l'array è stato limitato il livello accetta meno elementi, così l'errore resta quello richiesto
+            this.capacita = Math.max(1, Math.min(capacita, (long) (bit * Math.log(2) * Math.log(2) / -Math.log(probabilitaErrore))));
+            this.funzioni = Math.max(1, (int) Math.round((double) bit / this.capacita * Math.log(2)));
+        }
+
+        boolean contiene(long h1, long h2) {
+            for (int i = 0; i < funzioni; i++) {
+                long posizione = Math.floorMod(h1 + i * h2, bit);
+                if ((parole.get((int) (posizione >>> 6)) & (1L << posizione)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void aggiungi(long h1, long h2) {
+            for (int i = 0; i < funzioni; i++) {
+                long posizione = Math.floorMod(h1 + i * h2, bit);
+                long maschera = 1L << posizione;
+                parole.getAndAccumulate((int) (posizione >>> 6), maschera, (valore, m) -> valore | m);
+            }
+            inseriti.increment();
+        }
+
+        boolean pieno() {
+            return inseriti.sum() >= capacita;
+        }
+    }
+
+    private final Object lockCrescita = new Object();
+    private final int paroleMassime;
+    private volatile Livello[] livelli;
+    private volatile double prossimaProbabilita;
+
+    public FiltroBloomScalabile(long capacitaIniziale, double probabilitaErrore) {
+        this(capacitaIniziale, probabilitaErrore, PAROLE_MASSIME);
+    }
+
+    FiltroBloomScalabile(long capacitaIniziale, double probabilitaErrore, int paroleMassime) {
+        this.paroleMassime = paroleMassime;
+        this.livelli = new Livello[]{new Livello(capacitaIniziale, probabilitaErrore * (1 - RESTRIZIONE), paroleMassime)};
+        this.prossimaProbabilita = probabilitaErrore * (1 - RESTRIZIONE) * RESTRIZIONE;
+    }
+
+    public boolean puoContenere(long valore) {
+        long h1 = mescola(valore);
+        long h2 = mescola(h1) | 1;
+        for (Livello livello : livelli) {
+            if (livello.contiene(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void aggiungi(long valore) {
+        long h1 = mescola(valore);
+        long h2 = mescola(h1) | 1;
+        Livello[] attuali = livelli;
+        for (Livello livello : attuali) {
+            if (livello.contiene(h1, h2)) {
+                return;
+            }
+        }
+        Livello ultimo = attuali[attuali.length - 1];
+        if (ultimo.pieno()) {
+            ultimo = cresci(ultimo);
+        }
+        ultimo.aggiungi(h1, h2);
+    }
+
+    public long elementi() {
+        long totale = 0;
+        for (Livello livello : livelli) {
+            totale += livello.inseriti.sum();
+        }
+        return totale;
+    }
+
+    public long byteOccupati() {
+        long totale = 0;
+        for (Livello livello : livelli) {
+            totale += livello.bit / 8;
+        }
+        return totale;
+    }
+
+    private Livello cresci(Livello pieno) {
+        synchronized (lockCrescita) {
+            Livello[] attuali = livelli;
+            Livello ultimo = attuali[attuali.length - 1];
+            if (ultimo != pieno) {
+                return ultimo;
+            }
+            Livello nuovo = new Livello((long) Math.min(Long.MAX_VALUE / 2, pieno.capacita * CRESCITA),
+                    Math.max(Double.MIN_NORMAL, prossimaProbabilita), paroleMassime);
+            prossimaProbabilita *= RESTRIZIONE;
+            Livello[] estesi = Arrays.copyOf(attuali, attuali.length + 1);
+            estesi[attuali.length] = nuovo;
+            livelli = estesi;
+            return nuovo;
+        }
+    }
+
+    static int paroleNecessarie(long capacita, double probabilitaErrore, int paroleMassime) {
+        double bitNecessari = Math.ceil(-capacita * Math.log(probabilitaErrore) / (Math.log(2) * Math.log(2)));
+        return (int) Math.max(1, Math.min(paroleMassime, Math.ceil(bitNecessari / 64)));
+    }
+
+    long byteDelLivello(int indice) {
+        return livelli[indice].bit / 8;
+    }
+
+    int livelli() {
+        return livelli.length;
+    }
+
+    private static long mescola(long valore) {
+        long z = valore + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,179 @@
+package cache;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+public class IndiceValiditaAbbonamenti {
+
+    private static final long CHIAVE_VUOTA = Long.MIN_VALUE;
+    private static final long[] NESSUN_INTERVALLO = new long[0];
+    private static final int CAPACITA_INIZIALE = 1024;
+
+    // per ogni tessera: terne consecutive (idAbbonamento, inizio, fine) in giorni epoch
+    private static final class Tabella {
+        final long[] chiavi;
+        final long[][] intervalli;
+        int occupati;
+
+        Tabella(int capacita) {
+            chiavi = new long[capacita];
+            intervalli = new long[capacita][];
+            Arrays.fill(chiavi, CHIAVE_VUOTA);
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Tabella tabella = new Tabella(CAPACITA_INIZIALE);
+
+    public boolean isValida(long tesseraId, LocalDate giorno) {
+        return abbonamentoValido(tesseraId, giorno) >= 0;
+    }
+
+    public long abbonamentoValido(long tesseraId, LocalDate giorno) {
+        long giornoEpoch = giorno.toEpochDay();
+        long stamp = lock.tryOptimisticRead();
+        long[] valori = leggi(tabella, tesseraId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                valori = leggi(tabella, tesseraId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        for (int i = 0; i < valori.length; i += 3) {
+            if (valori[i + 1] <= giornoEpoch && giornoEpoch <= valori[i + 2]) {
+                return valori[i];
+            }
+        }
+        return -1;
+    }
+
+    public void aggiungi(long tesseraId, long abbonamentoId, LocalDate inizio, LocalDate fine) {
+        long stamp = lock.writeLock();
+        try {
+            long[] senza = senzaAbbonamento(leggi(tabella, tesseraId), abbonamentoId);
+            long[] valori = Arrays.copyOf(senza, senza.length + 3);
+            valori[senza.length] = abbonamentoId;
+            valori[senza.length + 1] = inizio.toEpochDay();
+            valori[senza.length + 2] = fine.toEpochDay();
+            scrivi(tesseraId, valori);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void rimuovi(long tesseraId, long abbonamentoId) {
+        long stamp = lock.writeLock();
+        try {
+            long[] valori = leggi(tabella, tesseraId);
+            if (valori.length > 0) {
+                scrivi(tesseraId, senzaAbbonamento(valori, abbonamentoId));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int rimuoviScaduti(LocalDate oggi) {
+        long oggiEpoch = oggi.toEpochDay();
+        long stamp = lock.writeLock();
+        try {
+            Tabella vecchia = tabella;
+            Tabella nuova = new Tabella(CAPACITA_INIZIALE);
+            int rimossi = 0;
+            for (int i = 0; i < vecchia.chiavi.length; i++) {
+                if (vecchia.chiavi[i] == CHIAVE_VUOTA) {
+                    continue;
+                }
+                long[] valori = vecchia.intervalli[i];
+                long[] attivi = new long[valori.length];
+                int n = 0;
+                for (int j = 0; j < valori.length; j += 3) {
+                    if (valori[j + 2] >= oggiEpoch) {
+                        System.arraycopy(valori, j, attivi, n, 3);
+                        n += 3;
+                    } else {
+                        rimossi++;
+                    }
+                }
+                if (n > 0) {
+                    nuova = inserisci(nuova, vecchia.chiavi[i], Arrays.copyOf(attivi, n));
+                }
+            }
+            tabella = nuova;
+            return rimossi;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int dimensione() {
+        return tabella.occupati;
+    }
+
+    private static long[] leggi(Tabella t, long chiave) {
+        int maschera = t.chiavi.length - 1;
+        for (int i = indice(chiave, maschera); ; i = (i + 1) & maschera) {
+            long k = t.chiavi[i];
+            if (k == chiave) {
+                long[] valori = t.intervalli[i];
+                return valori != null ? valori : NESSUN_INTERVALLO;
+            }
+            if (k == CHIAVE_VUOTA) {
+                return NESSUN_INTERVALLO;
+            }
+        }
+    }
+
+    private void scrivi(long chiave, long[] valori) {
+        tabella = inserisci(tabella, chiave, valori);
+    }
+
+    private static Tabella inserisci(Tabella t, long chiave, long[] valori) {
+        if ((t.occupati + 1) * 2 > t.chiavi.length) {
+            t = ridimensiona(t);
+        }
+        int maschera = t.chiavi.length - 1;
+        for (int i = indice(chiave, maschera); ; i = (i + 1) & maschera) {
+            if (t.chiavi[i] == chiave) {
+                t.intervalli[i] = valori;
+                return t;
+            }
+            if (t.chiavi[i] == CHIAVE_VUOTA) {
+                t.intervalli[i] = valori;
+                t.chiavi[i] = chiave;
+                t.occupati++;
+                return t;
+            }
+        }
+    }
+
+    private static Tabella ridimensiona(Tabella vecchia) {
+        Tabella nuova = new Tabella(vecchia.chiavi.length * 2);
+        for (int i = 0; i < vecchia.chiavi.length; i++) {
+            if (vecchia.chiavi[i] != CHIAVE_VUOTA) {
+                inserisci(nuova, vecchia.chiavi[i], vecchia.intervalli[i]);
+            }
+        }
+        return nuova;
+    }
+
+    private static long[] senzaAbbonamento(long[] valori, long abbonamentoId) {
+        for (int i = 0; i < valori.length; i += 3) {
+            if (valori[i] == abbonamentoId) {
+                long[] risultato = new long[valori.length - 3];
+                System.arraycopy(valori, 0, risultato, 0, i);
+                System.arraycopy(valori, i + 3, risultato, i, valori.length - i - 3);
+                return risultato;
+            }
+        }
+        return valori;
+    }
+
+    private static int indice(long chiave, int maschera) {
+        long h = chiave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & maschera;
+    }
+}
@@ -0,0 +1,45 @@
+package cache;
+
+public class RegistroBiglietti {
+
+    private static final long CAPACITA_INIZIALE = 1 << 20;
+    private static final double PROBABILITA_ERRORE = 0.001;
+
+    private final FiltroBloomScalabile emessi = new FiltroBloomScalabile(CAPACITA_INIZIALE, PROBABILITA_ERRORE);
+    private final FiltroBloomScalabile validati = new FiltroBloomScalabile(CAPACITA_INIZIALE, PROBABILITA_ERRORE);
+    // id più alto letto dal database al caricamento, -1 finché il caricamento non è finito
+    private volatile long massimoCaricato = -1;
+
+    public void registraEmissione(long bigliettoId) {
+        emessi.aggiungi(bigliettoId);
+    }
+
+    public void registraValidazione(long bigliettoId) {
+        validati.aggiungi(bigliettoId);
+    }
+
+    public boolean forseEmesso(long bigliettoId) {
+        return emessi.puoContenere(bigliettoId);
+    }
+
+    // il filtro risponde da solo solo per gli id che esistevano al caricamento:
+    // quelli successivi possono essere stati emessi da un altro processo e vanno cercati sul database
+    public boolean sicuramenteNonEmesso(long bigliettoId) {
+        long massimo = massimoCaricato;
+        return massimo >= 0 && bigliettoId <= massimo && !emessi.puoContenere(bigliettoId);
+    }
+
+    public void caricamentoCompletato(long massimoId) {
+        massimoCaricato = Math.max(0, massimoId);
+    }
+
+    public boolean forseValidato(long bigliettoId) {
+        return validati.puoContenere(bigliettoId);
+    }
+
+    @Override
+    public String toString() {
+        return "RegistroBiglietti{emessi=" + emessi.elementi() + " (" + emessi.byteOccupati() / 1024 + " KB)" +
+                ", validati=" + validati.elementi() + " (" + validati.byteOccupati() / 1024 + " KB)}";
+    }
+}
@@ -1,25 +1,54 @@
 package dao;
 
+import cache.IndiceValiditaAbbonamenti;
 import entities.Abbonamento;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
+import enums.TipoProdotto;
+import exceptions.NotFoundException;
+import org.hibernate.jpa.SpecHints;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
 
 public class AbbonamentoDAO {
 
-    private final EntityManager entityManager;
+    private static final String COPY_ABBONAMENTI =
+            "COPY abbonamento (id, \"Tipo abbonamento\", \"Data inizio validità\", \"Data scadenza validità\", " +
+                    "\"Data Emissione\", prezzo, id_punto_emissione, id_tessera) FROM STDIN WITH (FORMAT csv)";
 
-    public AbbonamentoDAO(EntityManager entityManager, EntityManager entityManager1){
-        this.entityManager = entityManager;
+    private static final List<TipoProdotto> ABBONAMENTI =
+            List.of(TipoProdotto.ABBONAMENTO_SETTIMANALE, TipoProdotto.ABBONAMENTO_MENSILE);
+
+    static final String ID_PER_PERIODO =
+            "SELECT a.id FROM Abbonamento a WHERE a.dataEmissione BETWEEN :dataInizio AND :dataFine";
+
+    static final String ID_PER_PUNTO_E_PERIODO =
+            "SELECT a.id FROM Abbonamento a " +
+                    "WHERE a.puntoEmissione.id = :puntoId " +
+                    "AND a.dataEmissione BETWEEN :dataInizio AND :dataFine";
+
+    static final String VALIDITA =
+            "SELECT a.tessera.id, a.id, a.datainiziovalidita, a.datafinevalidita FROM Abbonamento a " +
+                    "WHERE a.tessera IS NOT NULL AND a.datafinevalidita >= :oggi";
+
+    private final UnitOfWork uow;
+    private final VenditaGiornalieraDAO venditaGiornalieraDAO;
+    private final IndiceValiditaAbbonamenti indiceValidita;
+
+    public AbbonamentoDAO(UnitOfWork uow, IndiceValiditaAbbonamenti indiceValidita){
+        this.uow = uow;
+        this.venditaGiornalieraDAO = new VenditaGiornalieraDAO(uow);
+        this.indiceValidita = indiceValidita;
     }
 
     public void save(Abbonamento newAbbonamento) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try{
-            transaction.begin();
-            entityManager.persist(newAbbonamento);
-            transaction.commit();
+            uow.eseguiInTransazione(em -> {
+                em.persist(newAbbonamento);
+                VenditaGiornalieraDAO.registraAbbonamenti(em, List.of(newAbbonamento), 1);
+            });
+            indicizza(newAbbonamento);
          /*   System.out.println("Abbonamento salvato correttamente - ID: " + newAbbonamento.getId() +
                     " - Tipo: " + newAbbonamento.getTipoAbbonamento() +
                     " - Emesso presso ID Punto Emissione: " + newAbbonamento.getPuntoEmissione().getIdPuntoEmissione() +
@@ -27,76 +56,127 @@ public class AbbonamentoDAO {
                     " - Tessera ID: " + newAbbonamento.getTessera().getId() +
                     " - Prezzo: €" + newAbbonamento.getPrezzo());*/
         } catch (Exception e) {
-            if(transaction.isActive()){
-                transaction.rollback();
-            }
             System.out.println("Errore salvataggio abbonamento");
         }
     }
 
+    public int saveAll(Collection<Abbonamento> abbonamenti) {
+        return uow.persistiInBlocchi(abbonamenti, (em, blocco) -> VenditaGiornalieraDAO.registraAbbonamenti(em, blocco, 1),
+                blocco -> blocco.forEach(this::indicizza));
+    }
+
+    public long copyAll(Collection<Abbonamento> abbonamenti) {
+        long[] ids = new long[abbonamenti.size()];
+        int[] posizione = {0};
+        long copiati = CopiaBulk.copia(uow, COPY_ABBONAMENTI, "abbonamento_seq", 50, abbonamenti, (id, a) -> {
+            ids[posizione[0]++] = id;
+            return id + "," + a.getTipoAbbonamento() + "," + a.getDatainiziovalidita() + "," + a.getDatafinevalidita() + "," +
+                        CopiaBulk.campo(a.getDataEmissione()) + "," + a.getPrezzo() + "," +
+                        CopiaBulk.campo(a.getPuntoEmissione() != null ? a.getPuntoEmissione().getIdPuntoEmissione() : null) + "," +
+                        CopiaBulk.campo(a.getTessera() != null ? a.getTessera().getId() : null);
+        }, em -> VenditaGiornalieraDAO.registraAbbonamenti(em, abbonamenti, 1));
+        int i = 0;
+        for (Abbonamento a : abbonamenti) {
+            if (a.getTessera() != null) {
+                indiceValidita.aggiungi(a.getTessera().getId(), ids[i], a.getDatainiziovalidita(), a.getDatafinevalidita());
+            }
+            i++;
+        }
+        return copiati;
+    }
+
     public Abbonamento findById(long Abbonamentoid){
-        return entityManager.find(Abbonamento.class, Abbonamentoid);
+        return uow.inLettura(em -> em.find(Abbonamento.class, Abbonamentoid, UnitOfWork.grafo(em, Abbonamento.GRAFO_STAMPA)));
     }
 
     public void deleteWithId(long abbonamentoid){
-        Abbonamento found = this.findById(abbonamentoid);
-        EntityTransaction transaction = entityManager.getTransaction();
-        transaction.begin();
-        entityManager.remove(found);
-        transaction.commit();
+        Abbonamento found = uow.inTransazione(em -> {
+            Abbonamento abbonamento = em.find(Abbonamento.class, abbonamentoid, UnitOfWork.grafo(em, Abbonamento.GRAFO_STAMPA));
+            if (abbonamento == null) {
+                throw new NotFoundException("Id " + abbonamentoid + " non trovato");
+            }
+            em.remove(abbonamento);
+            VenditaGiornalieraDAO.registraAbbonamenti(em, List.of(abbonamento), -1);
+            return abbonamento;
+        });
+        if (found.getTessera() != null) {
+            indiceValidita.rimuovi(found.getTessera().getId(), found.getId());
+        }
         System.out.println(found + " Rimosso correttamente");
     }
 
     public void update(Abbonamento abbonamento) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try {
-            transaction.begin();
-            entityManager.merge(abbonamento);
-            transaction.commit();
+            Long tesseraPrecedente = uow.inTransazione(em -> {
+                Abbonamento precedente = em.find(Abbonamento.class, abbonamento.getId());
+                VenditaGiornalieraDAO.Variazioni variazioni = new VenditaGiornalieraDAO.Variazioni();
+                Long tesseraId = null;
+                if (precedente != null) {
+                    variazioni.abbonamenti(List.of(precedente), -1);
+                    tesseraId = precedente.getTessera() != null ? precedente.getTessera().getId() : null;
+                }
+                em.merge(abbonamento);
+                variazioni.abbonamenti(List.of(abbonamento), 1).registra(em);
+                return tesseraId;
+            });
+            if (tesseraPrecedente != null) {
+                indiceValidita.rimuovi(tesseraPrecedente, abbonamento.getId());
+            }
+            indicizza(abbonamento);
             System.out.println("Abbonamento aggiornato con successo");
         } catch (Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
             System.out.println("Errore durante l'aggiornamento");
         }
     }
 
     public long countAbbonamentiByPuntoEmissioneAndPeriodo(Long puntoEmissioneId, LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
-                        "SELECT COUNT(a) FROM Abbonamento a " +
-                                "JOIN a.puntoEmissione pe " +
-                                "WHERE pe.id = :puntoId " +
-                                "AND a.dataEmissione BETWEEN :dataInizio AND :dataFine", Long.class)
-                .setParameter("puntoId", puntoEmissioneId)
-                .setParameter("dataInizio", dataInizio)
-                .setParameter("dataFine", dataFine)
-                .getSingleResult();
+        return venditaGiornalieraDAO.contaVendite(puntoEmissioneId, dataInizio, dataFine, ABBONAMENTI);
     }
     public List<Abbonamento> stampaAbbonamentiByPuntoEmissioneAndPeriodo(Long puntoEmissioneId, LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
+        return uow.inLettura(em -> em.createQuery(
                         "SELECT a FROM Abbonamento a " +
                                 "JOIN a.puntoEmissione pe " +
                                 "WHERE pe.id = :puntoId " +
                                 "AND a.dataEmissione BETWEEN :dataInizio AND :dataFine", Abbonamento.class)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Abbonamento.GRAFO_STAMPA))
                 .setParameter("puntoId", puntoEmissioneId)
                 .setParameter("dataInizio", dataInizio)
                 .setParameter("dataFine", dataFine)
-                .getResultList();
+                .getResultList());
     }
 
     public long countAbbonamentiByPeriodo(LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
-                        "SELECT COUNT(a) FROM Abbonamento a WHERE a.dataEmissione BETWEEN :dataInizio AND :dataFine", Long.class)
-                .setParameter("dataInizio", dataInizio)
-                .setParameter("dataFine", dataFine)
-                .getSingleResult();
+        return venditaGiornalieraDAO.contaVendite(dataInizio, dataFine, ABBONAMENTI);
     }
     public List<Abbonamento> StampaAbbonamentiByPeriodo(LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
+        return uow.inLettura(em -> em.createQuery(
                         "SELECT a FROM Abbonamento a WHERE a.dataEmissione BETWEEN :dataInizio AND :dataFine", Abbonamento.class)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Abbonamento.GRAFO_STAMPA))
                 .setParameter("dataInizio", dataInizio)
                 .setParameter("dataFine", dataFine)
-                .getResultList();
+                .getResultList());
+    }
+
+    public long streamIdAbbonamentiByPeriodo(LocalDate dataInizio, LocalDate dataFine, LongConsumer consumatore) {
+        return uow.scorri(ID_PER_PERIODO, Long.class,
+                Map.of("dataInizio", dataInizio, "dataFine", dataFine), consumatore::accept);
+    }
+
+    public long streamIdAbbonamentiByPuntoEmissioneAndPeriodo(Long puntoEmissioneId, LocalDate dataInizio, LocalDate dataFine, LongConsumer consumatore) {
+        return uow.scorri(ID_PER_PUNTO_E_PERIODO, Long.class,
+                Map.of("puntoId", puntoEmissioneId, "dataInizio", dataInizio, "dataFine", dataFine), consumatore::accept);
+    }
+
+    public long caricaIndiceValidita(LocalDate oggi) {
+        return uow.scorri(VALIDITA, Object[].class,
+                Map.of("oggi", oggi),
+                riga -> indiceValidita.aggiungi((Long) riga[0], (Long) riga[1], (LocalDate) riga[2], (LocalDate) riga[3]));
+    }
+
+    private void indicizza(Abbonamento abbonamento) {
+        if (abbonamento.getId() != 0 && abbonamento.getTessera() != null) {
+            indiceValidita.aggiungi(abbonamento.getTessera().getId(), abbonamento.getId(),
+                    abbonamento.getDatainiziovalidita(), abbonamento.getDatafinevalidita());
+        }
     }
-}
\ No newline at end of file
+}
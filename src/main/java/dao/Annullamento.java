@@ -0,0 +1,41 @@
+package dao;
+
+import org.hibernate.Session;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+
+// permette a un altro thread di interrompere la query in esecuzione: Session.cancelQuery invia il cancel al database,
+// mentre annullare il CompletableFuture che la attende non ferma lo statement
+public class Annullamento {
+
+    private Session sessione;
+    private boolean annullato;
+
+    public synchronized void annulla() {
+        annullato = true;
+        if (sessione != null) {
+            sessione.cancelQuery();
+        }
+    }
+
+    public synchronized boolean isAnnullato() {
+        return annullato;
+    }
+
+    <T> T esegui(Session sessione, Function<Session, T> lavoro) {
+        synchronized (this) {
+            if (annullato) {
+                throw new CancellationException("Query annullata prima dell'esecuzione");
+            }
+            this.sessione = sessione;
+        }
+        try {
+            return lavoro.apply(sessione);
+        } finally {
+            synchronized (this) {
+                this.sessione = null;
+            }
+        }
+    }
+}
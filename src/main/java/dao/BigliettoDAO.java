@@ -1,168 +1,333 @@
 package dao;
 
+import cache.RegistroBiglietti;
+import dto.TotaliPeriodo;
+import dto.VenditaRegistrata;
 import entities.Biglietto;
+import entities.Mezzo;
+import entities.PuntoDiEmissione;
+import enums.TipoProdotto;
 import exceptions.InvalidDataException;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
+import exceptions.NotFoundException;
+import org.hibernate.Session;
+import org.hibernate.jpa.SpecHints;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongConsumer;
 
 public class BigliettoDAO {
 
-    private final EntityManager entityManager;
+    private static final String COPY_BIGLIETTI =
+            "COPY biglietto (id, \"durata biglietto\", prezzo, \"Data Emissione\", id_punto_emissione, " +
+                    "\"Data validazione\", id_mezzo_validante) FROM STDIN WITH (FORMAT csv)";
 
-    public BigliettoDAO(EntityManager entityManager, EntityManager entityManager1){
-        this.entityManager = entityManager;
+    static final String CODICI_PRESENTI = "SELECT b.codiceVendita FROM Biglietto b WHERE b.codiceVendita IN :codici";
+
+    static final String PER_PUNTO_E_PERIODO =
+            "SELECT b FROM Biglietto b " +
+                    "JOIN b.puntoEmissione pe " +
+                    "WHERE pe.id = :puntoId " +
+                    "AND b.dataEmissione BETWEEN :dataInizio AND :dataFine";
+
+    static final String VIDIMATI_PER_MEZZO =
+            "SELECT COUNT(b) FROM Biglietto b " +
+                    "JOIN b.mezzoValidante mv " +
+                    "WHERE mv.id = :mezzoId " +
+                    "AND b.dataValidazione IS NOT NULL " +
+                    "AND b.dataValidazione BETWEEN :dataInizio AND :dataFine";
+
+    static final String VIDIMATI_PER_PERIODO =
+            "SELECT COUNT(b) FROM Biglietto b WHERE b.dataValidazione IS NOT NULL " +
+                    "AND b.dataValidazione BETWEEN :dataInizio AND :dataFine";
+
+    static final String ID_PER_PERIODO =
+            "SELECT b.id FROM Biglietto b WHERE b.dataEmissione BETWEEN :dataInizio AND :dataFine";
+
+    static final String ID_PER_PUNTO_E_PERIODO =
+            "SELECT b.id FROM Biglietto b " +
+                    "WHERE b.puntoEmissione.id = :puntoId " +
+                    "AND b.dataEmissione BETWEEN :dataInizio AND :dataFine";
+
+    private final UnitOfWork uow;
+    private final VenditaGiornalieraDAO venditaGiornalieraDAO;
+    private final RegistroBiglietti registro;
+
+    public BigliettoDAO(UnitOfWork uow, RegistroBiglietti registro){
+        this.uow = uow;
+        this.venditaGiornalieraDAO = new VenditaGiornalieraDAO(uow);
+        this.registro = registro;
     }
 
     public void save(Biglietto newBiglietto) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try{
-            transaction.begin();
-            entityManager.persist(newBiglietto);
-            transaction.commit();
+            uow.eseguiInTransazione(em -> {
+                em.persist(newBiglietto);
+                VenditaGiornalieraDAO.registraBiglietti(em, List.of(newBiglietto), 1);
+                registra(newBiglietto);
+            });
           /*  System.out.println("Biglietto salvato correttamente - ID: " + newBiglietto.getId() +
                     " - Emesso presso ID Punto Emissione: " + newBiglietto.getPuntoEmissione().getIdPuntoEmissione() +
                     " (" + newBiglietto.getPuntoEmissione().getIndirizzo() + ")" +
                     " - Prezzo: €" + newBiglietto.getPrezzo());*/
         } catch (Exception e) {
-            if(transaction.isActive()){
-                transaction.rollback();
-            }
             System.out.println("Errore salvataggio biglietto");
             e.printStackTrace();
         }
     }
 
+    public int saveAll(Collection<Biglietto> biglietti) {
+        return uow.persistiInBlocchi(biglietti, (em, blocco) -> {
+            VenditaGiornalieraDAO.registraBiglietti(em, blocco, 1);
+            blocco.forEach(this::registra);
+        });
+    }
+
+    public long copyAll(Collection<Biglietto> biglietti) {
+        return CopiaBulk.copia(uow, COPY_BIGLIETTI, "biglietto_seq", 50, biglietti, (id, b) -> {
+            registro.registraEmissione(id);
+            if (b.getDataValidazione() != null) {
+                registro.registraValidazione(id);
+            }
+            return id + "," + b.getDurataBiglietto() + "," + b.getPrezzo() + "," +
+                    CopiaBulk.campo(b.getDataEmissione()) + "," +
+                    CopiaBulk.campo(b.getPuntoEmissione() != null ? b.getPuntoEmissione().getIdPuntoEmissione() : null) + "," +
+                    CopiaBulk.campo(b.getDataValidazione()) + "," +
+                    CopiaBulk.campo(b.getMezzoValidante() != null ? b.getMezzoValidante().getId() : null);
+        }, em -> VenditaGiornalieraDAO.registraBiglietti(em, biglietti, 1));
+    }
+
+    public int salvaVendite(Collection<VenditaRegistrata> vendite) {
+        List<UUID> codici = vendite.stream().map(VenditaRegistrata::codiceVendita).toList();
+        return uow.inTransazione(em -> {
+            Set<UUID> presenti = new HashSet<>(em.createQuery(CODICI_PRESENTI, UUID.class)
+                    .setParameter("codici", codici)
+                    .getResultList());
+            List<Biglietto> nuovi = new ArrayList<>(vendite.size());
+            for (VenditaRegistrata vendita : vendite) {
+                if (!presenti.add(vendita.codiceVendita())) {
+                    continue;
+                }
+                Biglietto biglietto = new Biglietto(vendita.durataBiglietto(), vendita.prezzo(), vendita.dataEmissione(),
+                        vendita.puntoEmissioneId() != null ? em.getReference(PuntoDiEmissione.class, vendita.puntoEmissioneId()) : null,
+                        null, null);
+                biglietto.setCodiceVendita(vendita.codiceVendita());
+                em.persist(biglietto);
+                registra(biglietto);
+                nuovi.add(biglietto);
+            }
+            VenditaGiornalieraDAO.registraBiglietti(em, nuovi, 1);
+            return nuovi.size();
+        });
+    }
+
     public Biglietto findById(long bigliettoid){
-        return entityManager.find(Biglietto.class, bigliettoid);
+        return uow.inLettura(em -> em.find(Biglietto.class, bigliettoid, UnitOfWork.grafo(em, Biglietto.GRAFO_STAMPA)));
+    }
+
+    public Biglietto findByCodiceVendita(UUID codiceVendita) {
+        return uow.inLettura(em -> em.createQuery("SELECT b FROM Biglietto b WHERE b.codiceVendita = :codice", Biglietto.class)
+                .setParameter("codice", codiceVendita)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Biglietto.GRAFO_STAMPA))
+                .getResultStream()
+                .findFirst()
+                .orElse(null));
     }
 
     public void validaBiglietto(long bigliettoid, long mezzoId) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try {
-            transaction.begin();
-            Biglietto biglietto = findById(bigliettoid);
-
-            if (biglietto.getDataValidazione() != null) {
-                throw new InvalidDataException("Biglietto già validato in data: " + biglietto.getDataValidazione());
+            if (registro.sicuramenteNonEmesso(bigliettoid)) {
+                throw new NotFoundException("Id " + bigliettoid + " non trovato");
             }
+            uow.eseguiInTransazione(em -> {
+                Biglietto biglietto = em.find(Biglietto.class, bigliettoid);
+
+                if (biglietto == null) {
+                    throw new NotFoundException("Id " + bigliettoid + " non trovato");
+                }
+                if (biglietto.getDataValidazione() != null) {
+                    throw new InvalidDataException("Biglietto già validato in data: " + biglietto.getDataValidazione());
+                }
 
-            biglietto.setDataValidazione(LocalDate.now());
-            entityManager.merge(biglietto);
-            transaction.commit();
+                biglietto.setDataValidazione(LocalDate.now());
+                biglietto.setMezzoValidante(em.getReference(Mezzo.class, mezzoId));
+            });
+            // un biglietto emesso da un altro processo dopo il caricamento entra nel registro alla prima validazione
+            registro.registraEmissione(bigliettoid);
+            registro.registraValidazione(bigliettoid);
             System.out.println("Biglietto validato con successo");
         } catch (Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
             System.out.println("Errore durante la validazione: " + e.getMessage());
         }
     }
 
     public void deleteWithId(long bigliettoid){
-        Biglietto found = this.findById(bigliettoid);
-        EntityTransaction transaction = entityManager.getTransaction();
-        transaction.begin();
-        entityManager.remove(found);
-        transaction.commit();
+        Biglietto found = uow.inTransazione(em -> {
+            Biglietto biglietto = em.find(Biglietto.class, bigliettoid, UnitOfWork.grafo(em, Biglietto.GRAFO_STAMPA));
+            if (biglietto == null) {
+                throw new NotFoundException("Id " + bigliettoid + " non trovato");
+            }
+            em.remove(biglietto);
+            VenditaGiornalieraDAO.registraBiglietti(em, List.of(biglietto), -1);
+            return biglietto;
+        });
         System.out.println(found + " Rimosso correttamente");
     }
 
     public void update(Biglietto biglietto) {
-        EntityTransaction transaction = entityManager.getTransaction();
         try {
-            transaction.begin();
-            entityManager.merge(biglietto);
-            transaction.commit();
+            uow.eseguiInTransazione(em -> {
+                Biglietto precedente = em.find(Biglietto.class, biglietto.getId());
+                VenditaGiornalieraDAO.Variazioni variazioni = new VenditaGiornalieraDAO.Variazioni();
+                if (precedente != null) {
+                    variazioni.biglietti(List.of(precedente), -1);
+                }
+                em.merge(biglietto);
+                variazioni.biglietti(List.of(biglietto), 1).registra(em);
+            });
+            registra(biglietto);
             System.out.println("Biglietto aggiornato con successo");
         } catch (Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
             System.out.println("Errore durante l'aggiornamento");
         }
     }
 
     public long countBigliettiByPuntoEmissioneAndPeriodo(Long puntoEmissioneId, LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
-                        "SELECT COUNT(b) FROM Biglietto b " +
-                                "JOIN b.puntoEmissione pe " +
-                                "WHERE pe.id = :puntoId " +
-                                "AND b.dataEmissione BETWEEN :dataInizio AND :dataFine", Long.class)
-                .setParameter("puntoId", puntoEmissioneId)
-                .setParameter("dataInizio", dataInizio)
-                .setParameter("dataFine", dataFine)
-                .getSingleResult();
+        return venditaGiornalieraDAO.contaVendite(puntoEmissioneId, dataInizio, dataFine, List.of(TipoProdotto.BIGLIETTO));
     }
     public List<Biglietto> findBigliettoByPuntoEmissioneAndPeriodo(Long puntoEmissioneId, LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
-                        "SELECT b FROM Biglietto b " +
-                                "JOIN b.puntoEmissione pe " +
-                                "WHERE pe.id = :puntoId " +
-                                "AND b.dataEmissione BETWEEN :dataInizio AND :dataFine", Biglietto.class)
+        return uow.inLettura(em -> em.createQuery(PER_PUNTO_E_PERIODO, Biglietto.class)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Biglietto.GRAFO_STAMPA))
                 .setParameter("puntoId", puntoEmissioneId)
                 .setParameter("dataInizio", dataInizio)
                 .setParameter("dataFine", dataFine)
-                .getResultList();
+                .getResultList());
     }
     public List<Biglietto> findBigliettoByPeriodo(LocalDate dataInizio, LocalDate dataFine){
-        return entityManager.createQuery(
+        return uow.inLettura(em -> em.createQuery(
                 "SELECT b FROM Biglietto b WHERE b.dataEmissione BETWEEN :dataInizio AND :dataFine", Biglietto.class)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Biglietto.GRAFO_STAMPA))
                 .setParameter("dataInizio", dataInizio)
                 .setParameter("dataFine", dataFine)
-                .getResultList();
+                .getResultList());
     }
 
 
     public long countBigliettiByPeriodo(LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
-                        "SELECT COUNT(b) FROM Biglietto b WHERE b.dataEmissione BETWEEN :dataInizio AND :dataFine", Long.class)
-                .setParameter("dataInizio", dataInizio)
-                .setParameter("dataFine", dataFine)
-                .getSingleResult();
+        return venditaGiornalieraDAO.contaVendite(dataInizio, dataFine, List.of(TipoProdotto.BIGLIETTO));
     }
 
     public long countBigliettiVidimatiByMezzo(Long mezzoId, LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
-                        "SELECT COUNT(b) FROM Biglietto b " +
-                                "JOIN b.mezzoValidante mv " +
-                                "WHERE mv.id = :mezzoId " +
-                                "AND b.dataValidazione IS NOT NULL " +
-                                "AND b.dataValidazione BETWEEN :dataInizio AND :dataFine", Long.class)
+        return uow.inLettura(em -> em.createQuery(VIDIMATI_PER_MEZZO, Long.class)
                 .setParameter("mezzoId", mezzoId)
                 .setParameter("dataInizio", dataInizio)
                 .setParameter("dataFine", dataFine)
-                .getSingleResult();
+                .getSingleResult());
     }
     public List<Biglietto> trovaBigliettiVidimatiByMezzo(Long mezzoId, LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
+        return uow.inLettura(em -> em.createQuery(
                         "SELECT b FROM Biglietto b " +
                                 "JOIN b.mezzoValidante mv " +
                                 "WHERE mv.id = :mezzoId " +
                                 "AND b.dataValidazione IS NOT NULL " +
                                 "AND b.dataValidazione BETWEEN :dataInizio AND :dataFine", Biglietto.class)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Biglietto.GRAFO_STAMPA))
                 .setParameter("mezzoId", mezzoId)
                 .setParameter("dataInizio", dataInizio)
                 .setParameter("dataFine", dataFine)
-                .getResultList();
+                .getResultList());
     }
 
     public long countBigliettiVidimatiByPeriodo(LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
-                        "SELECT COUNT(b) FROM Biglietto b WHERE b.dataValidazione IS NOT NULL " +
-                                "AND b.dataValidazione BETWEEN :dataInizio AND :dataFine", Long.class)
+        return uow.inLettura(em -> em.createQuery(VIDIMATI_PER_PERIODO, Long.class)
                 .setParameter("dataInizio", dataInizio)
                 .setParameter("dataFine", dataFine)
-                .getSingleResult();
+                .getSingleResult());
+    }
+
+    public TotaliPeriodo totaliVidimatiByPeriodo(LocalDate dataInizio, LocalDate dataFine, int timeoutMillis,
+                                                 Annullamento annullamento) {
+        return totali("SELECT COUNT(b), COALESCE(SUM(b.prezzo), 0) FROM Biglietto b WHERE b.dataValidazione IS NOT NULL " +
+                "AND b.dataValidazione BETWEEN :dataInizio AND :dataFine", dataInizio, dataFine, timeoutMillis, annullamento);
+    }
+
+    public TotaliPeriodo totaliEmessiByPeriodo(LocalDate dataInizio, LocalDate dataFine, int timeoutMillis,
+                                               Annullamento annullamento) {
+        return totali("SELECT COUNT(b), COALESCE(SUM(b.prezzo), 0) FROM Biglietto b " +
+                "WHERE b.dataEmissione BETWEEN :dataInizio AND :dataFine", dataInizio, dataFine, timeoutMillis, annullamento);
     }
 
     public List<Biglietto> countBigliettiVidimatiTotal(LocalDate dataInizio, LocalDate dataFine) {
-        return entityManager.createQuery(
+        return uow.inLettura(em -> em.createQuery(
                         "SELECT b FROM Biglietto b WHERE b.dataValidazione IS NOT NULL " +
                                 "AND b.dataValidazione BETWEEN :dataInizio AND :dataFine", Biglietto.class)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Biglietto.GRAFO_STAMPA))
                 .setParameter("dataInizio", dataInizio)
                 .setParameter("dataFine", dataFine)
-                .getResultList();
+                .getResultList());
+    }
+
+    public long streamIdBigliettiByPeriodo(LocalDate dataInizio, LocalDate dataFine, LongConsumer consumatore) {
+        return uow.scorri(ID_PER_PERIODO, Long.class,
+                Map.of("dataInizio", dataInizio, "dataFine", dataFine), consumatore::accept);
+    }
+
+    public long streamIdBigliettiByPuntoEmissioneAndPeriodo(Long puntoEmissioneId, LocalDate dataInizio, LocalDate dataFine, LongConsumer consumatore) {
+        return uow.scorri(ID_PER_PUNTO_E_PERIODO, Long.class,
+                Map.of("puntoId", puntoEmissioneId, "dataInizio", dataInizio, "dataFine", dataFine), consumatore::accept);
+    }
+
+    public long streamIdBigliettiVidimatiByMezzo(Long mezzoId, LocalDate dataInizio, LocalDate dataFine, LongConsumer consumatore) {
+        return uow.scorri("SELECT b.id FROM Biglietto b " +
+                        "WHERE b.mezzoValidante.id = :mezzoId " +
+                        "AND b.dataValidazione BETWEEN :dataInizio AND :dataFine", Long.class,
+                Map.of("mezzoId", mezzoId, "dataInizio", dataInizio, "dataFine", dataFine), consumatore::accept);
+    }
+
+    public long streamIdBigliettiVidimatiByPeriodo(LocalDate dataInizio, LocalDate dataFine, LongConsumer consumatore) {
+        return uow.scorri("SELECT b.id FROM Biglietto b WHERE b.dataValidazione BETWEEN :dataInizio AND :dataFine", Long.class,
+                Map.of("dataInizio", dataInizio, "dataFine", dataFine), consumatore::accept);
+    }
+
+    private TotaliPeriodo totali(String jpql, LocalDate dataInizio, LocalDate dataFine, int timeoutMillis,
+                                 Annullamento annullamento) {
+        Object[] riga = uow.inLettura(em -> annullamento.esegui(em.unwrap(Session.class), session ->
+                session.createSelectionQuery(jpql, Object[].class)
+                        .setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, timeoutMillis)
+                        .setParameter("dataInizio", dataInizio)
+                        .setParameter("dataFine", dataFine)
+                        .getSingleResult()));
+        return new TotaliPeriodo(((Number) riga[0]).longValue(), ((Number) riga[1]).doubleValue());
+    }
+
+    public long caricaRegistro() {
+        long[] massimo = {0};
+        long emessi = uow.scorri("SELECT b.id FROM Biglietto b", Long.class, Map.of(), id -> {
+            registro.registraEmissione(id);
+            massimo[0] = Math.max(massimo[0], id);
+        });
+        uow.scorri("SELECT b.id FROM Biglietto b WHERE b.dataValidazione IS NOT NULL", Long.class, Map.of(),
+                registro::registraValidazione);
+        registro.caricamentoCompletato(massimo[0]);
+        return emessi;
+    }
+
+    public RegistroBiglietti getRegistro() {
+        return registro;
+    }
+
+    private void registra(Biglietto biglietto) {
+        if (biglietto.getId() == 0) {
+            return;
+        }
+        registro.registraEmissione(biglietto.getId());
+        if (biglietto.getDataValidazione() != null) {
+            registro.registraValidazione(biglietto.getId());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package dao;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+class CopiaBulk {
+
+    private static final int RIGHE_PER_SCRITTURA = 1_000;
+
+    private CopiaBulk() {
+    }
+
+    static <T> long copia(UnitOfWork uow, String comandoCopy, String sequenza, int allocazione,
+                          Collection<T> righe, BiFunction<Long, T, String> formattaRiga,
+                          Consumer<EntityManager> dopoCopia) {
+        return uow.inTransazione(em -> {
+            long[] copiate = {0};
+            em.unwrap(Session.class).doWork(connection -> {
+                long[] blocchi = allocaBlocchi(connection, sequenza, righe.size() / allocazione + 2);
+                CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(comandoCopy);
+                try {
+                    int blocco = 0;
+                    long prossimoId = 0;
+                    long ultimoId = -1;
+                    StringBuilder buffer = new StringBuilder();
+                    int inBuffer = 0;
+                    for (T riga : righe) {
+                        if (prossimoId > ultimoId) {
+                            ultimoId = blocchi[blocco++];
+                            prossimoId = Math.max(1, ultimoId - allocazione + 1);
+                        }
+                        buffer.append(formattaRiga.apply(prossimoId++, riga)).append('\n');
+                        if (++inBuffer == RIGHE_PER_SCRITTURA) {
+                            scrivi(copyIn, buffer);
+                            inBuffer = 0;
+                        }
+                    }
+                    scrivi(copyIn, buffer);
+                    copiate[0] = copyIn.endCopy();
+                } finally {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                }
+            });
+            dopoCopia.accept(em);
+            return copiate[0];
+        });
+    }
+
+    static String campo(Object valore) {
+        return valore == null ? "" : valore.toString();
+    }
+
+    private static long[] allocaBlocchi(Connection connection, String sequenza, int quanti) throws SQLException {
+        long[] blocchi = new long[quanti];
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT nextval(?) FROM generate_series(1, ?)")) {
+            statement.setString(1, sequenza);
+            statement.setInt(2, quanti);
+            try (ResultSet rs = statement.executeQuery()) {
+                for (int i = 0; rs.next(); i++) {
+                    blocchi[i] = rs.getLong(1);
+                }
+            }
+        }
+        return blocchi;
+    }
+
+    private static void scrivi(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        byte[] dati = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(dati, 0, dati.length);
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,84 @@
+package dao;
+
+import dto.CruscottoVendite;
+import enums.TipoAbbonamento;
+import enums.TipoProdotto;
+import org.hibernate.Session;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CruscottoDAO {
+
+    // una sola scansione per sezione: i totali e i dettagli escono dagli stessi GROUPING SETS
+    static final String CRUSCOTTO =
+            "SELECT 'VENDITE', v.prodotto, v.id_punto_emissione, SUM(v.quantita), SUM(v.incasso), " +
+                    "GROUPING(v.id_punto_emissione) " +
+                    "FROM vendite_giornaliere v WHERE v.giorno BETWEEN :dataInizio AND :dataFine " +
+                    "GROUP BY GROUPING SETS ((v.prodotto), (v.prodotto, v.id_punto_emissione)) " +
+                    "UNION ALL " +
+                    "SELECT 'VALIDAZIONI', NULL, b.id_mezzo_validante, COUNT(*), SUM(b.prezzo), " +
+                    "GROUPING(b.id_mezzo_validante) " +
+                    "FROM biglietto b WHERE b.\"Data validazione\" BETWEEN :dataInizio AND :dataFine " +
+                    "GROUP BY GROUPING SETS ((), (b.id_mezzo_validante))";
+
+    private final UnitOfWork uow;
+
+    public CruscottoDAO(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    public CruscottoVendite cruscotto(LocalDate dataInizio, LocalDate dataFine) {
+        List<Object[]> righe = uow.inLettura(em -> em.unwrap(Session.class).createNativeQuery(CRUSCOTTO, Object[].class)
+                .setParameter("dataInizio", dataInizio)
+                .setParameter("dataFine", dataFine)
+                .getResultList());
+
+        long bigliettiEmessi = 0;
+        long bigliettiValidati = 0;
+        long abbonamentiEmessi = 0;
+        double incasso = 0;
+        Map<Long, Long> bigliettiPerPunto = new TreeMap<>();
+        Map<Long, Long> abbonamentiPerPunto = new TreeMap<>();
+        Map<Long, Double> incassoPerPunto = new TreeMap<>();
+        Map<Long, Long> validazioniPerMezzo = new TreeMap<>();
+        Map<TipoAbbonamento, Long> abbonamentiPerTipo = new EnumMap<>(TipoAbbonamento.class);
+
+        for (Object[] riga : righe) {
+            Long riferimento = riga[2] != null ? ((Number) riga[2]).longValue() : null;
+            long quantita = ((Number) riga[3]).longValue();
+            double importo = riga[4] != null ? ((Number) riga[4]).doubleValue() : 0;
+            boolean totale = ((Number) riga[5]).intValue() == 1;
+
+            if ("VALIDAZIONI".equals(riga[0])) {
+                if (totale) {
+                    bigliettiValidati = quantita;
+                } else if (riferimento != null) {
+                    validazioniPerMezzo.put(riferimento, quantita);
+                }
+                continue;
+            }
+            TipoProdotto prodotto = TipoProdotto.valueOf((String) riga[1]);
+            if (!totale) {
+                Map<Long, Long> perPunto = prodotto == TipoProdotto.BIGLIETTO ? bigliettiPerPunto : abbonamentiPerPunto;
+                perPunto.merge(riferimento, quantita, Long::sum);
+                incassoPerPunto.merge(riferimento, importo, Double::sum);
+                continue;
+            }
+            incasso += importo;
+            switch (prodotto) {
+                case BIGLIETTO -> bigliettiEmessi = quantita;
+                case ABBONAMENTO_SETTIMANALE -> abbonamentiPerTipo.put(TipoAbbonamento.SETTIMANALE, quantita);
+                case ABBONAMENTO_MENSILE -> abbonamentiPerTipo.put(TipoAbbonamento.MENSILE, quantita);
+            }
+            if (prodotto != TipoProdotto.BIGLIETTO) {
+                abbonamentiEmessi += quantita;
+            }
+        }
+        return new CruscottoVendite(dataInizio, dataFine, bigliettiEmessi, bigliettiValidati, abbonamentiEmessi, incasso,
+                bigliettiPerPunto, abbonamentiPerPunto, incassoPerPunto, validazioniPerMezzo, abbonamentiPerTipo);
+    }
+}
@@ -0,0 +1,54 @@
+package dao;
+
+import dto.Pagina;
+import exceptions.InvalidDataException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+final class Cursore {
+
+    static final long INIZIO = Long.MIN_VALUE;
+    static final int PAGINA_MASSIMA = 1_000;
+
+    private Cursore() {
+    }
+
+    static long decodifica(String cursore) {
+        if (cursore == null || cursore.isEmpty()) {
+            return INIZIO;
+        }
+        try {
+            byte[] byteCursore = Base64.getUrlDecoder().decode(cursore);
+            if (byteCursore.length != Long.BYTES) {
+                throw new InvalidDataException("Cursore di paginazione non valido: " + cursore);
+            }
+            return ByteBuffer.wrap(byteCursore).getLong();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException("Cursore di paginazione non valido: " + cursore);
+        }
+    }
+
+    static String codifica(long ultimaChiave) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(ultimaChiave).array());
+    }
+
+    static int righeDaLeggere(int dimensione) {
+        if (dimensione < 1 || dimensione > PAGINA_MASSIMA) {
+            throw new InvalidDataException("La dimensione della pagina deve essere tra 1 e " + PAGINA_MASSIMA);
+        }
+        return dimensione + 1;
+    }
+
+    // la query legge una riga in più della pagina: se arriva, esiste una pagina successiva
+    static <T> Pagina<T> pagina(List<T> righe, int dimensione, ToLongFunction<T> chiave) {
+        if (righe.size() <= dimensione) {
+            return new Pagina<>(righe, null);
+        }
+        List<T> elementi = List.copyOf(righe.subList(0, dimensione));
+        return new Pagina<>(elementi, codifica(chiave.applyAsLong(elementi.get(dimensione - 1))));
+    }
+}
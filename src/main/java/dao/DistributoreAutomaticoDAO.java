@@ -1,46 +1,46 @@
 package dao;
 
 import entities.DistributoreAutomatico;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
 
 public class DistributoreAutomaticoDAO {
 
-    private final EntityManager em;
+    private final UnitOfWork uow;
+    private final PuntoDiEmissioneDAO puntoDiEmissioneDAO;
 
-    public DistributoreAutomaticoDAO(EntityManager em) {
-        this.em = em;
+    public DistributoreAutomaticoDAO(UnitOfWork uow, PuntoDiEmissioneDAO puntoDiEmissioneDAO) {
+        this.uow = uow;
+        this.puntoDiEmissioneDAO = puntoDiEmissioneDAO;
     }
 
     public void save(DistributoreAutomatico newDistributore) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.persist(newDistributore);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.persist(newDistributore));
+        puntoDiEmissioneDAO.memorizza(newDistributore);
    /*     System.out.println("Distributore Automatico salvato con successo - ID Punto Emissione: " +
                 newDistributore.getIdPuntoEmissione() + " - Indirizzo: " + newDistributore.getIndirizzo());*/
     }
 
     public DistributoreAutomatico findById(long id) {
-        return em.find(DistributoreAutomatico.class, id);
+        return puntoDiEmissioneDAO.findById(id) instanceof DistributoreAutomatico distributore ? distributore : null;
     }
 
     public void update(DistributoreAutomatico distributore) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.merge(distributore);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.merge(distributore));
+        puntoDiEmissioneDAO.invalida(distributore.getIdPuntoEmissione());
         System.out.println("Distributore aggiornato con successo");
     }
 
     public void delete(long id) {
-        DistributoreAutomatico found = findById(id);
-        if (found != null) {
-            EntityTransaction transaction = em.getTransaction();
-            transaction.begin();
+        boolean eliminato = uow.inTransazione(em -> {
+            DistributoreAutomatico found = em.find(DistributoreAutomatico.class, id);
+            if (found == null) {
+                return false;
+            }
             em.remove(found);
-            transaction.commit();
+            return true;
+        });
+        puntoDiEmissioneDAO.invalida(id);
+        if (eliminato) {
             System.out.println("Distributore eliminato con successo");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package dao;
+
+import cache.DizionarioFermate;
+import entities.Fermata;
+import exceptions.InvalidDataException;
+
+import java.util.Map;
+
+public class FermataDAO {
+
+    private static final String INSERISCI =
+            "INSERT INTO fermata (nome) VALUES (:nome) ON CONFLICT (nome) DO NOTHING";
+
+    private final UnitOfWork uow;
+    private final DizionarioFermate dizionario;
+
+    public FermataDAO(UnitOfWork uow, DizionarioFermate dizionario) {
+        this.uow = uow;
+        this.dizionario = dizionario;
+    }
+
+    public Fermata fermata(String nome) {
+        String normalizzato = nome != null ? nome.strip() : "";
+        if (normalizzato.isEmpty()) {
+            throw new InvalidDataException("Il nome della fermata non può essere vuoto!");
+        }
+        Fermata fermata = dizionario.trova(normalizzato);
+        if (fermata != null) {
+            return fermata;
+        }
+        fermata = uow.inTransazione(em -> {
+            em.createNativeQuery(INSERISCI).setParameter("nome", normalizzato).executeUpdate();
+            return em.createQuery("SELECT f FROM Fermata f WHERE f.nome = :nome", Fermata.class)
+                    .setParameter("nome", normalizzato)
+                    .getSingleResult();
+        });
+        dizionario.registra(fermata);
+        return fermata;
+    }
+
+    public Fermata findByNome(String nome) {
+        return nome != null ? dizionario.trova(nome.strip()) : null;
+    }
+
+    public long caricaDizionario() {
+        return uow.scorri("SELECT f FROM Fermata f", Fermata.class, Map.of(), dizionario::registra);
+    }
+
+    public DizionarioFermate getDizionario() {
+        return dizionario;
+    }
+}
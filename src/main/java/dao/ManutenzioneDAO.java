@@ -1,23 +1,26 @@
 package dao;
 
+import cache.DisponibilitaFlotta;
+import dto.Pagina;
 import entities.Manutenzione;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
-import java.util.List;
 
 public class ManutenzioneDAO {
 
-    private final EntityManager em;
+    static final String PAGINA_PER_MEZZO =
+            "SELECT m FROM Manutenzione m WHERE m.mezzo.id = :mezzoId AND m.idManutenzione > :dopo " +
+                    "ORDER BY m.idManutenzione";
 
-    public ManutenzioneDAO(EntityManager em) {
-        this.em = em;
+    private final UnitOfWork uow;
+    private final DisponibilitaFlotta disponibilita;
+
+    public ManutenzioneDAO(UnitOfWork uow, DisponibilitaFlotta disponibilita) {
+        this.uow = uow;
+        this.disponibilita = disponibilita;
     }
 
     public void save(Manutenzione newManutenzione) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.persist(newManutenzione);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.persist(newManutenzione));
+        indicizza(newManutenzione);
      /*   System.out.println("Nuova Manutenzione ID: " +
                 newManutenzione.getIdManutenzione() +
                 ", del Mezzo " +
@@ -26,32 +29,50 @@ public class ManutenzioneDAO {
     }
 
     public Manutenzione findMaintenanceById(long idManutenzione) {
-        return em.find(Manutenzione.class, idManutenzione);
+        return uow.inLettura(em -> em.find(Manutenzione.class, idManutenzione));
     }
 
     public void update(Manutenzione manutenzione) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.merge(manutenzione);
-        transaction.commit();
+        Long mezzoPrecedente = uow.inTransazione(em -> {
+            Manutenzione precedente = em.find(Manutenzione.class, manutenzione.getIdManutenzione());
+            em.merge(manutenzione);
+            return precedente != null && precedente.getMezzo() != null ? precedente.getMezzo().getId() : null;
+        });
+        if (mezzoPrecedente != null) {
+            disponibilita.rimuoviManutenzione(mezzoPrecedente, manutenzione.getIdManutenzione());
+        }
+        indicizza(manutenzione);
         System.out.println("Manutenzione aggiornata");
     }
 
     public void delete(long id) {
-        Manutenzione found = findMaintenanceById(id);
-        if (found != null) {
-            EntityTransaction transaction = em.getTransaction();
-            transaction.begin();
-            em.remove(found);
-            transaction.commit();
+        Manutenzione eliminata = uow.inTransazione(em -> {
+            Manutenzione found = em.find(Manutenzione.class, id);
+            if (found != null) {
+                em.remove(found);
+            }
+            return found;
+        });
+        if (eliminata != null) {
+            if (eliminata.getMezzo() != null) {
+                disponibilita.rimuoviManutenzione(eliminata.getMezzo().getId(), id);
+            }
             System.out.println("La manutenzione " + id + " è stata eliminata con successo");
         }
     }
 
-    public List<Manutenzione> findByMezzo(long mezzoId) {
-        return em.createQuery(
-                        "SELECT m FROM Manutenzione m WHERE m.mezzo.id = :mezzoId", Manutenzione.class)
+    public Pagina<Manutenzione> findByMezzo(long mezzoId, String cursore, int dimensione) {
+        return Cursore.pagina(uow.inLettura(em -> em.createQuery(PAGINA_PER_MEZZO, Manutenzione.class)
                 .setParameter("mezzoId", mezzoId)
-                .getResultList();
+                .setParameter("dopo", Cursore.decodifica(cursore))
+                .setMaxResults(Cursore.righeDaLeggere(dimensione))
+                .getResultList()), dimensione, Manutenzione::getIdManutenzione);
+    }
+
+    private void indicizza(Manutenzione manutenzione) {
+        if (manutenzione.getIdManutenzione() != null && manutenzione.getMezzo() != null) {
+            disponibilita.aggiungiManutenzione(manutenzione.getMezzo().getId(), manutenzione.getIdManutenzione(),
+                    manutenzione.getDataInizio(), manutenzione.getDataFine());
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,62 +1,110 @@
 package dao;
 
+import cache.CacheLimitata;
+import cache.DisponibilitaFlotta;
+import dto.Pagina;
 import entities.Mezzo;
 import enums.StatoMezzo;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
+import enums.TipoMezzo;
 
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class MezzoDAO {
 
-    private final EntityManager em;
+    private static final int CAPACITA_CACHE = 1024;
 
-    public MezzoDAO(EntityManager em) {
-        this.em = em;
+    static final String PER_ID = "SELECT m FROM Mezzo m WHERE m.id IN :ids ORDER BY m.id";
+
+    private final UnitOfWork uow;
+    private final CacheLimitata<Long, Mezzo> cache = new CacheLimitata<>("Mezzo", CAPACITA_CACHE, Mezzo::copia);
+    private final DisponibilitaFlotta disponibilita;
+
+    public MezzoDAO(UnitOfWork uow, DisponibilitaFlotta disponibilita) {
+        this.uow = uow;
+        this.disponibilita = disponibilita;
     }
 
     public void save(Mezzo newMezzo) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.persist(newMezzo);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.persist(newMezzo));
+        cache.put(newMezzo.getId(), newMezzo);
+        disponibilita.registraMezzo(newMezzo.getId(), newMezzo.getTipoMezzo(), newMezzo.getCapienza());
        /* System.out.println("Mezzo " + newMezzo + " salvato con successo");*/
     }
 
     public Mezzo findById(long id) {
-        return em.find(Mezzo.class, id);
+        return cache.getOppureCarica(id, chiave -> uow.inLettura(em -> em.find(Mezzo.class, chiave)));
     }
 
     public void update(Mezzo mezzo) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.merge(mezzo);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.merge(mezzo));
+        cache.invalida(mezzo.getId());
+        disponibilita.registraMezzo(mezzo.getId(), mezzo.getTipoMezzo(), mezzo.getCapienza());
         System.out.println("Mezzo aggiornato con successo");
     }
 
     public void delete(long id) {
-        Mezzo found = findById(id);
-        if (found != null) {
-            EntityTransaction transaction = em.getTransaction();
-            transaction.begin();
+        boolean eliminato = uow.inTransazione(em -> {
+            Mezzo found = em.find(Mezzo.class, id);
+            if (found == null) {
+                return false;
+            }
             em.remove(found);
-            transaction.commit();
+            return true;
+        });
+        cache.invalida(id);
+        disponibilita.rimuoviMezzo(id);
+        if (eliminato) {
             System.out.println("Mezzo eliminato con successo");
         }
     }
 
-    public List<Mezzo> findByStato(StatoMezzo stato) {
-        return em.createQuery("SELECT m FROM Mezzo m WHERE m.statoMezzo = :stato", Mezzo.class)
-                .setParameter("stato", stato)
-                .getResultList();
+    public CacheLimitata<Long, Mezzo> getCache() {
+        return cache;
+    }
+
+    public DisponibilitaFlotta getDisponibilita() {
+        return disponibilita;
+    }
+
+    public Pagina<Mezzo> findByStato(StatoMezzo stato, String cursore, int dimensione) {
+        return findByStato(stato, LocalDate.now(), cursore, dimensione);
+    }
+
+    public Pagina<Mezzo> findByStato(StatoMezzo stato, LocalDate giorno, String cursore, int dimensione) {
+        long[] ids = disponibilita.perStato(stato, giorno, Cursore.decodifica(cursore), Cursore.righeDaLeggere(dimensione));
+        return Cursore.pagina(findAllById(ids), dimensione, Mezzo::getId);
+    }
+
+    public List<Mezzo> findDisponibili(TipoMezzo tipo, LocalDate inizio, LocalDate fine) {
+        return findAllById(disponibilita.disponibili(tipo, inizio, fine));
     }
 
     public boolean isInManutenzione(long mezzoId) {
-        Long count = em.createQuery(
-                        "SELECT COUNT(man) FROM Manutenzione man WHERE man.mezzo.id = :mezzoId ", Long.class)
-                .setParameter("mezzoId", mezzoId)
-                .getSingleResult();
-        return count > 0;
+        return isInManutenzione(mezzoId, LocalDate.now());
+    }
+
+    public boolean isInManutenzione(long mezzoId, LocalDate giorno) {
+        return disponibilita.isInManutenzione(mezzoId, giorno);
+    }
+
+    public long caricaDisponibilita() {
+        long mezzi = uow.scorri("SELECT m.id, m.tipoMezzo, m.capienza FROM Mezzo m", Object[].class, Map.of(),
+                riga -> disponibilita.registraMezzo((Long) riga[0], (TipoMezzo) riga[1], (Integer) riga[2]));
+        uow.scorri("SELECT man.mezzo.id, man.idManutenzione, man.dataInizio, man.dataFine FROM Manutenzione man " +
+                        "WHERE man.mezzo IS NOT NULL", Object[].class, Map.of(),
+                riga -> disponibilita.aggiungiManutenzione((Long) riga[0], (Long) riga[1], (LocalDate) riga[2], (LocalDate) riga[3]));
+        return mezzi;
+    }
+
+    private List<Mezzo> findAllById(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        return uow.inLettura(em -> em.createQuery(PER_ID, Mezzo.class)
+                .setParameter("ids", Arrays.stream(ids).boxed().toList())
+                .getResultList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,175 @@
+package dao;
+
+import exceptions.MigrazioneException;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public class MigrazioniSchema {
+
+    private static final String PERCORSO = "db/migrazioni/V%d.sql";
+    private static final long CHIAVE_LOCK = 0x62773162L;
+    // istruzioni eseguite prima di uno script non ancora applicato, fuori dal checksum: su un database nuovo
+    // hbm2ddl crea la tratta già con le fermate per id, mentre V2 indicizza le colonne per nome che V5 sposta ed elimina
+    private static final Map<Integer, List<String>> PREPARAZIONI = Map.of(2, List.of(
+            "ALTER TABLE tratta ADD COLUMN IF NOT EXISTS partenza varchar(255)",
+            "ALTER TABLE tratta ADD COLUMN IF NOT EXISTS arrivo varchar(255)"));
+
+    private static final String CREA_TABELLA =
+            "CREATE TABLE IF NOT EXISTS schema_versione (" +
+                    "versione integer PRIMARY KEY, " +
+                    "descrizione varchar(255) NOT NULL, " +
+                    "checksum bigint NOT NULL, " +
+                    "applicata_il timestamp NOT NULL DEFAULT now())";
+
+    private final UnitOfWork uow;
+
+    public MigrazioniSchema(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    public int applica() {
+        uow.eseguiInTransazione(em -> em.createNativeQuery(CREA_TABELLA).executeUpdate());
+        int applicate = 0;
+        for (int versione = 1; ; versione++) {
+            String script = leggi(versione);
+            if (script == null) {
+                return applicate;
+            }
+            if (applica(versione, script)) {
+                applicate++;
+            }
+        }
+    }
+
+    public int versioneCorrente() {
+        return uow.inLettura(em -> em.unwrap(Session.class)
+                .createNativeQuery("SELECT COALESCE(MAX(versione), 0) FROM schema_versione", Integer.class)
+                .getSingleResult());
+    }
+
+    private boolean applica(int versione, String script) {
+        long checksum = checksum(script);
+        List<String> istruzioni = istruzioni(versione, script);
+        return uow.inTransazione(em -> {
+            em.createNativeQuery("SELECT 1 FROM pg_advisory_xact_lock(:chiave)")
+                    .setParameter("chiave", CHIAVE_LOCK)
+                    .getSingleResult();
+            List<Long> registrata = em.unwrap(Session.class)
+                    .createNativeQuery("SELECT checksum FROM schema_versione WHERE versione = :versione", Long.class)
+                    .setParameter("versione", versione)
+                    .getResultList();
+            if (!registrata.isEmpty()) {
+                if (registrata.get(0) != checksum) {
+                    throw new MigrazioneException(versione, "lo script è stato modificato dopo essere stato applicato");
+                }
+                return false;
+            }
+            em.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (String istruzione : PREPARAZIONI.getOrDefault(versione, List.of())) {
+                        statement.execute(istruzione);
+                    }
+                    for (String istruzione : istruzioni) {
+                        statement.execute(istruzione);
+                    }
+                }
+            });
+            em.createNativeQuery("INSERT INTO schema_versione (versione, descrizione, checksum) " +
+                            "VALUES (:versione, :descrizione, :checksum)")
+                    .setParameter("versione", versione)
+                    .setParameter("descrizione", descrizione(script))
+                    .setParameter("checksum", checksum)
+                    .executeUpdate();
+            System.out.println("Migrazione V" + versione + " applicata: " + descrizione(script));
+            return true;
+        });
+    }
+
+    private static String leggi(int versione) {
+        try (InputStream in = MigrazioniSchema.class.getClassLoader().getResourceAsStream(String.format(PERCORSO, versione))) {
+            return in != null ? new String(in.readAllBytes(), StandardCharsets.UTF_8) : null;
+        } catch (IOException e) {
+            throw new MigrazioneException(versione, e.getMessage());
+        }
+    }
+
+    // divide lo script sui ';' di primo livello: quelli dentro stringhe, identificatori quotati,
+    // corpi $tag$...$tag$ e commenti non chiudono l'istruzione
+    static List<String> istruzioni(int versione, String script) {
+        List<String> istruzioni = new ArrayList<>();
+        StringBuilder corrente = new StringBuilder();
+        int i = 0;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            int fine;
+            if (c == '\'' || c == '"') {
+                fine = chiusura(versione, script, i + 1, String.valueOf(c));
+                corrente.append(script, i, fine);
+            } else if (c == '$' && delimitatoreDollaro(script, i) != null) {
+                String delimitatore = delimitatoreDollaro(script, i);
+                fine = chiusura(versione, script, i + delimitatore.length(), delimitatore);
+                corrente.append(script, i, fine);
+            } else if (script.startsWith("--", i)) {
+                int a = script.indexOf('\n', i);
+                fine = a < 0 ? script.length() : a;
+            } else if (script.startsWith("/*", i)) {
+                fine = chiusura(versione, script, i + 2, "*/");
+                corrente.append(' ');
+            } else if (c == ';') {
+                aggiungi(istruzioni, corrente);
+                fine = i + 1;
+            } else {
+                corrente.append(c);
+                fine = i + 1;
+            }
+            i = fine;
+        }
+        aggiungi(istruzioni, corrente);
+        return istruzioni;
+    }
+
+    private static int chiusura(int versione, String script, int da, String delimitatore) {
+        int a = script.indexOf(delimitatore, da);
+        if (a < 0) {
+            throw new MigrazioneException(versione, delimitatore + " non chiuso");
+        }
+        return a + delimitatore.length();
+    }
+
+    private static String delimitatoreDollaro(String script, int da) {
+        int i = da + 1;
+        while (i < script.length() && (Character.isLetterOrDigit(script.charAt(i)) || script.charAt(i) == '_')) {
+            i++;
+        }
+        if (i >= script.length() || script.charAt(i) != '$' || (i > da + 1 && Character.isDigit(script.charAt(da + 1)))) {
+            return null;
+        }
+        return script.substring(da, i + 1);
+    }
+
+    private static void aggiungi(List<String> istruzioni, StringBuilder corrente) {
+        if (!corrente.toString().isBlank()) {
+            istruzioni.add(corrente.toString().strip());
+        }
+        corrente.setLength(0);
+    }
+
+    private static String descrizione(String script) {
+        String prima = script.lines().findFirst().orElse("").strip();
+        return prima.startsWith("--") ? prima.substring(2).strip() : "";
+    }
+
+    private static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -1,71 +1,236 @@
 package dao;
 
+import dto.Pagina;
+import dto.StatistichePercorrenza;
+import entities.AggregatoPercorrenza;
+import entities.AggregatoPercorrenzaId;
 import entities.PercorrenzaMedia;
+import enums.AmbitoPercorrenza;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
+import org.hibernate.Session;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class PercorrenzaMediaDAO {
 
-    private final EntityManager em;
+    private static final String SECONDI = "CAST(EXTRACT(EPOCH FROM pm.tempoEffettivo) AS integer)";
 
-    public PercorrenzaMediaDAO(EntityManager em) {
-        this.em = em;
+    private static final String UPSERT =
+            "INSERT INTO percorrenze_aggregate (ambito, id_riferimento, campioni, somma_secondi, minimo_secondi, massimo_secondi) " +
+                    "VALUES (:ambito, :riferimento, 1, :secondi, :secondi, :secondi) " +
+                    "ON CONFLICT (ambito, id_riferimento) DO UPDATE SET " +
+                    "campioni = percorrenze_aggregate.campioni + 1, " +
+                    "somma_secondi = percorrenze_aggregate.somma_secondi + EXCLUDED.somma_secondi, " +
+                    "minimo_secondi = LEAST(percorrenze_aggregate.minimo_secondi, EXCLUDED.minimo_secondi), " +
+                    "massimo_secondi = GREATEST(percorrenze_aggregate.massimo_secondi, EXCLUDED.massimo_secondi)";
+
+    private static final String RICALCOLO =
+            "INSERT INTO percorrenze_aggregate (ambito, id_riferimento, campioni, somma_secondi, minimo_secondi, massimo_secondi) " +
+                    "SELECT :ambito, :riferimento, COUNT(*), SUM(" + SECONDI + "), MIN(" + SECONDI + "), MAX(" + SECONDI + ") " +
+                    "FROM tempoMedioPercorrenza pm WHERE pm.%s = :riferimento AND pm.tempoEffettivo IS NOT NULL " +
+                    "HAVING COUNT(*) > 0";
+
+    private static final String RICOSTRUZIONE =
+            "INSERT INTO percorrenze_aggregate (ambito, id_riferimento, campioni, somma_secondi, minimo_secondi, massimo_secondi) " +
+                    "SELECT 'TRATTA', pm.idtratta, COUNT(*), SUM(" + SECONDI + "), MIN(" + SECONDI + "), MAX(" + SECONDI + ") " +
+                    "FROM tempoMedioPercorrenza pm WHERE pm.idtratta IS NOT NULL AND pm.tempoEffettivo IS NOT NULL " +
+                    "GROUP BY pm.idtratta " +
+                    "UNION ALL " +
+                    "SELECT 'MEZZO', pm.id_mezzo, COUNT(*), SUM(" + SECONDI + "), MIN(" + SECONDI + "), MAX(" + SECONDI + ") " +
+                    "FROM tempoMedioPercorrenza pm WHERE pm.id_mezzo IS NOT NULL AND pm.tempoEffettivo IS NOT NULL " +
+                    "GROUP BY pm.id_mezzo";
+
+    private static final String PERCENTILI =
+            "SELECT percentile_cont(0.5) WITHIN GROUP (ORDER BY " + SECONDI + "), " +
+                    "percentile_cont(0.9) WITHIN GROUP (ORDER BY " + SECONDI + "), " +
+                    "percentile_cont(0.95) WITHIN GROUP (ORDER BY " + SECONDI + ") " +
+                    "FROM tempoMedioPercorrenza pm WHERE pm.%s = :riferimento AND pm.tempoEffettivo IS NOT NULL";
+
+    private static final String STATISTICHE_TRATTE =
+            "SELECT pm.idtratta, COUNT(*), AVG(" + SECONDI + "), MIN(" + SECONDI + "), MAX(" + SECONDI + "), " +
+                    "percentile_cont(0.5) WITHIN GROUP (ORDER BY " + SECONDI + "), " +
+                    "percentile_cont(0.9) WITHIN GROUP (ORDER BY " + SECONDI + "), " +
+                    "percentile_cont(0.95) WITHIN GROUP (ORDER BY " + SECONDI + ") " +
+                    "FROM tempoMedioPercorrenza pm WHERE pm.idtratta IS NOT NULL AND pm.tempoEffettivo IS NOT NULL " +
+                    "GROUP BY pm.idtratta ORDER BY pm.idtratta";
+
+    static final String PAGINA = "SELECT pm FROM PercorrenzaMedia pm WHERE pm.id > :dopo ORDER BY pm.id";
+
+    private final UnitOfWork uow;
+
+    public PercorrenzaMediaDAO(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     public void save(PercorrenzaMedia newPercorrenzaMedia) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.persist(newPercorrenzaMedia);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> {
+            em.persist(newPercorrenzaMedia);
+            registra(em, newPercorrenzaMedia);
+        });
        /* System.out.println("La percorrenza media salvata con successo");*/
     }
 
     public PercorrenzaMedia findAvaragePathById(long id) {
-        return em.find(PercorrenzaMedia.class, id);
+        return uow.inLettura(em -> em.find(PercorrenzaMedia.class, id));
     }
 
     public void update(PercorrenzaMedia percorrenza) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.merge(percorrenza);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> {
+            Set<AggregatoPercorrenzaId> chiavi = new LinkedHashSet<>();
+            PercorrenzaMedia precedente = em.find(PercorrenzaMedia.class, percorrenza.getId());
+            if (precedente != null) {
+                chiavi.addAll(chiavi(precedente));
+            }
+            PercorrenzaMedia aggiornata = em.merge(percorrenza);
+            chiavi.addAll(chiavi(aggiornata));
+            em.flush();
+            chiavi.forEach(chiave -> ricalcola(em, chiave));
+        });
         System.out.println("Percorrenza media aggiornata");
     }
 
     public void delete(long id) {
-        PercorrenzaMedia found = findAvaragePathById(id);
-        if (found != null) {
-            EntityTransaction transaction = em.getTransaction();
-            transaction.begin();
+        boolean eliminata = uow.inTransazione(em -> {
+            PercorrenzaMedia found = em.find(PercorrenzaMedia.class, id);
+            if (found == null) {
+                return false;
+            }
+            List<AggregatoPercorrenzaId> chiavi = chiavi(found);
             em.remove(found);
-            transaction.commit();
+            em.flush();
+            chiavi.forEach(chiave -> ricalcola(em, chiave));
+            return true;
+        });
+        if (eliminata) {
             System.out.println("La percorrenza media " + id + " è stata eliminata con successo");
         }
     }
 
-    public List<PercorrenzaMedia> getAllPercorrenzeMedie() {
-        return em.createQuery("SELECT pm FROM PercorrenzaMedia pm", PercorrenzaMedia.class)
-                .getResultList();
+    public Pagina<PercorrenzaMedia> getAllPercorrenzeMedie(String cursore, int dimensione) {
+        return Cursore.pagina(uow.inLettura(em -> em.createQuery(PAGINA, PercorrenzaMedia.class)
+                .setParameter("dopo", Cursore.decodifica(cursore))
+                .setMaxResults(Cursore.righeDaLeggere(dimensione))
+                .getResultList()), dimensione, PercorrenzaMedia::getId);
     }
 
     public LocalTime calcolaTempoMedioEffettivo(Long trattaId) {
-        List<PercorrenzaMedia> percorrenze = em.createQuery(
-                        "SELECT pm FROM PercorrenzaMedia pm WHERE pm.tratta.id = :trattaId", PercorrenzaMedia.class)
-                .setParameter("trattaId", trattaId)
-                .getResultList();
+        return tempoMedio(AmbitoPercorrenza.TRATTA, trattaId);
+    }
+
+    public LocalTime calcolaTempoMedioEffettivoPerMezzo(Long mezzoId) {
+        return tempoMedio(AmbitoPercorrenza.MEZZO, mezzoId);
+    }
+
+    public StatistichePercorrenza statistichePerTratta(Long trattaId) {
+        return statistiche(AmbitoPercorrenza.TRATTA, trattaId);
+    }
+
+    public StatistichePercorrenza statistichePerMezzo(Long mezzoId) {
+        return statistiche(AmbitoPercorrenza.MEZZO, mezzoId);
+    }
+
+    public Map<Long, StatistichePercorrenza> statisticheTratte() {
+        List<Object[]> righe = uow.inLettura(em -> em.unwrap(Session.class).createNativeQuery(STATISTICHE_TRATTE, Object[].class)
+                .getResultList());
+        Map<Long, StatistichePercorrenza> statistiche = new LinkedHashMap<>();
+        for (Object[] riga : righe) {
+            statistiche.put(((Number) riga[0]).longValue(), new StatistichePercorrenza(((Number) riga[1]).longValue(),
+                    tempo(riga[2]), tempo(riga[3]), tempo(riga[4]), tempo(riga[5]), tempo(riga[6]), tempo(riga[7])));
+        }
+        return statistiche;
+    }
+
+    public void ricostruisci() {
+        uow.eseguiInTransazione(em -> {
+            em.createQuery("DELETE FROM AggregatoPercorrenza").executeUpdate();
+            em.createNativeQuery(RICOSTRUZIONE).executeUpdate();
+        });
+    }
 
-        if (percorrenze.isEmpty()) {
+    public void inizializza() {
+        long righe = uow.inLettura(em -> em.createQuery("SELECT COUNT(a) FROM AggregatoPercorrenza a", Long.class)
+                .getSingleResult());
+        if (righe == 0) {
+            ricostruisci();
+        }
+    }
+
+    private LocalTime tempoMedio(AmbitoPercorrenza ambito, Long riferimentoId) {
+        AggregatoPercorrenza aggregato = uow.inLettura(em ->
+                em.find(AggregatoPercorrenza.class, new AggregatoPercorrenzaId(ambito, riferimentoId)));
+        if (aggregato == null || aggregato.getCampioni() == 0) {
             return null;
         }
+        return LocalTime.ofSecondOfDay(aggregato.getSommaSecondi() / aggregato.getCampioni());
+    }
+
+    private StatistichePercorrenza statistiche(AmbitoPercorrenza ambito, Long riferimentoId) {
+        return uow.inLettura(em -> {
+            AggregatoPercorrenza aggregato = em.find(AggregatoPercorrenza.class, new AggregatoPercorrenzaId(ambito, riferimentoId));
+            if (aggregato == null || aggregato.getCampioni() == 0) {
+                return null;
+            }
+            Object[] percentili = em.unwrap(Session.class)
+                    .createNativeQuery(percentili(ambito), Object[].class)
+                    .setParameter("riferimento", riferimentoId)
+                    .getSingleResult();
+            return new StatistichePercorrenza(aggregato.getCampioni(),
+                    LocalTime.ofSecondOfDay(aggregato.getSommaSecondi() / aggregato.getCampioni()),
+                    LocalTime.ofSecondOfDay(aggregato.getMinimoSecondi()),
+                    LocalTime.ofSecondOfDay(aggregato.getMassimoSecondi()),
+                    tempo(percentili[0]), tempo(percentili[1]), tempo(percentili[2]));
+        });
+    }
+
+    private static void registra(EntityManager em, PercorrenzaMedia percorrenza) {
+        if (percorrenza.getTempoEffettivo() == null) {
+            return;
+        }
+        for (AggregatoPercorrenzaId chiave : chiavi(percorrenza)) {
+            em.createNativeQuery(UPSERT)
+                    .setParameter("ambito", chiave.getAmbito().name())
+                    .setParameter("riferimento", chiave.getIdRiferimento())
+                    .setParameter("secondi", percorrenza.getTempoEffettivo().toSecondOfDay())
+                    .executeUpdate();
+        }
+    }
+
+    private static void ricalcola(EntityManager em, AggregatoPercorrenzaId chiave) {
+        em.createQuery("DELETE FROM AggregatoPercorrenza a WHERE a.id.ambito = :ambito AND a.id.idRiferimento = :riferimento")
+                .setParameter("ambito", chiave.getAmbito())
+                .setParameter("riferimento", chiave.getIdRiferimento())
+                .executeUpdate();
+        em.createNativeQuery(String.format(RICALCOLO, colonna(chiave.getAmbito())))
+                .setParameter("ambito", chiave.getAmbito().name())
+                .setParameter("riferimento", chiave.getIdRiferimento())
+                .executeUpdate();
+    }
 
-        long totalSecondi = 0;
-        for (PercorrenzaMedia pm : percorrenze) {
-            totalSecondi += pm.getTempoEffettivo().toSecondOfDay();
+    private static List<AggregatoPercorrenzaId> chiavi(PercorrenzaMedia percorrenza) {
+        List<AggregatoPercorrenzaId> chiavi = new ArrayList<>(2);
+        if (percorrenza.getTratta() != null) {
+            chiavi.add(new AggregatoPercorrenzaId(AmbitoPercorrenza.TRATTA, percorrenza.getTratta().getId()));
         }
+        if (percorrenza.getIdMezzo() != null) {
+            chiavi.add(new AggregatoPercorrenzaId(AmbitoPercorrenza.MEZZO, percorrenza.getIdMezzo()));
+        }
+        return chiavi;
+    }
+
+    static String percentili(AmbitoPercorrenza ambito) {
+        return String.format(PERCENTILI, colonna(ambito));
+    }
+
+    private static String colonna(AmbitoPercorrenza ambito) {
+        return ambito == AmbitoPercorrenza.TRATTA ? "idtratta" : "id_mezzo";
+    }
 
-        long averageSeconds = totalSecondi / percorrenze.size();
-        return LocalTime.ofSecondOfDay(averageSeconds);
+    private static LocalTime tempo(Object secondi) {
+        return secondi != null ? LocalTime.ofSecondOfDay(Math.round(((Number) secondi).doubleValue())) : null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package dao;
+
+import cache.CacheLimitata;
+import entities.PuntoDiEmissione;
+
+public class PuntoDiEmissioneDAO {
+
+    private static final int CAPACITA_CACHE = 256;
+
+    private final UnitOfWork uow;
+    private final CacheLimitata<Long, PuntoDiEmissione> cache = new CacheLimitata<>("PuntoDiEmissione", CAPACITA_CACHE, PuntoDiEmissione::copia);
+
+    public PuntoDiEmissioneDAO(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    public PuntoDiEmissione findById(long id) {
+        return cache.getOppureCarica(id, chiave -> uow.inLettura(em -> em.find(PuntoDiEmissione.class, chiave)));
+    }
+
+    public boolean esiste(long id) {
+        return findById(id) != null;
+    }
+
+    public CacheLimitata<Long, PuntoDiEmissione> getCache() {
+        return cache;
+    }
+
+    void memorizza(PuntoDiEmissione punto) {
+        if (punto.getIdPuntoEmissione() != null) {
+            cache.put(punto.getIdPuntoEmissione(), punto);
+        }
+    }
+
+    void invalida(long id) {
+        cache.invalida(id);
+    }
+}
@@ -1,47 +1,47 @@
 package dao;
 
 import entities.Rivenditore;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
 
 public class RivenditoreDAO {
 
-    private final EntityManager em;
+    private final UnitOfWork uow;
+    private final PuntoDiEmissioneDAO puntoDiEmissioneDAO;
 
-    public RivenditoreDAO(EntityManager em) {
-        this.em = em;
+    public RivenditoreDAO(UnitOfWork uow, PuntoDiEmissioneDAO puntoDiEmissioneDAO) {
+        this.uow = uow;
+        this.puntoDiEmissioneDAO = puntoDiEmissioneDAO;
     }
 
     public void save(Rivenditore newRivenditore) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.persist(newRivenditore);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.persist(newRivenditore));
+        puntoDiEmissioneDAO.memorizza(newRivenditore);
   /*      System.out.println("Rivenditore salvato con successo - ID Punto Emissione: " +
                 newRivenditore.getIdPuntoEmissione() + " - Nome: " + newRivenditore.getNomeRivenditore() +
                 " - Indirizzo: " + newRivenditore.getIndirizzo());*/
     }
 
     public Rivenditore findById(long id) {
-        return em.find(Rivenditore.class, id);
+        return puntoDiEmissioneDAO.findById(id) instanceof Rivenditore rivenditore ? rivenditore : null;
     }
 
     public void update(Rivenditore rivenditore) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.merge(rivenditore);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.merge(rivenditore));
+        puntoDiEmissioneDAO.invalida(rivenditore.getIdPuntoEmissione());
         System.out.println("Rivenditore aggiornato con successo");
     }
 
     public void delete(long id) {
-        Rivenditore found = findById(id);
-        if (found != null) {
-            EntityTransaction transaction = em.getTransaction();
-            transaction.begin();
+        boolean eliminato = uow.inTransazione(em -> {
+            Rivenditore found = em.find(Rivenditore.class, id);
+            if (found == null) {
+                return false;
+            }
             em.remove(found);
-            transaction.commit();
+            return true;
+        });
+        puntoDiEmissioneDAO.invalida(id);
+        if (eliminato) {
             System.out.println("Rivenditore eliminato con successo");
         }
     }
-}
\ No newline at end of file
+}
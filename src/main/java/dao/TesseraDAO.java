@@ -1,77 +1,66 @@
 package dao;
 
+import cache.IndiceValiditaAbbonamenti;
+import dto.Pagina;
 import entities.Abbonamento;
 import entities.Tessera;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
-import jakarta.persistence.NoResultException;
+import org.hibernate.jpa.SpecHints;
 import java.time.LocalDate;
-import java.util.List;
 
 public class TesseraDAO {
 
-    private final EntityManager em;
+    static final String PER_UTENTE = "SELECT t FROM Tessera t WHERE t.utente.id = :utenteId";
 
-    public TesseraDAO(EntityManager em) {
-        this.em = em;
+    static final String PAGINA = "SELECT t FROM Tessera t WHERE t.id > :dopo ORDER BY t.id";
+
+    private final UnitOfWork uow;
+    private final IndiceValiditaAbbonamenti indiceValidita;
+
+    public TesseraDAO(UnitOfWork uow, IndiceValiditaAbbonamenti indiceValidita) {
+        this.uow = uow;
+        this.indiceValidita = indiceValidita;
     }
 
     public void create(Tessera tessera) {
-        EntityTransaction transition = em.getTransaction();
-        transition.begin();
-        em.persist(tessera);
-        transition.commit();
+        uow.eseguiInTransazione(em -> em.persist(tessera));
     }
 
     public Tessera findById(long id) {
-        return em.find(Tessera.class, id);
+        return uow.inLettura(em -> em.find(Tessera.class, id, UnitOfWork.grafo(em, Tessera.GRAFO_STAMPA)));
     }
 
     public Tessera findByUtenteId(long utenteId) {
-        return em.createQuery("SELECT t FROM Tessera t WHERE t.utente.id = :utenteId", Tessera.class)
+        return uow.inLettura(em -> em.createQuery(PER_UTENTE, Tessera.class)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Tessera.GRAFO_STAMPA))
                 .setParameter("utenteId", utenteId)
-                .getSingleResult();
+                .getSingleResult());
     }
 
-    public List<Tessera> findAll() {
-        return em.createQuery("SELECT t FROM Tessera t", Tessera.class)
-                .getResultList();
+    public Pagina<Tessera> findAll(String cursore, int dimensione) {
+        return Cursore.pagina(uow.inLettura(em -> em.createQuery(PAGINA, Tessera.class)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Tessera.GRAFO_STAMPA))
+                .setParameter("dopo", Cursore.decodifica(cursore))
+                .setMaxResults(Cursore.righeDaLeggere(dimensione))
+                .getResultList()), dimensione, Tessera::getId);
     }
 
     public void update(Tessera tessera) {
-        EntityTransaction transition = em.getTransaction();
-        transition.begin();
-        em.merge(tessera);
-        transition.commit();
+        uow.eseguiInTransazione(em -> em.merge(tessera));
     }
 
     public void delete(Tessera tessera) {
-        EntityTransaction transition = em.getTransaction();
-        transition.begin();
-        em.remove(em.contains(tessera) ? tessera : em.merge(tessera));
-        transition.commit();
+        uow.eseguiInTransazione(em -> em.remove(em.contains(tessera) ? tessera : em.merge(tessera)));
     }
 
     public boolean verificaValiditaAbbonamento(long tesseraId) {
-        Long count = em.createQuery(
-                        "SELECT COUNT(a) FROM Abbonamento a WHERE a.tessera.id = :tesseraId " +
-                                "AND :oggi BETWEEN a.datainiziovalidita AND a.datafinevalidita", Long.class)
-                .setParameter("tesseraId", tesseraId)
-                .setParameter("oggi", LocalDate.now())
-                .getSingleResult();
-        return count > 0;
+        return indiceValidita.isValida(tesseraId, LocalDate.now());
     }
 
     public Abbonamento findAbbonamentoValidoByTessera(long tesseraId) {
-        try {
-            return em.createQuery(
-                            "SELECT a FROM Abbonamento a WHERE a.tessera.id = :tesseraId " +
-                                    "AND :oggi BETWEEN a.datainiziovalidita AND a.datafinevalidita", Abbonamento.class)
-                    .setParameter("tesseraId", tesseraId)
-                    .setParameter("oggi", LocalDate.now())
-                    .getSingleResult();
-        } catch (NoResultException e) {
+        long abbonamentoId = indiceValidita.abbonamentoValido(tesseraId, LocalDate.now());
+        if (abbonamentoId < 0) {
             return null;
         }
+        return uow.inLettura(em -> em.find(Abbonamento.class, abbonamentoId, UnitOfWork.grafo(em, Abbonamento.GRAFO_STAMPA)));
     }
 }
@@ -1,24 +1,40 @@
 package dao;
 
+import cache.CacheLimitata;
+import cache.DizionarioFermate;
+import dto.Collegamento;
+import entities.Fermata;
 import entities.Tratta;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
+import enums.AmbitoPercorrenza;
+import percorsi.ReteTratte;
 
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class TrattaDAO {
 
-    private final EntityManager em;
+    private static final int CAPACITA_CACHE = 1024;
 
-    public TrattaDAO(EntityManager em) {
-        this.em = em;
+    static final String MEZZI_PER_TRATTA =
+            "SELECT t.mezzo.id FROM Tratta t WHERE t.partenza.id = :partenza AND t.arrivo.id = :arrivo";
+
+    private final UnitOfWork uow;
+    private final CacheLimitata<Long, Tratta> cache = new CacheLimitata<>("Tratta", CAPACITA_CACHE, Tratta::copia);
+    private final DizionarioFermate fermate;
+    private final ReteTratte rete;
+
+    public TrattaDAO(UnitOfWork uow, DizionarioFermate fermate, ReteTratte rete) {
+        this.uow = uow;
+        this.fermate = fermate;
+        this.rete = rete;
     }
 
     public void save(Tratta newTratta) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.persist(newTratta);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.persist(newTratta));
+        cache.put(newTratta.getId(), newTratta);
+        inserisciInRete(newTratta);
  /*       System.out.println("Nuova Tratta " +
                 newTratta.getId() +
                 " effettuata dal Mezzo " +
@@ -32,40 +48,84 @@ public class TrattaDAO {
     }
 
     public Tratta findPathById(long id) {
-        return em.find(Tratta.class, id);
+        return cache.getOppureCarica(id, chiave ->
+                uow.inLettura(em -> em.find(Tratta.class, chiave, UnitOfWork.grafo(em, Tratta.GRAFO_STAMPA))));
     }
 
     public void update(Tratta tratta) {
-        EntityTransaction transaction = em.getTransaction();
-        transaction.begin();
-        em.merge(tratta);
-        transaction.commit();
+        uow.eseguiInTransazione(em -> em.merge(tratta));
+        cache.invalida(tratta.getId());
+        inserisciInRete(tratta);
         System.out.println("Tratta aggiornata");
     }
 
     public void delete(long id) {
-        Tratta found = findPathById(id);
-        if (found != null) {
-            EntityTransaction transaction = em.getTransaction();
-            transaction.begin();
+        boolean eliminata = uow.inTransazione(em -> {
+            Tratta found = em.find(Tratta.class, id);
+            if (found == null) {
+                return false;
+            }
             em.remove(found);
-            transaction.commit();
+            return true;
+        });
+        cache.invalida(id);
+        rete.rimuovi(id);
+        if (eliminata) {
             System.out.println("La tratta " + id + " è stata eliminata con successo");
         }
     }
-    public List<Long> getMezziIdPerTratta(String partenza, String arrivo) {
-        return em.createQuery(
-                        "SELECT t.mezzo.id FROM Tratta t WHERE t.partenza = :partenza AND t.arrivo = :arrivo",
-                        Long.class)
-                .setParameter("partenza", partenza)
-                .setParameter("arrivo", arrivo)
-                .getResultList();
+    public CacheLimitata<Long, Tratta> getCache() {
+        return cache;
+    }
+
+    public ReteTratte getRete() {
+        return rete;
+    }
+
+    public long caricaRete() {
+        long tratte = uow.scorri("SELECT t.id, t.partenza.id, t.arrivo.id, t.tempoPrevisto FROM Tratta t", Object[].class,
+                Map.of(), riga -> rete.aggiorna((Long) riga[0], (Integer) riga[1], (Integer) riga[2], (LocalTime) riga[3]));
+        aggiornaTempiMisurati();
+        return tratte;
+    }
+
+    public long aggiornaTempiMisurati() {
+        return uow.scorri("SELECT a.id.idRiferimento, a.sommaSecondi, a.campioni FROM AggregatoPercorrenza a " +
+                        "WHERE a.id.ambito = :ambito AND a.campioni > 0", Object[].class,
+                Map.of("ambito", AmbitoPercorrenza.TRATTA),
+                riga -> rete.impostaTempoMisurato((Long) riga[0],
+                        (int) (((Number) riga[1]).longValue() / ((Number) riga[2]).longValue())));
+    }
+
+    private void inserisciInRete(Tratta tratta) {
+        if (tratta.getId() != null && tratta.getPartenza() != null && tratta.getArrivo() != null
+                && tratta.getTempoPrevisto() != null) {
+            rete.aggiorna(tratta.getId(), tratta.getPartenza().getId(), tratta.getArrivo().getId(), tratta.getTempoPrevisto());
+        }
+    }
+
+    public List<Collegamento> getCollegamenti() {
+        List<Object[]> righe = uow.inLettura(em -> em.createQuery(
+                        "SELECT DISTINCT t.partenza.id, t.arrivo.id FROM Tratta t ORDER BY 1, 2", Object[].class)
+                .getResultList());
+        List<Collegamento> collegamenti = new ArrayList<>(righe.size());
+        for (Object[] riga : righe) {
+            collegamenti.add(new Collegamento(fermate.trova((Integer) riga[0]), fermate.trova((Integer) riga[1])));
+        }
+        return collegamenti;
+    }
+
+    public List<Long> getMezziIdPerTratta(Fermata partenza, Fermata arrivo) {
+        return uow.inLettura(em -> em.createQuery(MEZZI_PER_TRATTA, Long.class)
+                .setParameter("partenza", partenza.getId())
+                .setParameter("arrivo", arrivo.getId())
+                .getResultList());
     }
-    public long contaPercorrenzePerTratta(String partenza, String arrivo) {
-        return em.createQuery(
-                        "SELECT COUNT(t) FROM Tratta t WHERE t.partenza = :partenza AND t.arrivo = :arrivo", Long.class)
-                .setParameter("partenza", partenza)
-                .setParameter("arrivo", arrivo)
-                .getSingleResult();
+    public long contaPercorrenzePerTratta(Fermata partenza, Fermata arrivo) {
+        return uow.inLettura(em -> em.createQuery(
+                        "SELECT COUNT(t) FROM Tratta t WHERE t.partenza.id = :partenza AND t.arrivo.id = :arrivo", Long.class)
+                .setParameter("partenza", partenza.getId())
+                .setParameter("arrivo", arrivo.getId())
+                .getSingleResult());
     }
-}
\ No newline at end of file
+}
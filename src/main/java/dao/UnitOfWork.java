@@ -0,0 +1,209 @@
+package dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import exceptions.CaricamentoParzialeException;
+import metriche.RegistroMetriche;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.query.SelectionQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class UnitOfWork {
+
+    private static final int DIMENSIONE_TRANSAZIONE = 10_000;
+    private static final StackWalker STACK = StackWalker.getInstance();
+    private static final Set<String> CLASSI_INTERNE = Set.of(UnitOfWork.class.getName(), CopiaBulk.class.getName());
+
+    private final EntityManagerFactory emf;
+    private final int dimensioneBatch;
+    private final int dimensioneFetch;
+    private final int dimensionePool;
+    private final RegistroMetriche metriche;
+
+    public UnitOfWork(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.dimensioneBatch = leggiIntero(emf, "hibernate.jdbc.batch_size", 50);
+        this.dimensioneFetch = leggiIntero(emf, "hibernate.jdbc.fetch_size", 1000);
+        this.dimensionePool = leggiIntero(emf, "hibernate.hikari.maximumPoolSize", 20);
+        this.metriche = new RegistroMetriche(leggiIntero(emf, "bw1be.metriche.soglia_lenta_ms", 200));
+    }
+
+    private static int leggiIntero(EntityManagerFactory emf, String proprieta, int predefinito) {
+        Object valore = emf.getProperties().get(proprieta);
+        return valore != null ? Integer.parseInt(valore.toString()) : predefinito;
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return emf;
+    }
+
+    public int getDimensionePool() {
+        return dimensionePool;
+    }
+
+    public RegistroMetriche getMetriche() {
+        return metriche;
+    }
+
+    static Map<String, Object> grafo(EntityManager em, String nome) {
+        return Map.of(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(nome));
+    }
+
+    public <T> T inTransazione(Function<EntityManager, T> lavoro) {
+        return metriche.misura(operazioneChiamante(), null, () -> transazione(lavoro), UnitOfWork::righe);
+    }
+
+    private <T> T transazione(Function<EntityManager, T> lavoro) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction transaction = em.getTransaction();
+        try {
+            transaction.begin();
+            T risultato = lavoro.apply(em);
+            transaction.commit();
+            return risultato;
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    public void eseguiInTransazione(Consumer<EntityManager> lavoro) {
+        inTransazione(em -> {
+            lavoro.accept(em);
+            return null;
+        });
+    }
+
+    public <T> T inLettura(Function<EntityManager, T> lavoro) {
+        return inTransazione(em -> {
+            Session session = em.unwrap(Session.class);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            session.setDefaultReadOnly(true);
+            return lavoro.apply(em);
+        });
+    }
+
+    public <T> T inSessioneStateless(Function<StatelessSession, T> lavoro) {
+        return metriche.misura(operazioneChiamante(), null, () -> sessioneStateless(lavoro), UnitOfWork::righe);
+    }
+
+    private <T> T sessioneStateless(Function<StatelessSession, T> lavoro) {
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                T risultato = lavoro.apply(session);
+                transaction.commit();
+                return risultato;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    public <T> long scorri(String hql, Class<T> tipo, Map<String, ?> parametri, Consumer<T> consumatore) {
+        Supplier<Long> lavoro = () -> sessioneStateless(session -> {
+            SelectionQuery<T> query = session.createSelectionQuery(hql, tipo)
+                    .setFetchSize(dimensioneFetch)
+                    .setReadOnly(true);
+            parametri.forEach(query::setParameter);
+            long letti = 0;
+            try (var stream = query.getResultStream()) {
+                for (var iterator = stream.iterator(); iterator.hasNext(); letti++) {
+                    consumatore.accept(iterator.next());
+                }
+            }
+            return letti;
+        });
+        return metriche.misura(operazioneChiamante(), parametri, lavoro, Long::longValue);
+    }
+
+    private static long righe(Object risultato) {
+        if (risultato instanceof Collection<?> collezione) {
+            return collezione.size();
+        }
+        if (risultato instanceof Map<?, ?> mappa) {
+            return mappa.size();
+        }
+        return risultato != null ? 1 : 0;
+    }
+
+    private static String operazioneChiamante() {
+        return STACK.walk(frame -> frame
+                .filter(f -> !CLASSI_INTERNE.contains(f.getClassName()))
+                .findFirst()
+                .map(f -> {
+                    String classe = f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1);
+                    String metodo = f.getMethodName();
+                    if (metodo.startsWith("lambda$")) {
+                        metodo = metodo.substring(7, metodo.lastIndexOf('$'));
+                    }
+                    return classe + "." + metodo;
+                })
+                .orElse("sconosciuta"));
+    }
+
+    public <T> int persistiInBlocchi(Collection<T> entita) {
+        return persistiInBlocchi(entita, (em, blocco) -> {
+        });
+    }
+
+    public <T> int persistiInBlocchi(Collection<T> entita, BiConsumer<EntityManager, List<T>> perBlocco) {
+        return persistiInBlocchi(entita, perBlocco, blocco -> {
+        });
+    }
+
+    // dopoCommit riceve ogni blocco solo quando la sua transazione è stata confermata
+    public <T> int persistiInBlocchi(Collection<T> entita, BiConsumer<EntityManager, List<T>> perBlocco,
+                                     Consumer<List<T>> dopoCommit) {
+        Iterator<T> iterator = entita.iterator();
+        int salvati = 0;
+        // ogni blocco è una transazione a sé: se un blocco fallisce i precedenti restano salvati
+        while (iterator.hasNext()) {
+            List<T> confermato;
+            try {
+                confermato = inTransazione(em -> {
+                    List<T> blocco = new ArrayList<>();
+                    while (iterator.hasNext() && blocco.size() < DIMENSIONE_TRANSAZIONE) {
+                        T elemento = iterator.next();
+                        em.persist(elemento);
+                        blocco.add(elemento);
+                        if (blocco.size() % dimensioneBatch == 0) {
+                            em.flush();
+                            em.clear();
+                        }
+                    }
+                    perBlocco.accept(em, blocco);
+                    return blocco;
+                });
+            } catch (RuntimeException e) {
+                throw new CaricamentoParzialeException(salvati, entita.size(), e);
+            }
+            salvati += confermato.size();
+            dopoCommit.accept(confermato);
+        }
+        return salvati;
+    }
+}
@@ -1,45 +1,49 @@
 package dao;
 
+import cache.CacheLimitata;
+import dto.Pagina;
 import entities.Utente;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityTransaction;
-import java.util.List;
 
 public class UtenteDAO {
 
-    private final EntityManager em;
+    private static final int CAPACITA_CACHE = 4096;
 
-    public UtenteDAO(EntityManager em) {
-        this.em = em;
+    static final String PAGINA = "SELECT u FROM Utente u WHERE u.id > :dopo ORDER BY u.id";
+
+    private final UnitOfWork uow;
+    private final CacheLimitata<Long, Utente> cache = new CacheLimitata<>("Utente", CAPACITA_CACHE, Utente::copia);
+
+    public UtenteDAO(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     public void create(Utente utente) {
-        EntityTransaction transition = em.getTransaction();
-        transition.begin();
-        em.persist(utente);
-        transition.commit();
+        uow.eseguiInTransazione(em -> em.persist(utente));
+        cache.put(utente.getId(), utente);
     }
 
     public Utente findById(long id) {
-        return em.find(Utente.class, id);
+        return cache.getOppureCarica(id, chiave -> uow.inLettura(em -> em.find(Utente.class, chiave)));
+    }
+
+    public Pagina<Utente> findAll(String cursore, int dimensione) {
+        return Cursore.pagina(uow.inLettura(em -> em.createQuery(PAGINA, Utente.class)
+                .setParameter("dopo", Cursore.decodifica(cursore))
+                .setMaxResults(Cursore.righeDaLeggere(dimensione))
+                .getResultList()), dimensione, Utente::getId);
     }
 
-    public List<Utente> findAll() {
-        return em.createQuery("SELECT u FROM Utente u", Utente.class)
-                .getResultList();
+    public CacheLimitata<Long, Utente> getCache() {
+        return cache;
     }
 
     public void update(Utente utente) {
-        EntityTransaction transition = em.getTransaction();
-        transition.begin();
-        em.merge(utente);
-        transition.commit();
+        uow.eseguiInTransazione(em -> em.merge(utente));
+        cache.invalida(utente.getId());
     }
 
     public void delete(Utente utente) {
-        EntityTransaction transition = em.getTransaction();
-        transition.begin();
-        em.remove(em.contains(utente) ? utente : em.merge(utente));
-        transition.commit();
+        uow.eseguiInTransazione(em -> em.remove(em.contains(utente) ? utente : em.merge(utente)));
+        cache.invalida(utente.getId());
     }
-}
\ No newline at end of file
+}
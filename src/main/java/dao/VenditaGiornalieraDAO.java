@@ -0,0 +1,153 @@
+package dao;
+
+import entities.Abbonamento;
+import entities.Biglietto;
+import entities.PuntoDiEmissione;
+import entities.VenditaGiornaliera;
+import entities.VenditaGiornalieraId;
+import enums.TipoProdotto;
+import jakarta.persistence.EntityManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class VenditaGiornalieraDAO {
+
+    private static final long SENZA_PUNTO_EMISSIONE = 0L;
+
+    // stesso ordine di lock in tutte le transazioni concorrenti, altrimenti gli upsert possono andare in deadlock
+    private static final Comparator<VenditaGiornaliera> ORDINE_LOCK = Comparator
+            .comparing((VenditaGiornaliera v) -> v.getId().getGiorno())
+            .thenComparing(v -> v.getId().getIdPuntoEmissione())
+            .thenComparing(v -> v.getId().getProdotto());
+
+    private static final String UPSERT =
+            "INSERT INTO vendite_giornaliere (giorno, id_punto_emissione, prodotto, quantita, incasso) " +
+                    "VALUES (:giorno, :puntoId, :prodotto, :quantita, :incasso) " +
+                    "ON CONFLICT (giorno, id_punto_emissione, prodotto) DO UPDATE SET " +
+                    "quantita = vendite_giornaliere.quantita + EXCLUDED.quantita, " +
+                    "incasso = vendite_giornaliere.incasso + EXCLUDED.incasso";
+
+    private static final String RICOSTRUZIONE =
+            "INSERT INTO vendite_giornaliere (giorno, id_punto_emissione, prodotto, quantita, incasso) " +
+                    "SELECT b.\"Data Emissione\", COALESCE(b.id_punto_emissione, 0), 'BIGLIETTO', COUNT(*), COALESCE(SUM(b.prezzo), 0) " +
+                    "FROM biglietto b WHERE b.\"Data Emissione\" IS NOT NULL " +
+                    "GROUP BY b.\"Data Emissione\", COALESCE(b.id_punto_emissione, 0) " +
+                    "UNION ALL " +
+                    "SELECT a.\"Data Emissione\", COALESCE(a.id_punto_emissione, 0), " +
+                    "CASE WHEN a.\"Tipo abbonamento\" = 'SETTIMANALE' THEN 'ABBONAMENTO_SETTIMANALE' ELSE 'ABBONAMENTO_MENSILE' END, " +
+                    "COUNT(*), COALESCE(SUM(a.prezzo), 0) " +
+                    "FROM abbonamento a WHERE a.\"Data Emissione\" IS NOT NULL " +
+                    "GROUP BY 1, 2, 3";
+
+    static final String VENDITE_PER_PUNTO =
+            "SELECT COALESCE(SUM(v.quantita), 0) FROM VenditaGiornaliera v " +
+                    "WHERE v.id.idPuntoEmissione = :puntoId " +
+                    "AND v.id.prodotto IN :prodotti " +
+                    "AND v.id.giorno BETWEEN :dataInizio AND :dataFine";
+
+    static final String VENDITE =
+            "SELECT COALESCE(SUM(v.quantita), 0) FROM VenditaGiornaliera v " +
+                    "WHERE v.id.prodotto IN :prodotti " +
+                    "AND v.id.giorno BETWEEN :dataInizio AND :dataFine";
+
+    private final UnitOfWork uow;
+
+    public VenditaGiornalieraDAO(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    public long contaVendite(Long puntoEmissioneId, LocalDate dataInizio, LocalDate dataFine, List<TipoProdotto> prodotti) {
+        return uow.inLettura(em -> em.createQuery(VENDITE_PER_PUNTO, Long.class)
+                .setParameter("puntoId", puntoEmissioneId)
+                .setParameter("prodotti", prodotti)
+                .setParameter("dataInizio", dataInizio)
+                .setParameter("dataFine", dataFine)
+                .getSingleResult());
+    }
+
+    public long contaVendite(LocalDate dataInizio, LocalDate dataFine, List<TipoProdotto> prodotti) {
+        return uow.inLettura(em -> em.createQuery(VENDITE, Long.class)
+                .setParameter("prodotti", prodotti)
+                .setParameter("dataInizio", dataInizio)
+                .setParameter("dataFine", dataFine)
+                .getSingleResult());
+    }
+
+    public void ricostruisci() {
+        uow.eseguiInTransazione(em -> {
+            em.createQuery("DELETE FROM VenditaGiornaliera").executeUpdate();
+            em.createNativeQuery(RICOSTRUZIONE).executeUpdate();
+        });
+    }
+
+    public void inizializza() {
+        long righe = uow.inLettura(em -> em.createQuery("SELECT COUNT(v) FROM VenditaGiornaliera v", Long.class)
+                .getSingleResult());
+        if (righe == 0) {
+            ricostruisci();
+        }
+    }
+
+    static void registraBiglietti(EntityManager em, Collection<Biglietto> biglietti, int segno) {
+        new Variazioni().biglietti(biglietti, segno).registra(em);
+    }
+
+    static void registraAbbonamenti(EntityManager em, Collection<Abbonamento> abbonamenti, int segno) {
+        new Variazioni().abbonamenti(abbonamenti, segno).registra(em);
+    }
+
+    // tutte le variazioni di una transazione vanno scritte con un solo registra: due chiamate separate
+    // ordinerebbero due gruppi distinti e un aggiornamento che sposta una vendita romperebbe ORDINE_LOCK
+    static final class Variazioni {
+        private final Map<VenditaGiornalieraId, VenditaGiornaliera> parziali = new HashMap<>();
+
+        Variazioni biglietti(Collection<Biglietto> biglietti, int segno) {
+            for (Biglietto b : biglietti) {
+                accumula(b.getDataEmissione(), b.getPuntoEmissione(), TipoProdotto.BIGLIETTO, segno, b.getPrezzo());
+            }
+            return this;
+        }
+
+        Variazioni abbonamenti(Collection<Abbonamento> abbonamenti, int segno) {
+            for (Abbonamento a : abbonamenti) {
+                accumula(a.getDataEmissione(), a.getPuntoEmissione(), TipoProdotto.di(a.getTipoAbbonamento()), segno, a.getPrezzo());
+            }
+            return this;
+        }
+
+        private void accumula(LocalDate giorno, PuntoDiEmissione punto, TipoProdotto prodotto, int segno, double prezzo) {
+            if (giorno == null) {
+                return;
+            }
+            Long puntoId = punto != null ? punto.getIdPuntoEmissione() : SENZA_PUNTO_EMISSIONE;
+            VenditaGiornalieraId chiave = new VenditaGiornalieraId(giorno, puntoId, prodotto);
+            parziali.merge(chiave, new VenditaGiornaliera(chiave, segno, segno * prezzo),
+                    (a, b) -> new VenditaGiornaliera(chiave, a.getQuantita() + b.getQuantita(), a.getIncasso() + b.getIncasso()));
+        }
+
+        void registra(EntityManager em) {
+            List<VenditaGiornaliera> ordinate = new ArrayList<>(parziali.size());
+            for (VenditaGiornaliera v : parziali.values()) {
+                if (v.getQuantita() != 0 || v.getIncasso() != 0) {
+                    ordinate.add(v);
+                }
+            }
+            ordinate.sort(ORDINE_LOCK);
+            for (VenditaGiornaliera v : ordinate) {
+                em.createNativeQuery(UPSERT)
+                        .setParameter("giorno", v.getId().getGiorno())
+                        .setParameter("puntoId", v.getId().getIdPuntoEmissione())
+                        .setParameter("prodotto", v.getId().getProdotto().name())
+                        .setParameter("quantita", v.getQuantita())
+                        .setParameter("incasso", v.getIncasso())
+                        .executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package dao;
+
+import entities.Biglietto;
+import entities.Manutenzione;
+import entities.Mezzo;
+import entities.PercorrenzaMedia;
+import entities.Tessera;
+import entities.Utente;
+import enums.AmbitoPercorrenza;
+import enums.TipoProdotto;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.query.Query;
+import services.ValidatoreBiglietti;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+public class VerificaPianiQuery {
+
+    private static final LocalDate GIORNO = LocalDate.of(2024, 1, 1);
+    private static final Map<String, Object> PERIODO = Map.of("dataInizio", GIORNO, "dataFine", GIORNO);
+    private static final int RIGHE_PAGINA = Cursore.righeDaLeggere(50);
+
+    private enum Linguaggio { HQL, NATIVO, JDBC }
+
+    // i valori dei parametri servono solo a far generare l'SQL: il piano verificato è quello generico
+    private record Verifica(String nome, Linguaggio linguaggio, String query, Class<?> tipo, Map<String, ?> parametri,
+                            String grafo, boolean paginata) {
+    }
+
+    private static final List<Verifica> VERIFICHE = List.of(
+            hql("BigliettoDAO.streamIdBigliettiByPeriodo", BigliettoDAO.ID_PER_PERIODO, Long.class, PERIODO),
+            hql("BigliettoDAO.streamIdBigliettiByPuntoEmissioneAndPeriodo", BigliettoDAO.ID_PER_PUNTO_E_PERIODO, Long.class,
+                    conPeriodo("puntoId", 1L)),
+            new Verifica("BigliettoDAO.findBigliettoByPuntoEmissioneAndPeriodo", Linguaggio.HQL,
+                    BigliettoDAO.PER_PUNTO_E_PERIODO, Biglietto.class, conPeriodo("puntoId", 1L), Biglietto.GRAFO_STAMPA, false),
+            hql("BigliettoDAO.countBigliettiVidimatiByMezzo", BigliettoDAO.VIDIMATI_PER_MEZZO, Long.class,
+                    conPeriodo("mezzoId", 1L)),
+            hql("BigliettoDAO.countBigliettiVidimatiByPeriodo", BigliettoDAO.VIDIMATI_PER_PERIODO, Long.class, PERIODO),
+            hql("BigliettoDAO.salvaVendite", BigliettoDAO.CODICI_PRESENTI, UUID.class,
+                    Map.of("codici", List.of(new UUID(0, 1)))),
+            jdbc("ValidatoreBiglietti.validaBatch", ValidatoreBiglietti.UPDATE_CONDIZIONALE),
+            jdbc("ValidatoreBiglietti.validaBatch(esistenti)", ValidatoreBiglietti.SELECT_ESISTENTI),
+            jdbc("ValidatoreBiglietti.validaBatch(già validati)", ValidatoreBiglietti.SELECT_GIA_VALIDATI),
+            hql("AbbonamentoDAO.streamIdAbbonamentiByPeriodo", AbbonamentoDAO.ID_PER_PERIODO, Long.class, PERIODO),
+            hql("AbbonamentoDAO.streamIdAbbonamentiByPuntoEmissioneAndPeriodo", AbbonamentoDAO.ID_PER_PUNTO_E_PERIODO,
+                    Long.class, conPeriodo("puntoId", 1L)),
+            hql("AbbonamentoDAO.caricaIndiceValidita", AbbonamentoDAO.VALIDITA, Object[].class, Map.of("oggi", GIORNO)),
+            new Verifica("TesseraDAO.findAll", Linguaggio.HQL, TesseraDAO.PAGINA, Tessera.class,
+                    Map.of("dopo", 0L), Tessera.GRAFO_STAMPA, true),
+            new Verifica("TesseraDAO.findByUtenteId", Linguaggio.HQL, TesseraDAO.PER_UTENTE, Tessera.class,
+                    Map.of("utenteId", 1L), Tessera.GRAFO_STAMPA, false),
+            paginata("UtenteDAO.findAll", UtenteDAO.PAGINA, Utente.class, Map.of("dopo", 0L)),
+            hql("VenditaGiornalieraDAO.contaVendite(punto)", VenditaGiornalieraDAO.VENDITE_PER_PUNTO, Long.class,
+                    Map.of("puntoId", 1L, "prodotti", List.of(TipoProdotto.BIGLIETTO), "dataInizio", GIORNO, "dataFine", GIORNO)),
+            hql("VenditaGiornalieraDAO.contaVendite", VenditaGiornalieraDAO.VENDITE, Long.class,
+                    Map.of("prodotti", List.of(TipoProdotto.BIGLIETTO), "dataInizio", GIORNO, "dataFine", GIORNO)),
+            nativa("CruscottoDAO.cruscotto", CruscottoDAO.CRUSCOTTO, PERIODO),
+            hql("TrattaDAO.getMezziIdPerTratta", TrattaDAO.MEZZI_PER_TRATTA, Long.class, Map.of("partenza", 1, "arrivo", 2)),
+            paginata("ManutenzioneDAO.findByMezzo", ManutenzioneDAO.PAGINA_PER_MEZZO, Manutenzione.class, Map.of("mezzoId", 1L, "dopo", 0L)),
+            hql("MezzoDAO.findAllById", MezzoDAO.PER_ID, Mezzo.class, Map.of("ids", List.of(1L, 2L, 3L))),
+            paginata("PercorrenzaMediaDAO.getAllPercorrenzeMedie", PercorrenzaMediaDAO.PAGINA, PercorrenzaMedia.class, Map.of("dopo", 0L)),
+            nativa("PercorrenzaMediaDAO.statistichePerTratta", PercorrenzaMediaDAO.percentili(AmbitoPercorrenza.TRATTA),
+                    Map.of("riferimento", 1L)),
+            nativa("PercorrenzaMediaDAO.statistichePerMezzo", PercorrenzaMediaDAO.percentili(AmbitoPercorrenza.MEZZO),
+                    Map.of("riferimento", 1L))
+    );
+
+    private static Verifica hql(String nome, String query, Class<?> tipo, Map<String, ?> parametri) {
+        return new Verifica(nome, Linguaggio.HQL, query, tipo, parametri, null, false);
+    }
+
+    private static Verifica paginata(String nome, String query, Class<?> tipo, Map<String, ?> parametri) {
+        return new Verifica(nome, Linguaggio.HQL, query, tipo, parametri, null, true);
+    }
+
+    private static Verifica nativa(String nome, String query, Map<String, ?> parametri) {
+        return new Verifica(nome, Linguaggio.NATIVO, query, Object[].class, parametri, null, false);
+    }
+
+    private static Verifica jdbc(String nome, String sql) {
+        return new Verifica(nome, Linguaggio.JDBC, sql, null, Map.of(), null, false);
+    }
+
+    private static Map<String, Object> conPeriodo(String nome, Object valore) {
+        return Map.of(nome, valore, "dataInizio", GIORNO, "dataFine", GIORNO);
+    }
+
+    private static final class SqlIntercettato extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private SqlIntercettato() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final UnitOfWork uow;
+
+    public VerificaPianiQuery(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    public List<String> querySenzaIndice() {
+        List<Map.Entry<String, String>> generate = new ArrayList<>(VERIFICHE.size());
+        for (Verifica verifica : VERIFICHE) {
+            generate.add(Map.entry(verifica.nome(), sqlGenerato(verifica)));
+        }
+        return uow.inTransazione(em -> em.unwrap(Session.class).doReturningWork(connection -> {
+            List<String> senzaIndice = new ArrayList<>();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL enable_seqscan = off");
+                statement.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+                for (Map.Entry<String, String> query : generate) {
+                    statement.execute("PREPARE verifica_piano AS " + numera(query.getValue()));
+                    try (ResultSet piano = statement.executeQuery("EXPLAIN EXECUTE verifica_piano" + argomentiNulli(query.getValue()))) {
+                        while (piano.next()) {
+                            if (piano.getString(1).contains("Seq Scan")) {
+                                senzaIndice.add(query.getKey());
+                                break;
+                            }
+                        }
+                    } finally {
+                        statement.execute("DEALLOCATE verifica_piano");
+                    }
+                }
+            }
+            return senzaIndice;
+        }));
+    }
+
+    // l'inspector ferma la query prima che raggiunga il database: resta solo l'SQL che Hibernate avrebbe eseguito
+    private String sqlGenerato(Verifica verifica) {
+        if (verifica.linguaggio() == Linguaggio.JDBC) {
+            return verifica.query();
+        }
+        String[] intercettato = new String[1];
+        SessionFactory sessionFactory = uow.getEntityManagerFactory().unwrap(SessionFactory.class);
+        try (Session session = sessionFactory.withOptions().statementInspector((UnaryOperator<String>) sql -> {
+            intercettato[0] = sql;
+            throw new SqlIntercettato();
+        }).openSession()) {
+            Query<?> query = verifica.linguaggio() == Linguaggio.HQL
+                    ? session.createQuery(verifica.query(), verifica.tipo())
+                    : session.createNativeQuery(verifica.query(), verifica.tipo());
+            verifica.parametri().forEach(query::setParameter);
+            if (verifica.grafo() != null) {
+                query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, session.getEntityGraph(verifica.grafo()));
+            }
+            if (verifica.paginata()) {
+                query.setMaxResults(RIGHE_PAGINA);
+            }
+            query.getResultList();
+        } catch (RuntimeException e) {
+            if (intercettato[0] == null) {
+                throw e;
+            }
+        }
+        return intercettato[0];
+    }
+
+    // PREPARE vuole parametri posizionali numerati al posto dei "?" JDBC
+    private static String numera(String sql) {
+        StringBuilder numerato = new StringBuilder(sql.length() + 16);
+        int parametro = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                numerato.append('$').append(++parametro);
+            } else {
+                numerato.append(c);
+            }
+        }
+        return numerato.toString();
+    }
+
+    private static String argomentiNulli(String sql) {
+        long parametri = sql.chars().filter(c -> c == '?').count();
+        return parametri == 0 ? "" : "(" + String.join(", ", Collections.nCopies((int) parametri, "NULL")) + ")";
+    }
+}
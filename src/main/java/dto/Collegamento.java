@@ -0,0 +1,6 @@
+package dto;
+
+import entities.Fermata;
+
+public record Collegamento(Fermata partenza, Fermata arrivo) {
+}
@@ -0,0 +1,13 @@
+package dto;
+
+import enums.TipoAbbonamento;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public record CruscottoVendite(LocalDate dataInizio, LocalDate dataFine,
+                               long bigliettiEmessi, long bigliettiValidati, long abbonamentiEmessi, double incasso,
+                               Map<Long, Long> bigliettiPerPuntoEmissione, Map<Long, Long> abbonamentiPerPuntoEmissione,
+                               Map<Long, Double> incassoPerPuntoEmissione, Map<Long, Long> validazioniPerMezzo,
+                               Map<TipoAbbonamento, Long> abbonamentiPerTipo) {
+}
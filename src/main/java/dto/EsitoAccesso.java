@@ -0,0 +1,12 @@
+package dto;
+
+import entities.Abbonamento;
+import entities.Tessera;
+import enums.EsitoValidazione;
+
+public record EsitoAccesso(Tessera tessera, Abbonamento abbonamento, EsitoValidazione validazione) {
+
+    public boolean consentito() {
+        return abbonamento != null || validazione == EsitoValidazione.VALIDATO;
+    }
+}
@@ -0,0 +1,10 @@
+package dto;
+
+import java.util.List;
+
+public record Pagina<T>(List<T> elementi, String cursoreSuccessivo) {
+
+    public boolean haSuccessiva() {
+        return cursoreSuccessivo != null;
+    }
+}
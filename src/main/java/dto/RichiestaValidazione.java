@@ -0,0 +1,4 @@
+package dto;
+
+public record RichiestaValidazione(long bigliettoId, long mezzoId) {
+}
@@ -0,0 +1,7 @@
+package dto;
+
+import java.time.LocalTime;
+
+public record StatistichePercorrenza(long campioni, LocalTime medio, LocalTime minimo, LocalTime massimo,
+                                     LocalTime mediana, LocalTime percentile90, LocalTime percentile95) {
+}
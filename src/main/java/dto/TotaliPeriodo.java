@@ -0,0 +1,10 @@
+package dto;
+
+public record TotaliPeriodo(long conteggio, double somma) {
+
+    public static final TotaliPeriodo VUOTO = new TotaliPeriodo(0, 0);
+
+    public TotaliPeriodo unisci(TotaliPeriodo altro) {
+        return new TotaliPeriodo(conteggio + altro.conteggio, somma + altro.somma);
+    }
+}
@@ -0,0 +1,8 @@
+package dto;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record VenditaRegistrata(UUID codiceVendita, int durataBiglietto, double prezzo, LocalDate dataEmissione,
+                                Long puntoEmissioneId) {
+}
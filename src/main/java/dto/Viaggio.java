@@ -0,0 +1,7 @@
+package dto;
+
+import java.time.Duration;
+import java.util.List;
+
+public record Viaggio(List<String> fermate, List<Long> tratte, Duration durata) {
+}
@@ -6,10 +6,17 @@ import java.time.LocalDate;
 
 @Entity
 @Table(name = "Abbonamento")
+@NamedEntityGraph(name = Abbonamento.GRAFO_STAMPA, attributeNodes = {
+        @NamedAttributeNode("puntoEmissione"),
+        @NamedAttributeNode(value = "tessera", subgraph = "tessera")
+}, subgraphs = @NamedSubgraph(name = "tessera", attributeNodes = @NamedAttributeNode("utente")))
 public class Abbonamento {
 
+    public static final String GRAFO_STAMPA = "Abbonamento.stampa";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "abbonamento_seq")
+    @SequenceGenerator(name = "abbonamento_seq", sequenceName = "abbonamento_seq", allocationSize = 50)
     protected long id;
 
     @Enumerated(EnumType.STRING)
@@ -28,14 +35,18 @@ public class Abbonamento {
     @Column(name = "prezzo")
     private double prezzo;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_punto_emissione")
     private PuntoDiEmissione puntoEmissione;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_tessera")
     private Tessera tessera;
 
+    // assegnato dal database (V7) con la transazione che ha emesso l'abbonamento
+    @Column(name = "xid_emissione", insertable = false, updatable = false)
+    private Long xidEmissione;
+
     public Abbonamento() {
     }
 
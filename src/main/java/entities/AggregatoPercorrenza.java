@@ -0,0 +1,57 @@
+package entities;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "percorrenze_aggregate")
+public class AggregatoPercorrenza {
+
+    @EmbeddedId
+    private AggregatoPercorrenzaId id;
+
+    @Column(name = "campioni", nullable = false)
+    private long campioni;
+
+    @Column(name = "somma_secondi", nullable = false)
+    private long sommaSecondi;
+
+    @Column(name = "minimo_secondi", nullable = false)
+    private int minimoSecondi;
+
+    @Column(name = "massimo_secondi", nullable = false)
+    private int massimoSecondi;
+
+    public AggregatoPercorrenza() {
+    }
+
+    public AggregatoPercorrenzaId getId() {
+        return id;
+    }
+
+    public long getCampioni() {
+        return campioni;
+    }
+
+    public long getSommaSecondi() {
+        return sommaSecondi;
+    }
+
+    public int getMinimoSecondi() {
+        return minimoSecondi;
+    }
+
+    public int getMassimoSecondi() {
+        return massimoSecondi;
+    }
+
+    @Override
+    public String toString() {
+        return "AggregatoPercorrenza{" +
+                "id=" + id +
+                ", campioni=" + campioni +
+                ", sommaSecondi=" + sommaSecondi +
+                ", minimoSecondi=" + minimoSecondi +
+                ", massimoSecondi=" + massimoSecondi +
+                '}';
+    }
+}
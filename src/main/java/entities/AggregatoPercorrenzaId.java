@@ -0,0 +1,55 @@
+package entities;
+
+import enums.AmbitoPercorrenza;
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+public class AggregatoPercorrenzaId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ambito", nullable = false)
+    private AmbitoPercorrenza ambito;
+
+    @Column(name = "id_riferimento", nullable = false)
+    private Long idRiferimento;
+
+    public AggregatoPercorrenzaId() {
+    }
+
+    public AggregatoPercorrenzaId(AmbitoPercorrenza ambito, Long idRiferimento) {
+        this.ambito = ambito;
+        this.idRiferimento = idRiferimento;
+    }
+
+    public AmbitoPercorrenza getAmbito() {
+        return ambito;
+    }
+
+    public Long getIdRiferimento() {
+        return idRiferimento;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AggregatoPercorrenzaId that)) return false;
+        return ambito == that.ambito && Objects.equals(idRiferimento, that.idRiferimento);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ambito, idRiferimento);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregatoPercorrenzaId{" +
+                "ambito=" + ambito +
+                ", idRiferimento=" + idRiferimento +
+                '}';
+    }
+}
@@ -2,13 +2,21 @@ package entities;
 
 import jakarta.persistence.*;
 import java.time.LocalDate;
+import java.util.UUID;
 
 @Entity
 @Table(name = "Biglietto")
+@NamedEntityGraph(name = Biglietto.GRAFO_STAMPA, attributeNodes = {
+        @NamedAttributeNode("puntoEmissione"),
+        @NamedAttributeNode("mezzoValidante")
+})
 public class Biglietto {
 
+    public static final String GRAFO_STAMPA = "Biglietto.stampa";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "biglietto_seq")
+    @SequenceGenerator(name = "biglietto_seq", sequenceName = "biglietto_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "durata biglietto", nullable = false)
@@ -20,17 +28,27 @@ public class Biglietto {
     @Column(name = "Data Emissione")
     private LocalDate dataEmissione;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_punto_emissione")
     private PuntoDiEmissione puntoEmissione;
 
     @Column(name= "Data validazione")
     private LocalDate dataValidazione;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_mezzo_validante")
     private Mezzo mezzoValidante;
 
+    @Column(name = "codice_vendita")
+    private UUID codiceVendita;
+
+    // assegnati dal database (V7) con la transazione che ha emesso e validato il biglietto
+    @Column(name = "xid_emissione", insertable = false, updatable = false)
+    private Long xidEmissione;
+
+    @Column(name = "xid_validazione", insertable = false, updatable = false)
+    private Long xidValidazione;
+
     public Biglietto() {
     }
 
@@ -95,6 +113,14 @@ public class Biglietto {
         this.mezzoValidante = mezzoValidante;
     }
 
+    public UUID getCodiceVendita() {
+        return codiceVendita;
+    }
+
+    public void setCodiceVendita(UUID codiceVendita) {
+        this.codiceVendita = codiceVendita;
+    }
+
     @Override
     public String toString() {
         return "Biglietto{" +
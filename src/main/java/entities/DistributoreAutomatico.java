@@ -28,6 +28,11 @@ public class DistributoreAutomatico extends PuntoDiEmissione {
         this.statoDistributore = statoDistributore;
     }
 
+    @Override
+    public DistributoreAutomatico copia() {
+        return conStessoId(new DistributoreAutomatico(getIndirizzo(), 0, statoDistributore));
+    }
+
     @Override
     public String toString() {
         return "DistributoreAutomatico{" +
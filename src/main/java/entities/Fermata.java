@@ -0,0 +1,34 @@
+package entities;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "fermata", uniqueConstraints = @UniqueConstraint(name = "uk_fermata_nome", columnNames = "nome"))
+public class Fermata {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "nome", nullable = false)
+    private String nome;
+
+    public Fermata() {}
+
+    public Fermata(String nome) {
+        this.nome = nome;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    @Override
+    public String toString() {
+        return nome;
+    }
+}
@@ -86,6 +86,12 @@ public class Mezzo {
         this.bigliettiValidati = bigliettiValidati;
     }
 
+    public Mezzo copia() {
+        Mezzo copia = new Mezzo(targa, tipoMezzo, capienza, statoMezzo);
+        copia.id = id;
+        return copia;
+    }
+
     @Override
     public String toString() {
         return "Mezzo{" +
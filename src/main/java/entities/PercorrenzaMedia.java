@@ -12,7 +12,7 @@ public class PercorrenzaMedia {
     @Column(name = "idtempoMedioPercorrenza")
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "idtratta")
     private Tratta tratta;
 
@@ -32,6 +32,13 @@ public abstract class PuntoDiEmissione {
         this.indirizzo = indirizzo;
     }
 
+    public abstract PuntoDiEmissione copia();
+
+    protected <T extends PuntoDiEmissione> T conStessoId(T copia) {
+        ((PuntoDiEmissione) copia).idPuntoEmissione = idPuntoEmissione;
+        return copia;
+    }
+
     @Override
     public String toString() {
         return "PuntoDiEmissione{" +
@@ -39,6 +39,11 @@ public class Rivenditore extends PuntoDiEmissione {
         this.statoRivenditore = statoRivenditore;
     }
 
+    @Override
+    public Rivenditore copia() {
+        return conStessoId(new Rivenditore(getIndirizzo(), nomeRivenditore, statoRivenditore));
+    }
+
     @Override
     public String toString() {
         return "Rivenditore{" +
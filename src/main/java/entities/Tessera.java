@@ -7,8 +7,11 @@ import java.time.LocalDate;
 
 @Entity
 @Table(name = "tessera")
+@NamedEntityGraph(name = Tessera.GRAFO_STAMPA, attributeNodes = @NamedAttributeNode("utente"))
 public class Tessera {
 
+    public static final String GRAFO_STAMPA = "Tessera.stampa";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
@@ -19,7 +22,7 @@ public class Tessera {
     @Column(name = "data_scadenza", nullable = false)
     private LocalDate dataScadenza;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_utente")
     private Utente utente;
 
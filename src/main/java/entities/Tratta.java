@@ -5,28 +5,34 @@ import java.time.LocalTime;
 
 @Entity
 @Table(name = "tratta")
+@NamedEntityGraph(name = Tratta.GRAFO_STAMPA, attributeNodes = {
+        @NamedAttributeNode("mezzo"), @NamedAttributeNode("partenza"), @NamedAttributeNode("arrivo")})
 public class Tratta {
 
+    public static final String GRAFO_STAMPA = "Tratta.stampa";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_mezzo")
     private Mezzo mezzo;
 
     @Column(name = "tempoPrevisto", nullable = false)
     private LocalTime tempoPrevisto;
 
-    @Column(name = "partenza", nullable = false)
-    private String partenza;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "id_fermata_partenza", foreignKey = @ForeignKey(name = "fk_tratta_fermata_partenza"))
+    private Fermata partenza;
 
-    @Column(name = "arrivo", nullable = false)
-    private String arrivo;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "id_fermata_arrivo", foreignKey = @ForeignKey(name = "fk_tratta_fermata_arrivo"))
+    private Fermata arrivo;
 
     public Tratta() {}
 
-    public Tratta(Mezzo mezzo, LocalTime tempoPrevisto, String partenza, String arrivo) {
+    public Tratta(Mezzo mezzo, LocalTime tempoPrevisto, Fermata partenza, Fermata arrivo) {
         this.mezzo = mezzo;
         this.tempoPrevisto = tempoPrevisto;
         this.partenza = partenza;
@@ -57,30 +63,36 @@ public class Tratta {
         this.tempoPrevisto = tempoPrevisto;
     }
 
-    public String getPartenza() {
+    public Fermata getPartenza() {
         return partenza;
     }
 
-    public void setPartenza(String partenza) {
+    public void setPartenza(Fermata partenza) {
         this.partenza = partenza;
     }
 
-    public String getArrivo() {
+    public Fermata getArrivo() {
         return arrivo;
     }
 
-    public void setArrivo(String arrivo) {
+    public void setArrivo(Fermata arrivo) {
         this.arrivo = arrivo;
     }
 
+    public Tratta copia() {
+        Tratta copia = new Tratta(mezzo != null ? mezzo.copia() : null, tempoPrevisto, partenza, arrivo);
+        copia.id = id;
+        return copia;
+    }
+
     @Override
     public String toString() {
         return "Tratta{" +
                 "id=" + id +
                 ", mezzo=" + mezzo +
                 ", tempoPrevisto=" + tempoPrevisto +
-                ", partenza='" + partenza + '\'' +
-                ", arrivo='" + arrivo + '\'' +
+                ", partenza=" + partenza +
+                ", arrivo=" + arrivo +
                 '}';
     }
 }
@@ -69,6 +69,12 @@ public class Utente {
         this.ruoloUtente = ruoloUtente;
     }
 
+    public Utente copia() {
+        Utente copia = new Utente(nome, cognome, username, ruoloUtente);
+        copia.id = id;
+        return copia;
+    }
+
     @Override
     public String toString() {
         return "Utente{" +
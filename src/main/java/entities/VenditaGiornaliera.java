@@ -0,0 +1,47 @@
+package entities;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "vendite_giornaliere")
+public class VenditaGiornaliera {
+
+    @EmbeddedId
+    private VenditaGiornalieraId id;
+
+    @Column(name = "quantita", nullable = false)
+    private long quantita;
+
+    @Column(name = "incasso", nullable = false)
+    private double incasso;
+
+    public VenditaGiornaliera() {
+    }
+
+    public VenditaGiornaliera(VenditaGiornalieraId id, long quantita, double incasso) {
+        this.id = id;
+        this.quantita = quantita;
+        this.incasso = incasso;
+    }
+
+    public VenditaGiornalieraId getId() {
+        return id;
+    }
+
+    public long getQuantita() {
+        return quantita;
+    }
+
+    public double getIncasso() {
+        return incasso;
+    }
+
+    @Override
+    public String toString() {
+        return "VenditaGiornaliera{" +
+                "id=" + id +
+                ", quantita=" + quantita +
+                ", incasso=" + incasso +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package entities;
+
+import enums.TipoProdotto;
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class VenditaGiornalieraId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "giorno", nullable = false)
+    private LocalDate giorno;
+
+    @Column(name = "id_punto_emissione", nullable = false)
+    private Long idPuntoEmissione;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "prodotto", nullable = false)
+    private TipoProdotto prodotto;
+
+    public VenditaGiornalieraId() {
+    }
+
+    public VenditaGiornalieraId(LocalDate giorno, Long idPuntoEmissione, TipoProdotto prodotto) {
+        this.giorno = giorno;
+        this.idPuntoEmissione = idPuntoEmissione;
+        this.prodotto = prodotto;
+    }
+
+    public LocalDate getGiorno() {
+        return giorno;
+    }
+
+    public Long getIdPuntoEmissione() {
+        return idPuntoEmissione;
+    }
+
+    public TipoProdotto getProdotto() {
+        return prodotto;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VenditaGiornalieraId that)) return false;
+        return Objects.equals(giorno, that.giorno) &&
+                Objects.equals(idPuntoEmissione, that.idPuntoEmissione) &&
+                prodotto == that.prodotto;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(giorno, idPuntoEmissione, prodotto);
+    }
+
+    @Override
+    public String toString() {
+        return "VenditaGiornalieraId{" +
+                "giorno=" + giorno +
+                ", idPuntoEmissione=" + idPuntoEmissione +
+                ", prodotto=" + prodotto +
+                '}';
+    }
+}
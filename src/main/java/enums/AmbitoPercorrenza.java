@@ -0,0 +1,6 @@
+package enums;
+
+public enum AmbitoPercorrenza {
+    TRATTA,
+    MEZZO
+}
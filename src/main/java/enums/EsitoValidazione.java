@@ -0,0 +1,7 @@
+package enums;
+
+public enum EsitoValidazione {
+    VALIDATO,
+    GIA_VALIDATO,
+    NON_TROVATO
+}
@@ -0,0 +1,7 @@
+package enums;
+
+public enum FinestraOccupazione {
+    ULTIMI_5_MINUTI,
+    ULTIMA_ORA,
+    OGGI
+}
@@ -0,0 +1,11 @@
+package enums;
+
+public enum TipoProdotto {
+    BIGLIETTO,
+    ABBONAMENTO_SETTIMANALE,
+    ABBONAMENTO_MENSILE;
+
+    public static TipoProdotto di(TipoAbbonamento tipoAbbonamento) {
+        return tipoAbbonamento == TipoAbbonamento.SETTIMANALE ? ABBONAMENTO_SETTIMANALE : ABBONAMENTO_MENSILE;
+    }
+}
@@ -0,0 +1,195 @@
+package esportazione;
+
+import dao.UnitOfWork;
+import enums.TipoAbbonamento;
+import enums.TipoProdotto;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+
+public class EsportatoreStorico {
+
+    private static final String FILE_WATERMARK = "watermark.properties";
+    private static final LocalDate NESSUNA_ESPORTAZIONE = LocalDate.of(1900, 1, 1);
+    // transazioni con id inferiore all'xmin dello snapshot sono tutte concluse: le loro righe sono già visibili
+    private static final String ORIZZONTE = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+    private static final long MINUTI_AL_GIORNO = 24 * 60;
+
+    private static final List<String> COLONNE_EMISSIONI =
+            List.of("id", "giorno", "id_punto_emissione", "prezzo_centesimi", "tipo_prodotto", "validita_minuti");
+    private static final List<String> COLONNE_VALIDAZIONI =
+            List.of("id_biglietto", "giorno", "id_mezzo", "prezzo_centesimi", "id_punto_emissione");
+
+    private record Sorgente(String dataset, String fonte, List<String> colonne, String hql, Function<Object[], long[]> riga) {
+
+        String chiave() {
+            return dataset + "." + fonte;
+        }
+    }
+
+    private static final List<Sorgente> SORGENTI = List.of(
+            new Sorgente("emissioni", "biglietto", COLONNE_EMISSIONI,
+                    "SELECT b.id, b.dataEmissione, b.puntoEmissione.id, b.prezzo, b.durataBiglietto FROM Biglietto b " +
+                            "WHERE b.xidEmissione >= :da AND b.xidEmissione < :a AND b.dataEmissione IS NOT NULL " +
+                            "AND (b.xidEmissione > 0 OR b.dataEmissione > :esportateFino) ORDER BY b.dataEmissione, b.id",
+                    r -> new long[]{(Long) r[0], giorno(r[1]), id(r[2]), centesimi(r[3]),
+                            TipoProdotto.BIGLIETTO.ordinal(), (Integer) r[4]}),
+            new Sorgente("emissioni", "abbonamento", COLONNE_EMISSIONI,
+                    "SELECT a.id, a.dataEmissione, a.puntoEmissione.id, a.prezzo, a.tipoAbbonamento, " +
+                            "a.datainiziovalidita, a.datafinevalidita FROM Abbonamento a " +
+                            "WHERE a.xidEmissione >= :da AND a.xidEmissione < :a AND a.dataEmissione IS NOT NULL " +
+                            "AND (a.xidEmissione > 0 OR a.dataEmissione > :esportateFino) ORDER BY a.dataEmissione, a.id",
+                    r -> new long[]{(Long) r[0], giorno(r[1]), id(r[2]), centesimi(r[3]),
+                            TipoProdotto.di((TipoAbbonamento) r[4]).ordinal(),
+                            (ChronoUnit.DAYS.between((LocalDate) r[5], (LocalDate) r[6]) + 1) * MINUTI_AL_GIORNO}),
+            new Sorgente("validazioni", "biglietto", COLONNE_VALIDAZIONI,
+                    "SELECT b.id, b.dataValidazione, b.mezzoValidante.id, b.prezzo, b.puntoEmissione.id FROM Biglietto b " +
+                            "WHERE b.xidValidazione >= :da AND b.xidValidazione < :a AND b.dataValidazione IS NOT NULL " +
+                            "AND (b.xidValidazione > 0 OR b.dataValidazione > :esportateFino) ORDER BY b.dataValidazione, b.id",
+                    r -> new long[]{(Long) r[0], giorno(r[1]), id(r[2]), centesimi(r[3]), id(r[4])})
+    );
+
+    private final UnitOfWork uow;
+    private final Path cartella;
+
+    public EsportatoreStorico(UnitOfWork uow, Path cartella) {
+        this.uow = uow;
+        this.cartella = cartella;
+    }
+
+    // il watermark è la transazione da cui riprendere, non la data di emissione: una vendita riprodotta dal giornale
+    // o caricata con COPY dopo l'esportazione del suo giorno entra comunque nella successiva
+    public Map<String, Long> esporta() {
+        try {
+            Files.createDirectories(cartella);
+            Properties watermark = leggiWatermark();
+            long orizzonte = uow.inLettura(em -> em.unwrap(Session.class).createNativeQuery(ORIZZONTE, Long.class)
+                    .getSingleResult());
+            Map<String, Long> esportate = new LinkedHashMap<>();
+            for (Sorgente sorgente : SORGENTI) {
+                String valore = watermark.getProperty(sorgente.chiave());
+                long da = xid(valore);
+                if (orizzonte <= da) {
+                    esportate.put(sorgente.chiave(), 0L);
+                    continue;
+                }
+                esportate.put(sorgente.chiave(), esporta(sorgente, da, orizzonte, esportateFino(valore)));
+                watermark.setProperty(sorgente.chiave(), Long.toString(orizzonte));
+                scriviWatermark(watermark);
+            }
+            return esportate;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Esportazione dello storico in " + cartella + " fallita", e);
+        }
+    }
+
+    public long getWatermark(String dataset, String fonte) {
+        try {
+            return xid(leggiWatermark().getProperty(dataset + "." + fonte));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // i watermark scritti prima di V7 sono date: si riparte dalle righe precedenti a V7 successive a quella data
+    private static long xid(String valore) {
+        return valore == null || valore.contains("-") ? 0 : Long.parseLong(valore);
+    }
+
+    private static LocalDate esportateFino(String valore) {
+        return valore != null && valore.contains("-") ? LocalDate.parse(valore) : NESSUNA_ESPORTAZIONE;
+    }
+
+    // i file prendono il nome dall'inizio dell'intervallo: dopo un errore il watermark non avanza e la
+    // riesecuzione sovrascrive gli stessi file invece di duplicarli
+    private long esporta(Sorgente sorgente, long da, long a, LocalDate esportateFino) throws IOException {
+        YearMonth[] meseCorrente = {null};
+        ScrittoreColonnare[] scrittore = {null};
+        Path[] temporaneo = {null};
+        boolean completata = false;
+        try {
+            long righe = uow.scorri(sorgente.hql(), Object[].class, Map.of("da", da, "a", a, "esportateFino", esportateFino), riga -> {
+                long[] valori = sorgente.riga().apply(riga);
+                YearMonth mese = YearMonth.from(LocalDate.ofEpochDay(valori[1]));
+                try {
+                    if (!mese.equals(meseCorrente[0])) {
+                        chiudi(scrittore[0], temporaneo[0]);
+                        Path partizione = Files.createDirectories(cartella.resolve(sorgente.dataset()).resolve("mese=" + mese));
+                        temporaneo[0] = partizione.resolve(sorgente.fonte() + "-xid-" + da + ".bwc.tmp");
+                        scrittore[0] = new ScrittoreColonnare(temporaneo[0], sorgente.colonne());
+                        meseCorrente[0] = mese;
+                    }
+                    scrittore[0].aggiungi(valori);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            completata = true;
+            return righe;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (completata) {
+                chiudi(scrittore[0], temporaneo[0]);
+            } else if (scrittore[0] != null) {
+                scrittore[0].close();
+                Files.deleteIfExists(temporaneo[0]);
+            }
+        }
+    }
+
+    private static void chiudi(ScrittoreColonnare scrittore, Path temporaneo) throws IOException {
+        if (scrittore == null) {
+            return;
+        }
+        scrittore.close();
+        String nome = temporaneo.getFileName().toString();
+        Files.move(temporaneo, temporaneo.resolveSibling(nome.substring(0, nome.length() - ".tmp".length())),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Properties leggiWatermark() throws IOException {
+        Properties watermark = new Properties();
+        Path file = cartella.resolve(FILE_WATERMARK);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                watermark.load(reader);
+            }
+        }
+        return watermark;
+    }
+
+    private void scriviWatermark(Properties watermark) throws IOException {
+        Path temporaneo = cartella.resolve(FILE_WATERMARK + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporaneo)) {
+            watermark.store(writer, "Transazione da cui riprendere l'esportazione per sorgente");
+        }
+        Files.move(temporaneo, cartella.resolve(FILE_WATERMARK), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long giorno(Object data) {
+        return ((LocalDate) data).toEpochDay();
+    }
+
+    private static long id(Object id) {
+        return id != null ? ((Number) id).longValue() : 0;
+    }
+
+    private static long centesimi(Object prezzo) {
+        return Math.round(((Number) prezzo).doubleValue() * 100);
+    }
+}
@@ -0,0 +1,85 @@
+package esportazione;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+public class LettoreColonnare implements AutoCloseable {
+
+    private final DataInputStream ingresso;
+    private final List<String> colonne = new ArrayList<>();
+
+    public LettoreColonnare(Path file) throws IOException {
+        this.ingresso = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        if (ingresso.readInt() != ScrittoreColonnare.MAGIA) {
+            ingresso.close();
+            throw new IOException("Il file " + file + " non è un'esportazione colonnare valida");
+        }
+        int numeroColonne = ingresso.readInt();
+        for (int i = 0; i < numeroColonne; i++) {
+            colonne.add(ingresso.readUTF());
+        }
+    }
+
+    public List<String> getColonne() {
+        return colonne;
+    }
+
+    public long leggi(Consumer<long[]> consumatore) throws IOException {
+        long[][] gruppo = new long[colonne.size()][];
+        long[] riga = new long[colonne.size()];
+        long lette = 0;
+        for (int righe = ingresso.readInt(); righe > 0; righe = ingresso.readInt()) {
+            for (int c = 0; c < gruppo.length; c++) {
+                byte[] blocco = new byte[ingresso.readInt()];
+                ingresso.readFully(blocco);
+                gruppo[c] = decodifica(blocco, righe);
+            }
+            for (int i = 0; i < righe; i++) {
+                for (int c = 0; c < riga.length; c++) {
+                    riga[c] = gruppo[c][i];
+                }
+                consumatore.accept(riga);
+            }
+            lette += righe;
+        }
+        return lette;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ingresso.close();
+    }
+
+    private static long[] decodifica(byte[] blocco, int righe) throws IOException {
+        long[] valori = new long[righe];
+        try (InputStream gzip = new BufferedInputStream(new GZIPInputStream(new ByteArrayInputStream(blocco)))) {
+            long precedente = 0;
+            for (int i = 0; i < righe; i++) {
+                long zigzag = 0;
+                int b;
+                for (int spostamento = 0; ; spostamento += 7) {
+                    b = gzip.read();
+                    if (b < 0) {
+                        throw new IOException("Blocco colonnare troncato");
+                    }
+                    zigzag |= (long) (b & 0x7F) << spostamento;
+                    if ((b & 0x80) == 0) {
+                        break;
+                    }
+                }
+                precedente += (zigzag >>> 1) ^ -(zigzag & 1);
+                valori[i] = precedente;
+            }
+        }
+        return valori;
+    }
+}
@@ -0,0 +1,87 @@
+package esportazione;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// formato BWC1: intestazione con i nomi delle colonne, poi gruppi di righe in cui ogni colonna
+// è un blocco gzip indipendente di varint zigzag codificati in delta rispetto alla riga precedente
+public class ScrittoreColonnare implements AutoCloseable {
+
+    static final int MAGIA = 0x42574331;
+    static final int RIGHE_PER_GRUPPO = 65_536;
+
+    private final DataOutputStream uscita;
+    private final long[][] colonne;
+    private final byte[] varint = new byte[RIGHE_PER_GRUPPO * 10];
+    private final ByteArrayOutputStream compresso = new ByteArrayOutputStream();
+    private int righe;
+    private long totaleRighe;
+
+    public ScrittoreColonnare(Path file, List<String> nomiColonne) throws IOException {
+        this.uscita = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        this.colonne = new long[nomiColonne.size()][RIGHE_PER_GRUPPO];
+        uscita.writeInt(MAGIA);
+        uscita.writeInt(nomiColonne.size());
+        for (String nome : nomiColonne) {
+            uscita.writeUTF(nome);
+        }
+    }
+
+    public void aggiungi(long... valori) throws IOException {
+        for (int c = 0; c < colonne.length; c++) {
+            colonne[c][righe] = valori[c];
+        }
+        totaleRighe++;
+        if (++righe == RIGHE_PER_GRUPPO) {
+            scriviGruppo();
+        }
+    }
+
+    public long getTotaleRighe() {
+        return totaleRighe;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            scriviGruppo();
+            uscita.writeInt(0);
+        } finally {
+            uscita.close();
+        }
+    }
+
+    private void scriviGruppo() throws IOException {
+        if (righe == 0) {
+            return;
+        }
+        uscita.writeInt(righe);
+        for (long[] colonna : colonne) {
+            int lunghezza = 0;
+            long precedente = 0;
+            for (int i = 0; i < righe; i++) {
+                long delta = colonna[i] - precedente;
+                long zigzag = (delta << 1) ^ (delta >> 63);
+                while ((zigzag & ~0x7FL) != 0) {
+                    varint[lunghezza++] = (byte) ((zigzag & 0x7F) | 0x80);
+                    zigzag >>>= 7;
+                }
+                varint[lunghezza++] = (byte) zigzag;
+                precedente = colonna[i];
+            }
+            compresso.reset();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compresso, 1 << 16)) {
+                gzip.write(varint, 0, lunghezza);
+            }
+            uscita.writeInt(compresso.size());
+            compresso.writeTo(uscita);
+        }
+        righe = 0;
+    }
+}
@@ -0,0 +1,17 @@
+package exceptions;
+
+public class CaricamentoParzialeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int salvati;
+
+    public CaricamentoParzialeException(int salvati, int totali, RuntimeException causa) {
+        super("Caricamento interrotto: " + salvati + " di " + totali + " elementi già salvati", causa);
+        this.salvati = salvati;
+    }
+
+    public int getSalvati() {
+        return salvati;
+    }
+
+}
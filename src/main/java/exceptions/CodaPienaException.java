@@ -0,0 +1,10 @@
+package exceptions;
+
+public class CodaPienaException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public CodaPienaException(int capacita) {
+        super("Coda di ingest piena (" + capacita + " richieste in attesa), riprovare più tardi");
+    }
+
+}
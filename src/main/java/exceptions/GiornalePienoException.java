@@ -0,0 +1,10 @@
+package exceptions;
+
+public class GiornalePienoException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public GiornalePienoException(long inSospeso) {
+        super("Giornale delle vendite pieno (" + inSospeso + " vendite non ancora riversate nel database)");
+    }
+
+}
@@ -0,0 +1,10 @@
+package exceptions;
+
+public class MigrazioneException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public MigrazioneException(int versione, String motivo) {
+        super("Migrazione V" + versione + " non applicabile: " + motivo);
+    }
+
+}
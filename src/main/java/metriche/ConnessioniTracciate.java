@@ -0,0 +1,16 @@
+package metriche;
+
+import org.hibernate.hikaricp.internal.HikariCPConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// pool HikariCP le cui connessioni riportano a TracciatoreSql i parametri legati alle istruzioni
+public class ConnessioniTracciate extends HikariCPConnectionProvider {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return TracciatoreSql.avvolgi(super.getConnection());
+    }
+}
@@ -0,0 +1,46 @@
+package metriche;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+public class EsportatoreMetriche implements AutoCloseable {
+
+    private final HttpServer server;
+
+    public EsportatoreMetriche(RegistroMetriche registro, int porta) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/metrics", scambio -> rispondi(scambio, "text/plain; version=0.0.4", registro::prometheus));
+        server.createContext("/metrics.json", scambio -> rispondi(scambio, "application/json", registro::json));
+    }
+
+    public void avvia() {
+        server.start();
+        System.out.println("Metriche disponibili su http://localhost:" + server.getAddress().getPort() + "/metrics");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static void rispondi(HttpExchange scambio, String tipo, Supplier<String> corpo) throws IOException {
+        byte[] risposta = corpo.get().getBytes(StandardCharsets.UTF_8);
+        scambio.getResponseHeaders().set("Content-Type", tipo);
+        scambio.sendResponseHeaders(200, risposta.length);
+        try (OutputStream out = scambio.getResponseBody()) {
+            out.write(risposta);
+        }
+    }
+}
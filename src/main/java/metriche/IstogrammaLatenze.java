@@ -0,0 +1,83 @@
+package metriche;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class IstogrammaLatenze {
+
+    // 64 sotto-bucket per ogni potenza di due: errore relativo massimo ~1.6%
+    private static final int BIT_SOTTOBUCKET = 6;
+    private static final int SOTTOBUCKET = 1 << BIT_SOTTOBUCKET;
+    private static final int ESPONENTE_MASSIMO = 42;
+    private static final int BUCKET = (ESPONENTE_MASSIMO - BIT_SOTTOBUCKET + 2) * SOTTOBUCKET;
+
+    private final AtomicLongArray conteggi = new AtomicLongArray(BUCKET);
+    private final LongAdder conteggio = new LongAdder();
+    private final LongAdder somma = new LongAdder();
+    private final LongAccumulator massimo = new LongAccumulator(Math::max, 0);
+
+    public void registra(long nanosecondi) {
+        long valore = Math.max(0, nanosecondi);
+        conteggi.incrementAndGet(indice(valore));
+        conteggio.increment();
+        somma.add(valore);
+        massimo.accumulate(valore);
+    }
+
+    public long conteggio() {
+        return conteggio.sum();
+    }
+
+    public long somma() {
+        return somma.sum();
+    }
+
+    public long massimo() {
+        return massimo.get();
+    }
+
+    public long percentile(double quantile) {
+        long totale = 0;
+        long[] istantanea = new long[BUCKET];
+        for (int i = 0; i < BUCKET; i++) {
+            istantanea[i] = conteggi.get(i);
+            totale += istantanea[i];
+        }
+        if (totale == 0) {
+            return 0;
+        }
+        long obiettivo = Math.max(1, (long) Math.ceil(quantile * totale));
+        long cumulato = 0;
+        for (int i = 0; i < BUCKET; i++) {
+            cumulato += istantanea[i];
+            if (cumulato >= obiettivo) {
+                // l'ultimo bucket raccoglie anche i valori fuori scala: il suo limite è il massimo osservato
+                return i == BUCKET - 1 ? massimo() : Math.min(limiteSuperiore(i), massimo());
+            }
+        }
+        return massimo();
+    }
+
+    private static int indice(long valore) {
+        if (valore < SOTTOBUCKET) {
+            return (int) valore;
+        }
+        int esponente = Math.min(63 - Long.numberOfLeadingZeros(valore), ESPONENTE_MASSIMO);
+        if (esponente == ESPONENTE_MASSIMO && valore >>> ESPONENTE_MASSIMO > 1) {
+            return BUCKET - 1;
+        }
+        int sotto = (int) ((valore >>> (esponente - BIT_SOTTOBUCKET)) & (SOTTOBUCKET - 1));
+        return (esponente - BIT_SOTTOBUCKET + 1) * SOTTOBUCKET + sotto;
+    }
+
+    private static long limiteSuperiore(int indice) {
+        if (indice < SOTTOBUCKET) {
+            return indice;
+        }
+        int esponente = indice / SOTTOBUCKET + BIT_SOTTOBUCKET - 1;
+        long sotto = indice % SOTTOBUCKET;
+        long ampiezza = 1L << (esponente - BIT_SOTTOBUCKET);
+        return ((SOTTOBUCKET + sotto) << (esponente - BIT_SOTTOBUCKET)) + ampiezza - 1;
+    }
+}
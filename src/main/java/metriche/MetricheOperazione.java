@@ -0,0 +1,51 @@
+package metriche;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class MetricheOperazione {
+
+    private final String nome;
+    private final IstogrammaLatenze latenze = new IstogrammaLatenze();
+    private final LongAdder rollback = new LongAdder();
+    private final LongAdder righe = new LongAdder();
+    private final LongAdder lente = new LongAdder();
+
+    MetricheOperazione(String nome) {
+        this.nome = nome;
+    }
+
+    void registra(long nanosecondi, long righeRestituite, boolean fallita, boolean lenta) {
+        latenze.registra(nanosecondi);
+        righe.add(righeRestituite);
+        if (fallita) {
+            rollback.increment();
+        }
+        if (lenta) {
+            lente.increment();
+        }
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public IstogrammaLatenze getLatenze() {
+        return latenze;
+    }
+
+    public long getChiamate() {
+        return latenze.conteggio();
+    }
+
+    public long getRollback() {
+        return rollback.sum();
+    }
+
+    public long getRighe() {
+        return righe.sum();
+    }
+
+    public long getLente() {
+        return lente.sum();
+    }
+}
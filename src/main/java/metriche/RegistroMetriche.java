@@ -0,0 +1,181 @@
+package metriche;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+public class RegistroMetriche {
+
+    private static final int LENTE_CONSERVATE = 50;
+    private static final double[] QUANTILI = {0.5, 0.9, 0.99, 0.999};
+
+    public record OperazioneLenta(Instant quando, String operazione, long millisecondi, List<String> sql, String parametri) {
+    }
+
+    private final long sogliaLentaNanos;
+    private final ConcurrentHashMap<String, MetricheOperazione> operazioni = new ConcurrentHashMap<>();
+    private final ArrayDeque<OperazioneLenta> lente = new ArrayDeque<>();
+
+    public RegistroMetriche(long sogliaLentaMillis) {
+        this.sogliaLentaNanos = TimeUnit.MILLISECONDS.toNanos(sogliaLentaMillis);
+    }
+
+    public <T> T misura(String operazione, Object parametri, Supplier<T> lavoro, ToLongFunction<T> contaRighe) {
+        long inizio = System.nanoTime();
+        TracciatoreSql.Traccia precedente = TracciatoreSql.apri();
+        T risultato = null;
+        boolean fallita = true;
+        try {
+            risultato = lavoro.get();
+            fallita = false;
+            return risultato;
+        } finally {
+            long durata = System.nanoTime() - inizio;
+            TracciatoreSql.Traccia traccia = TracciatoreSql.chiudi(precedente);
+            boolean lenta = durata >= sogliaLentaNanos;
+            operazioni.computeIfAbsent(operazione, MetricheOperazione::new)
+                    .registra(durata, fallita ? 0 : contaRighe.applyAsLong(risultato), fallita, lenta);
+            if (lenta) {
+                registraLenta(new OperazioneLenta(Instant.now(), operazione, TimeUnit.NANOSECONDS.toMillis(durata), traccia.sql(),
+                        parametri != null ? parametri.toString() : legati(traccia.parametri())));
+            }
+        }
+    }
+
+    public List<MetricheOperazione> getOperazioni() {
+        List<MetricheOperazione> elenco = new ArrayList<>(operazioni.values());
+        elenco.sort(Comparator.comparing(MetricheOperazione::getNome));
+        return elenco;
+    }
+
+    public List<OperazioneLenta> getOperazioniLente() {
+        synchronized (lente) {
+            return new ArrayList<>(lente);
+        }
+    }
+
+    public String prometheus() {
+        List<MetricheOperazione> elenco = getOperazioni();
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP bw1be_dao_latenza_secondi Latenza delle operazioni DAO\n");
+        sb.append("# TYPE bw1be_dao_latenza_secondi summary\n");
+        for (MetricheOperazione op : elenco) {
+            String etichetta = "operazione=\"" + op.getNome() + "\"";
+            for (double q : QUANTILI) {
+                sb.append("bw1be_dao_latenza_secondi{").append(etichetta).append(",quantile=\"").append(q).append("\"} ")
+                        .append(secondi(op.getLatenze().percentile(q))).append('\n');
+            }
+            sb.append("bw1be_dao_latenza_secondi_sum{").append(etichetta).append("} ")
+                    .append(secondi(op.getLatenze().somma())).append('\n');
+            sb.append("bw1be_dao_latenza_secondi_count{").append(etichetta).append("} ")
+                    .append(op.getChiamate()).append('\n');
+        }
+        contatore(sb, elenco, "bw1be_dao_rollback_totale", "Transazioni annullate", MetricheOperazione::getRollback);
+        contatore(sb, elenco, "bw1be_dao_righe_totale", "Righe restituite", MetricheOperazione::getRighe);
+        contatore(sb, elenco, "bw1be_dao_lente_totale", "Operazioni oltre la soglia di lentezza", MetricheOperazione::getLente);
+        return sb.toString();
+    }
+
+    public String json() {
+        StringBuilder sb = new StringBuilder("{\"operazioni\":[");
+        List<MetricheOperazione> elenco = getOperazioni();
+        for (int i = 0; i < elenco.size(); i++) {
+            MetricheOperazione op = elenco.get(i);
+            IstogrammaLatenze latenze = op.getLatenze();
+            if (i > 0) sb.append(',');
+            sb.append("{\"nome\":").append(testo(op.getNome()))
+                    .append(",\"chiamate\":").append(op.getChiamate())
+                    .append(",\"rollback\":").append(op.getRollback())
+                    .append(",\"righe\":").append(op.getRighe())
+                    .append(",\"lente\":").append(op.getLente())
+                    .append(",\"latenzaMs\":{\"media\":").append(millis(op.getChiamate() == 0 ? 0 : latenze.somma() / op.getChiamate()))
+                    .append(",\"p50\":").append(millis(latenze.percentile(0.5)))
+                    .append(",\"p90\":").append(millis(latenze.percentile(0.9)))
+                    .append(",\"p99\":").append(millis(latenze.percentile(0.99)))
+                    .append(",\"p999\":").append(millis(latenze.percentile(0.999)))
+                    .append(",\"max\":").append(millis(latenze.massimo()))
+                    .append("}}");
+        }
+        sb.append("],\"operazioniLente\":[");
+        List<OperazioneLenta> elencoLente = getOperazioniLente();
+        for (int i = 0; i < elencoLente.size(); i++) {
+            OperazioneLenta lenta = elencoLente.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"quando\":").append(testo(lenta.quando().toString()))
+                    .append(",\"operazione\":").append(testo(lenta.operazione()))
+                    .append(",\"millisecondi\":").append(lenta.millisecondi())
+                    .append(",\"parametri\":").append(testo(lenta.parametri()))
+                    .append(",\"sql\":[");
+            for (int j = 0; j < lenta.sql().size(); j++) {
+                if (j > 0) sb.append(',');
+                sb.append(testo(lenta.sql().get(j)));
+            }
+            sb.append("]}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String legati(List<String> parametri) {
+        return parametri.isEmpty() ? null : String.join(" ", parametri);
+    }
+
+    private void registraLenta(OperazioneLenta lenta) {
+        synchronized (lente) {
+            if (lente.size() == LENTE_CONSERVATE) {
+                lente.removeFirst();
+            }
+            lente.addLast(lenta);
+        }
+        System.err.println("Operazione lenta " + lenta.operazione() + " (" + lenta.millisecondi() + " ms)" +
+                (lenta.parametri() != null ? " parametri " + lenta.parametri() : "") + " SQL " + lenta.sql());
+    }
+
+    private static void contatore(StringBuilder sb, List<MetricheOperazione> elenco, String nome, String descrizione,
+                                  ToLongFunction<MetricheOperazione> valore) {
+        sb.append("# HELP ").append(nome).append(' ').append(descrizione).append('\n');
+        sb.append("# TYPE ").append(nome).append(" counter\n");
+        for (MetricheOperazione op : elenco) {
+            sb.append(nome).append("{operazione=\"").append(op.getNome()).append("\"} ")
+                    .append(valore.applyAsLong(op)).append('\n');
+        }
+    }
+
+    private static String secondi(long nanosecondi) {
+        return String.format(Locale.ROOT, "%.9f", nanosecondi / 1e9);
+    }
+
+    private static String millis(long nanosecondi) {
+        return String.format(Locale.ROOT, "%.3f", nanosecondi / 1e6);
+    }
+
+    private static String testo(String valore) {
+        if (valore == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : valore.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,118 @@
+package metriche;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class TracciatoreSql implements StatementInspector {
+    private static final long serialVersionUID = 1L;
+
+    private static final int ISTRUZIONI_MASSIME = 8;
+    private static final int LUNGHEZZA_MASSIMA_VALORE = 64;
+    private static final ThreadLocal<Traccia> TRACCIA = new ThreadLocal<>();
+
+    // istruzioni viste dallo StatementInspector e parametri catturati dalle connessioni avvolte
+    record Traccia(List<String> sql, List<String> parametri) {
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Traccia traccia = TRACCIA.get();
+        if (traccia != null && traccia.sql().size() < ISTRUZIONI_MASSIME) {
+            traccia.sql().add(sql);
+        }
+        return sql;
+    }
+
+    static Traccia apri() {
+        Traccia precedente = TRACCIA.get();
+        TRACCIA.set(new Traccia(new ArrayList<>(2), new ArrayList<>(2)));
+        return precedente;
+    }
+
+    static Traccia chiudi(Traccia precedente) {
+        Traccia traccia = TRACCIA.get();
+        TRACCIA.set(precedente);
+        return traccia != null ? traccia : new Traccia(List.of(), List.of());
+    }
+
+    static Connection avvolgi(Connection connessione) {
+        return (Connection) Proxy.newProxyInstance(TracciatoreSql.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, argomenti) -> {
+                    Object risultato = invoca(connessione, metodo, argomenti);
+                    if (risultato instanceof PreparedStatement statement && metodo.getName().startsWith("prepare")) {
+                        return avvolgi(statement, metodo.getReturnType());
+                    }
+                    return risultato;
+                });
+    }
+
+    private static Object avvolgi(PreparedStatement statement, Class<?> tipo) {
+        return Proxy.newProxyInstance(TracciatoreSql.class.getClassLoader(), new Class<?>[]{tipo},
+                new StatementTracciato(statement));
+    }
+
+    // registra i valori legati al primo execute/addBatch: nei batch basta la prima riga per riprodurre la query
+    private static final class StatementTracciato implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final Map<Integer, String> valori = new TreeMap<>();
+        private boolean registrato;
+
+        StatementTracciato(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] argomenti) throws Throwable {
+            String nome = metodo.getName();
+            if (!registrato && TRACCIA.get() != null) {
+                if (nome.startsWith("set") && argomenti != null && argomenti.length >= 2 && argomenti[0] instanceof Integer indice) {
+                    valori.put(indice, nome.equals("setNull") ? "null" : valore(argomenti[1]));
+                } else if (nome.startsWith("execute") || nome.equals("addBatch")) {
+                    registra();
+                }
+            }
+            return invoca(statement, metodo, argomenti);
+        }
+
+        private void registra() {
+            registrato = true;
+            Traccia traccia = TRACCIA.get();
+            if (traccia.parametri().size() < ISTRUZIONI_MASSIME && !valori.isEmpty()) {
+                traccia.parametri().add(valori.values().toString());
+            }
+        }
+    }
+
+    private static String valore(Object valore) {
+        if (valore == null) {
+            return "null";
+        }
+        if (valore instanceof InputStream || valore instanceof Reader || valore instanceof Blob || valore instanceof Clob) {
+            return valore.getClass().getSimpleName();
+        }
+        String testo = valore instanceof String ? "'" + valore + "'" : valore.toString();
+        return testo.length() > LUNGHEZZA_MASSIMA_VALORE ? testo.substring(0, LUNGHEZZA_MASSIMA_VALORE) + "…" : testo;
+    }
+
+    private static Object invoca(Object destinatario, Method metodo, Object[] argomenti) throws Throwable {
+        try {
+            return metodo.invoke(destinatario, argomenti);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
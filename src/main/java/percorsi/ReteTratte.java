@@ -0,0 +1,227 @@
+package percorsi;
+
+import cache.DizionarioFermate;
+import dto.Viaggio;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ReteTratte {
+
+    private static final int NON_RAGGIUNTO = Integer.MAX_VALUE;
+
+    private record Arco(int partenza, int arrivo, int secondiPrevisti, int secondiMisurati) {
+    }
+
+    // rete in formato CSR indicizzata per id fermata: gli archi uscenti da f stanno in [inizioArchi[f], inizioArchi[f + 1])
+    private static final class Istantanea {
+        final long versione;
+        final int fermate;
+        final int[] inizioArchi;
+        final int[] destinazioni;
+        final int[] secondiPrevisti;
+        final int[] secondiMisurati;
+        final long[] tratte;
+
+        Istantanea(long versione, Map<Long, Arco> archi) {
+            this.versione = versione;
+            int massima = -1;
+            for (Arco arco : archi.values()) {
+                massima = Math.max(massima, Math.max(arco.partenza(), arco.arrivo()));
+            }
+            fermate = massima + 1;
+            inizioArchi = new int[fermate + 1];
+            destinazioni = new int[archi.size()];
+            secondiPrevisti = new int[archi.size()];
+            secondiMisurati = new int[archi.size()];
+            tratte = new long[archi.size()];
+            for (Arco arco : archi.values()) {
+                inizioArchi[arco.partenza() + 1]++;
+            }
+            for (int f = 0; f < fermate; f++) {
+                inizioArchi[f + 1] += inizioArchi[f];
+            }
+            int[] prossimo = Arrays.copyOf(inizioArchi, fermate);
+            archi.forEach((trattaId, arco) -> {
+                int i = prossimo[arco.partenza()]++;
+                destinazioni[i] = arco.arrivo();
+                secondiPrevisti[i] = arco.secondiPrevisti();
+                secondiMisurati[i] = arco.secondiMisurati() > 0 ? arco.secondiMisurati() : arco.secondiPrevisti();
+                tratte[i] = trattaId;
+            });
+        }
+    }
+
+    private final DizionarioFermate dizionario;
+    private final Map<Long, Arco> archi = new ConcurrentHashMap<>();
+    // ogni modifica agli archi incrementa la versione dopo averli aggiornati: un'istantanea costruita
+    // da una copia precedente resta con una versione vecchia e viene ricostruita alla lettura successiva
+    private final AtomicLong versione = new AtomicLong();
+    private final ReentrantLock lockRicostruzione = new ReentrantLock();
+    private volatile Istantanea istantanea;
+
+    public ReteTratte(DizionarioFermate dizionario) {
+        this.dizionario = dizionario;
+    }
+
+    public void aggiorna(long trattaId, int partenza, int arrivo, LocalTime tempoPrevisto) {
+        archi.compute(trattaId, (id, precedente) -> new Arco(partenza, arrivo, tempoPrevisto.toSecondOfDay(),
+                precedente != null ? precedente.secondiMisurati() : 0));
+        versione.incrementAndGet();
+    }
+
+    public void impostaTempoMisurato(long trattaId, int secondiMedi) {
+        if (archi.computeIfPresent(trattaId, (id, arco) -> new Arco(arco.partenza(), arco.arrivo(), arco.secondiPrevisti(), secondiMedi)) != null) {
+            versione.incrementAndGet();
+        }
+    }
+
+    public void rimuovi(long trattaId) {
+        if (archi.remove(trattaId) != null) {
+            versione.incrementAndGet();
+        }
+    }
+
+    public int numeroTratte() {
+        return archi.size();
+    }
+
+    public Viaggio viaggioPiuBreve(String partenza, String arrivo, boolean tempiMisurati) {
+        Istantanea rete = attuale();
+        int origine = dizionario.id(partenza);
+        int destinazione = dizionario.id(arrivo);
+        if (origine < 0 || destinazione < 0 || origine >= rete.fermate || destinazione >= rete.fermate) {
+            return null;
+        }
+        int[] pesi = tempiMisurati ? rete.secondiMisurati : rete.secondiPrevisti;
+        int[] distanze = new int[rete.fermate];
+        int[] arcoEntrante = new int[rete.fermate];
+        Arrays.fill(distanze, NON_RAGGIUNTO);
+        distanze[origine] = 0;
+        arcoEntrante[origine] = -1;
+
+        // heap binario di long: distanza nei 32 bit alti, fermata nei bassi; le voci superate si scartano in estrazione
+        long[] heap = new long[Math.max(16, rete.destinazioni.length + 1)];
+        int dimensione = 0;
+        heap[dimensione++] = origine;
+        while (dimensione > 0) {
+            long minimo = heap[0];
+            heap[0] = heap[--dimensione];
+            scendi(heap, dimensione);
+            int fermata = (int) minimo;
+            int distanza = (int) (minimo >>> 32);
+            if (distanza > distanze[fermata]) {
+                continue;
+            }
+            if (fermata == destinazione) {
+                break;
+            }
+            for (int i = rete.inizioArchi[fermata]; i < rete.inizioArchi[fermata + 1]; i++) {
+                int successiva = rete.destinazioni[i];
+                int candidata = distanza + pesi[i];
+                if (candidata < distanze[successiva]) {
+                    distanze[successiva] = candidata;
+                    arcoEntrante[successiva] = i;
+                    if (dimensione == heap.length) {
+                        heap = Arrays.copyOf(heap, heap.length * 2);
+                    }
+                    heap[dimensione] = ((long) candidata << 32) | successiva;
+                    sali(heap, dimensione++);
+                }
+            }
+        }
+        if (distanze[destinazione] == NON_RAGGIUNTO) {
+            return null;
+        }
+
+        List<String> fermate = new ArrayList<>();
+        List<Long> tratte = new ArrayList<>();
+        fermate.add(dizionario.nome(destinazione));
+        for (int fermata = destinazione; arcoEntrante[fermata] >= 0 && fermata != origine; ) {
+            int arco = arcoEntrante[fermata];
+            tratte.add(rete.tratte[arco]);
+            fermata = precedente(rete, arco);
+            fermate.add(dizionario.nome(fermata));
+        }
+        Collections.reverse(fermate);
+        Collections.reverse(tratte);
+        return new Viaggio(fermate, tratte, Duration.ofSeconds(distanze[destinazione]));
+    }
+
+    private Istantanea attuale() {
+        Istantanea rete = istantanea;
+        if (rete != null && rete.versione == versione.get()) {
+            return rete;
+        }
+        lockRicostruzione.lock();
+        try {
+            long corrente = versione.get();
+            rete = istantanea;
+            if (rete == null || rete.versione != corrente) {
+                rete = new Istantanea(corrente, Map.copyOf(archi));
+                istantanea = rete;
+            }
+            return rete;
+        } finally {
+            lockRicostruzione.unlock();
+        }
+    }
+
+    private static int precedente(Istantanea rete, int arco) {
+        int basso = 0;
+        int alto = rete.fermate - 1;
+        while (basso < alto) {
+            int medio = (basso + alto + 1) >>> 1;
+            if (rete.inizioArchi[medio] <= arco) {
+                basso = medio;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return basso;
+    }
+
+    private static void sali(long[] heap, int i) {
+        long voce = heap[i];
+        while (i > 0) {
+            int genitore = (i - 1) >>> 1;
+            if (heap[genitore] <= voce) {
+                break;
+            }
+            heap[i] = heap[genitore];
+            i = genitore;
+        }
+        heap[i] = voce;
+    }
+
+    private static void scendi(long[] heap, int dimensione) {
+        if (dimensione == 0) {
+            return;
+        }
+        long voce = heap[0];
+        int i = 0;
+        while (true) {
+            int figlio = 2 * i + 1;
+            if (figlio >= dimensione) {
+                break;
+            }
+            if (figlio + 1 < dimensione && heap[figlio + 1] < heap[figlio]) {
+                figlio++;
+            }
+            if (heap[figlio] >= voce) {
+                break;
+            }
+            heap[i] = heap[figlio];
+            i = figlio;
+        }
+        heap[i] = voce;
+    }
+}
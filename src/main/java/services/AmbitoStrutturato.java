@@ -0,0 +1,48 @@
+package services;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+final class AmbitoStrutturato implements AutoCloseable {
+
+    private final ExecutorService esecutore;
+    private final AtomicReference<Exception> errore = new AtomicReference<>();
+
+    AmbitoStrutturato(ThreadFactory fabbrica) {
+        this.esecutore = Executors.newThreadPerTaskExecutor(fabbrica);
+    }
+
+    <T> Future<T> fork(Callable<T> compito) {
+        return esecutore.submit(() -> {
+            try {
+                return compito.call();
+            } catch (Exception e) {
+                if (errore.compareAndSet(null, e)) {
+                    esecutore.shutdownNow();
+                }
+                throw e;
+            }
+        });
+    }
+
+    void join() throws InterruptedException, ExecutionException {
+        esecutore.shutdown();
+        esecutore.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        Exception e = errore.get();
+        if (e != null) {
+            throw new ExecutionException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        esecutore.shutdownNow();
+        esecutore.close();
+    }
+}
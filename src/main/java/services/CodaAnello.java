@@ -0,0 +1,95 @@
+package services;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// coda MPMC limitata lock-free (Vyukov): ogni cella ha un numero di sequenza che dice se è libera o occupata
+public class CodaAnello<T> {
+
+    private final int maschera;
+    private final Object[] elementi;
+    private final AtomicLongArray sequenze;
+    private final AtomicLong coda = new AtomicLong();
+    private final AtomicLong testa = new AtomicLong();
+
+    public CodaAnello(int capacita) {
+        if (capacita < 2 || Integer.bitCount(capacita) != 1) {
+            throw new IllegalArgumentException("La capacità deve essere una potenza di due: " + capacita);
+        }
+        maschera = capacita - 1;
+        elementi = new Object[capacita];
+        sequenze = new AtomicLongArray(capacita);
+        for (int i = 0; i < capacita; i++) {
+            sequenze.set(i, i);
+        }
+    }
+
+    public boolean offri(T elemento) {
+        long posizione = coda.get();
+        int indice;
+        while (true) {
+            indice = (int) (posizione & maschera);
+            long differenza = sequenze.get(indice) - posizione;
+            if (differenza == 0) {
+                if (coda.compareAndSet(posizione, posizione + 1)) {
+                    break;
+                }
+                posizione = coda.get();
+            } else if (differenza < 0) {
+                return false;
+            } else {
+                posizione = coda.get();
+            }
+        }
+        elementi[indice] = elemento;
+        sequenze.set(indice, posizione + 1);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T preleva() {
+        long posizione = testa.get();
+        int indice;
+        while (true) {
+            indice = (int) (posizione & maschera);
+            long differenza = sequenze.get(indice) - (posizione + 1);
+            if (differenza == 0) {
+                if (testa.compareAndSet(posizione, posizione + 1)) {
+                    break;
+                }
+                posizione = testa.get();
+            } else if (differenza < 0) {
+                return null;
+            } else {
+                posizione = testa.get();
+            }
+        }
+        T elemento = (T) elementi[indice];
+        elementi[indice] = null;
+        sequenze.set(indice, posizione + maschera + 1);
+        return elemento;
+    }
+
+    public int svuotaIn(List<T> destinazione, int massimo) {
+        int prelevati = 0;
+        T elemento;
+        while (prelevati < massimo && (elemento = preleva()) != null) {
+            destinazione.add(elemento);
+            prelevati++;
+        }
+        return prelevati;
+    }
+
+    public int dimensione() {
+        return (int) Math.max(0, coda.get() - testa.get());
+    }
+
+    public boolean isVuota() {
+        return dimensione() == 0;
+    }
+
+    public int capacita() {
+        return maschera + 1;
+    }
+}
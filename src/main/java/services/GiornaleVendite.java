@@ -0,0 +1,221 @@
+package services;
+
+import dto.VenditaRegistrata;
+import entities.Biglietto;
+import exceptions.GiornalePienoException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+public class GiornaleVendite implements AutoCloseable {
+
+    private record Attesa(UUID codice, CompletableFuture<UUID> esito) {
+    }
+
+    private static final int MAGIA = 0x42574752;
+    private static final int INTESTAZIONE = 16;
+    private static final int POS_APPLICATO = 8;
+    // record: lunghezza, crc, sequenza, codice (2 long), durata, prezzo, giorno epoch, punto di emissione
+    private static final int CORPO = 8 + 16 + 4 + 8 + 8 + 8;
+    private static final int RECORD = 8 + CORPO;
+    private static final long SENZA_DATA = Long.MIN_VALUE;
+
+    // i record occupano un anello di posizioni: il record n sta nella posizione n % posizioni e porta n con sé,
+    // così in ripresa un record di un giro precedente non viene scambiato per uno nuovo
+    private final FileChannel canale;
+    private final MappedByteBuffer buffer;
+    private final long posizioni;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService sincronizzatore;
+    private final long intervalloFsyncNanos;
+    private List<Attesa> inAttesaDiFsync = new ArrayList<>();
+    private long applicato;
+    // ultimo applicato reso durevole: solo le posizioni prima di questo possono essere riscritte
+    private long liberato;
+    private long scritto;
+
+    public GiornaleVendite(Path file, int capacita, Duration intervalloFsync) {
+        this.posizioni = (capacita - INTESTAZIONE) / RECORD;
+        if (posizioni < 1) {
+            throw new IllegalArgumentException("Capacità del giornale insufficiente: " + capacita + " byte");
+        }
+        try {
+            this.canale = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = canale.map(FileChannel.MapMode.READ_WRITE, 0, capacita);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile aprire il giornale delle vendite " + file, e);
+        }
+        if (buffer.getInt(0) == MAGIA) {
+            applicato = buffer.getLong(POS_APPLICATO);
+        } else {
+            buffer.putInt(0, MAGIA);
+            applicato = 0;
+            buffer.putLong(POS_APPLICATO, applicato);
+            buffer.force();
+        }
+        liberato = applicato;
+        scritto = applicato;
+        while (scritto - applicato < posizioni && valido(scritto)) {
+            scritto++;
+        }
+        this.intervalloFsyncNanos = intervalloFsync.toNanos();
+        this.sincronizzatore = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "giornale-fsync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void avvia() {
+        sincronizzatore.scheduleWithFixedDelay(this::sincronizza, intervalloFsyncNanos, intervalloFsyncNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public CompletableFuture<UUID> registra(Biglietto biglietto) {
+        if (biglietto.getCodiceVendita() == null) {
+            biglietto.setCodiceVendita(UUID.randomUUID());
+        }
+        UUID codice = biglietto.getCodiceVendita();
+        CompletableFuture<UUID> durevole = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (scritto - liberato >= posizioni) {
+                throw new GiornalePienoException(scritto - applicato);
+            }
+            int pos = posizione(scritto);
+            buffer.putLong(pos + 8, scritto);
+            buffer.putLong(pos + 16, codice.getMostSignificantBits());
+            buffer.putLong(pos + 24, codice.getLeastSignificantBits());
+            buffer.putInt(pos + 32, biglietto.getDurataBiglietto());
+            buffer.putDouble(pos + 36, biglietto.getPrezzo());
+            buffer.putLong(pos + 44, biglietto.getDataEmissione() != null ? biglietto.getDataEmissione().toEpochDay() : SENZA_DATA);
+            buffer.putLong(pos + 52, biglietto.getPuntoEmissione() != null ? biglietto.getPuntoEmissione().getIdPuntoEmissione() : 0);
+            buffer.putInt(pos + 4, crc(pos));
+            buffer.putInt(pos, CORPO);
+            scritto++;
+            inAttesaDiFsync.add(new Attesa(codice, durevole));
+        } finally {
+            lock.unlock();
+        }
+        return durevole;
+    }
+
+    public List<VenditaRegistrata> daApplicare(int massimo) {
+        long fine;
+        long inizio;
+        lock.lock();
+        try {
+            inizio = applicato;
+            fine = Math.min(scritto, applicato + massimo);
+        } finally {
+            lock.unlock();
+        }
+        List<VenditaRegistrata> vendite = new ArrayList<>((int) (fine - inizio));
+        for (long n = inizio; n < fine; n++) {
+            int pos = posizione(n);
+            long giorno = buffer.getLong(pos + 44);
+            long punto = buffer.getLong(pos + 52);
+            vendite.add(new VenditaRegistrata(new UUID(buffer.getLong(pos + 16), buffer.getLong(pos + 24)),
+                    buffer.getInt(pos + 32), buffer.getDouble(pos + 36),
+                    giorno != SENZA_DATA ? LocalDate.ofEpochDay(giorno) : null, punto != 0 ? punto : null));
+        }
+        return vendite;
+    }
+
+    // le posizioni confermate tornano scrivibili solo dopo che il nuovo applicato è su disco:
+    // altrimenti un crash lascerebbe un applicato vecchio che punta a record già sovrascritti
+    public void conferma(int applicate) {
+        long confermato;
+        lock.lock();
+        try {
+            applicato += applicate;
+            confermato = applicato;
+            buffer.putLong(POS_APPLICATO, applicato);
+        } finally {
+            lock.unlock();
+        }
+        buffer.force(0, INTESTAZIONE);
+        lock.lock();
+        try {
+            liberato = Math.max(liberato, confermato);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inSospeso() {
+        lock.lock();
+        try {
+            return (int) (scritto - applicato);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void sincronizza() {
+        List<Attesa> completate;
+        lock.lock();
+        try {
+            if (inAttesaDiFsync.isEmpty()) {
+                return;
+            }
+            completate = inAttesaDiFsync;
+            inAttesaDiFsync = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            buffer.force();
+            completate.forEach(attesa -> attesa.esito().complete(attesa.codice()));
+        } catch (UncheckedIOException e) {
+            completate.forEach(attesa -> attesa.esito().completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public void close() {
+        sincronizzatore.shutdown();
+        try {
+            sincronizzatore.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sincronizza();
+        try {
+            canale.close();
+        } catch (IOException e) {
+            System.err.println("Errore durante la chiusura del giornale delle vendite: " + e.getMessage());
+        }
+    }
+
+    private int posizione(long n) {
+        return INTESTAZIONE + (int) (n % posizioni) * RECORD;
+    }
+
+    private boolean valido(long n) {
+        int pos = posizione(n);
+        return buffer.getInt(pos) == CORPO
+                && buffer.getLong(pos + 8) == n
+                && buffer.getInt(pos + 4) == crc(pos);
+    }
+
+    private int crc(int pos) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(pos + 8, CORPO));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,153 @@
+package services;
+
+import dto.RichiestaValidazione;
+import enums.EsitoValidazione;
+import exceptions.CodaPienaException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class IngestoreValidazioni implements AutoCloseable {
+
+    private record Richiesta(RichiestaValidazione validazione, CompletableFuture<EsitoValidazione> esito) {
+    }
+
+    private static final long PAUSA_NANOS = 100_000;
+
+    private final ValidatoreBiglietti validatore;
+    private final CodaAnello<Richiesta> coda;
+    private final long intervalloNanos;
+    private final int dimensioneLotto;
+    private final Thread committer;
+    private final LongAdder accettate = new LongAdder();
+    private final LongAdder rifiutate = new LongAdder();
+    private final LongAdder lotti = new LongAdder();
+    private final AtomicInteger produttori = new AtomicInteger();
+    private volatile boolean attivo = true;
+    private volatile boolean inAttesa;
+
+    public IngestoreValidazioni(ValidatoreBiglietti validatore, int capacita, Duration intervallo, int dimensioneLotto) {
+        this.validatore = validatore;
+        this.coda = new CodaAnello<>(capacita);
+        this.intervalloNanos = intervallo.toNanos();
+        this.dimensioneLotto = dimensioneLotto;
+        this.committer = new Thread(this::esegui, "ingest-validazioni");
+        this.committer.setDaemon(true);
+    }
+
+    public void avvia() {
+        committer.start();
+    }
+
+    public CompletableFuture<EsitoValidazione> invia(long bigliettoId, long mezzoId) {
+        CompletableFuture<EsitoValidazione> esito = new CompletableFuture<>();
+        // chi si registra prima di leggere attivo viene atteso da close prima dell'ultimo svuotamento
+        produttori.incrementAndGet();
+        boolean accodata;
+        try {
+            accodata = attivo && coda.offri(new Richiesta(new RichiestaValidazione(bigliettoId, mezzoId), esito));
+        } finally {
+            produttori.decrementAndGet();
+        }
+        if (!accodata) {
+            rifiutate.increment();
+            esito.completeExceptionally(new CodaPienaException(coda.capacita()));
+            return esito;
+        }
+        accettate.increment();
+        if (inAttesa) {
+            LockSupport.unpark(committer);
+        }
+        return esito;
+    }
+
+    public int inAttesaDiCommit() {
+        return coda.dimensione();
+    }
+
+    public long getAccettate() {
+        return accettate.sum();
+    }
+
+    public long getRifiutate() {
+        return rifiutate.sum();
+    }
+
+    public long getLotti() {
+        return lotti.sum();
+    }
+
+    @Override
+    public void close() {
+        attivo = false;
+        LockSupport.unpark(committer);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (produttori.get() > 0) {
+            Thread.onSpinWait();
+        }
+        List<Richiesta> rimaste = new ArrayList<>();
+        coda.svuotaIn(rimaste, Integer.MAX_VALUE);
+        if (!rimaste.isEmpty()) {
+            committa(rimaste);
+        }
+    }
+
+    private void esegui() {
+        List<Richiesta> lotto = new ArrayList<>(dimensioneLotto);
+        while (attivo || !coda.isVuota()) {
+            if (coda.svuotaIn(lotto, dimensioneLotto) == 0) {
+                inAttesa = true;
+                if (coda.isVuota() && attivo) {
+                    LockSupport.parkNanos(this, intervalloNanos);
+                }
+                inAttesa = false;
+                continue;
+            }
+            long scadenza = System.nanoTime() + intervalloNanos;
+            while (lotto.size() < dimensioneLotto && System.nanoTime() < scadenza) {
+                if (coda.svuotaIn(lotto, dimensioneLotto - lotto.size()) == 0) {
+                    LockSupport.parkNanos(this, PAUSA_NANOS);
+                }
+            }
+            committa(lotto);
+            lotto.clear();
+        }
+    }
+
+    private void committa(List<Richiesta> lotto) {
+        Map<Long, List<Richiesta>> perBiglietto = new LinkedHashMap<>();
+        List<RichiestaValidazione> richieste = new ArrayList<>(lotto.size());
+        for (Richiesta richiesta : lotto) {
+            List<Richiesta> stesse = perBiglietto.computeIfAbsent(richiesta.validazione().bigliettoId(), id -> new ArrayList<>(1));
+            if (stesse.isEmpty()) {
+                richieste.add(richiesta.validazione());
+            }
+            stesse.add(richiesta);
+        }
+        lotti.increment();
+        try {
+            Map<Long, EsitoValidazione> esiti = validatore.validaBatch(richieste);
+            perBiglietto.forEach((id, stesse) -> {
+                EsitoValidazione esito = esiti.get(id);
+                stesse.get(0).esito().complete(esito);
+                EsitoValidazione duplicati = esito == EsitoValidazione.VALIDATO ? EsitoValidazione.GIA_VALIDATO : esito;
+                for (int i = 1; i < stesse.size(); i++) {
+                    stesse.get(i).esito().complete(duplicati);
+                }
+            });
+        } catch (RuntimeException e) {
+            lotto.forEach(richiesta -> richiesta.esito().completeExceptionally(e));
+        }
+    }
+}
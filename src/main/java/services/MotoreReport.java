@@ -0,0 +1,126 @@
+package services;
+
+import dao.Annullamento;
+import dto.TotaliPeriodo;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MotoreReport {
+
+    @FunctionalInterface
+    public interface ReportPeriodo {
+        TotaliPeriodo calcola(LocalDate dataInizio, LocalDate dataFine, int timeoutMillis, Annullamento annullamento);
+    }
+
+    private record Blocco(LocalDate inizio, LocalDate fine) {
+    }
+
+    private final ServizioTrasporti servizioTrasporti;
+    private final int parallelismo;
+
+    public MotoreReport(ServizioTrasporti servizioTrasporti, int parallelismo) {
+        this.servizioTrasporti = servizioTrasporti;
+        this.parallelismo = Math.max(1, parallelismo);
+    }
+
+    public CompletableFuture<TotaliPeriodo> esegui(LocalDate dataInizio, LocalDate dataFine, Duration timeout, ReportPeriodo report) {
+        List<Blocco> blocchi = blocchiMensili(dataInizio, dataFine);
+        if (blocchi.isEmpty()) {
+            return CompletableFuture.completedFuture(TotaliPeriodo.VUOTO);
+        }
+        Esecuzione esecuzione = new Esecuzione(blocchi, System.nanoTime() + timeout.toNanos(), report);
+        esecuzione.risultato.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        esecuzione.risultato.whenComplete((totali, errore) -> {
+            if (errore != null) {
+                esecuzione.inCorso.forEach(Annullamento::annulla);
+            }
+        });
+        for (int i = 0; i < Math.min(parallelismo, blocchi.size()); i++) {
+            esecuzione.avviaProssimo();
+        }
+        return esecuzione.risultato;
+    }
+
+    private static List<Blocco> blocchiMensili(LocalDate dataInizio, LocalDate dataFine) {
+        List<Blocco> blocchi = new ArrayList<>();
+        for (LocalDate inizio = dataInizio; !inizio.isAfter(dataFine); ) {
+            LocalDate fineMese = inizio.with(TemporalAdjusters.lastDayOfMonth());
+            LocalDate fine = fineMese.isBefore(dataFine) ? fineMese : dataFine;
+            blocchi.add(new Blocco(inizio, fine));
+            inizio = fine.plusDays(1);
+        }
+        return blocchi;
+    }
+
+    // finestra scorrevole: al termine di ogni blocco parte il successivo, mai più di `parallelismo` connessioni
+    private final class Esecuzione {
+
+        private final List<Blocco> blocchi;
+        private final long scadenzaNanos;
+        private final ReportPeriodo report;
+        private final TotaliPeriodo[] parziali;
+        private final AtomicInteger prossimo = new AtomicInteger();
+        private final AtomicInteger mancanti;
+        private final ConcurrentLinkedQueue<Annullamento> inCorso = new ConcurrentLinkedQueue<>();
+        private final CompletableFuture<TotaliPeriodo> risultato = new CompletableFuture<>();
+
+        Esecuzione(List<Blocco> blocchi, long scadenzaNanos, ReportPeriodo report) {
+            this.blocchi = blocchi;
+            this.scadenzaNanos = scadenzaNanos;
+            this.report = report;
+            this.parziali = new TotaliPeriodo[blocchi.size()];
+            this.mancanti = new AtomicInteger(blocchi.size());
+        }
+
+        void avviaProssimo() {
+            int indice = prossimo.getAndIncrement();
+            if (indice >= blocchi.size() || risultato.isDone()) {
+                return;
+            }
+            Blocco blocco = blocchi.get(indice);
+            Annullamento annullamento = new Annullamento();
+            inCorso.add(annullamento);
+            if (risultato.isDone()) {
+                annullamento.annulla();
+            }
+            CompletableFuture<TotaliPeriodo> parziale = servizioTrasporti.esegui(() -> {
+                if (risultato.isDone()) {
+                    throw new CancellationException("Report annullato");
+                }
+                long rimanenti = TimeUnit.NANOSECONDS.toMillis(scadenzaNanos - System.nanoTime());
+                if (rimanenti <= 0) {
+                    throw new CompletionException(new TimeoutException("Tempo scaduto prima del blocco " + blocco.inizio()));
+                }
+                return report.calcola(blocco.inizio(), blocco.fine(), (int) Math.min(Integer.MAX_VALUE, rimanenti), annullamento);
+            });
+            parziale.whenComplete((totali, errore) -> {
+                inCorso.remove(annullamento);
+                if (errore != null) {
+                    risultato.completeExceptionally(errore instanceof CompletionException ? errore.getCause() : errore);
+                    return;
+                }
+                parziali[indice] = totali;
+                if (mancanti.decrementAndGet() == 0) {
+                    TotaliPeriodo somma = TotaliPeriodo.VUOTO;
+                    for (TotaliPeriodo p : parziali) {
+                        somma = somma.unisci(p);
+                    }
+                    risultato.complete(somma);
+                } else {
+                    avviaProssimo();
+                }
+            });
+        }
+    }
+}
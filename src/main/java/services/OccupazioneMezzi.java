@@ -0,0 +1,127 @@
+package services;
+
+import cache.DisponibilitaFlotta;
+import enums.FinestraOccupazione;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OccupazioneMezzi {
+
+    private static final int MINUTI_ANELLO = 60;
+    private static final long MILLIS_MINUTO = 60_000;
+
+    private record Secchio(long periodo, LongAdder salite) {
+        Secchio(long periodo) {
+            this(periodo, new LongAdder());
+        }
+    }
+
+    // un secchio per minuto in un anello di un'ora più un secchio per il giorno corrente;
+    // il secchio di un minuto viene sostituito solo quando l'anello torna sullo stesso slot un'ora dopo
+    private static final class Contatori {
+        final AtomicReferenceArray<Secchio> minuti = new AtomicReferenceArray<>(MINUTI_ANELLO);
+        final AtomicReference<Secchio> giorno = new AtomicReference<>();
+    }
+
+    private final DisponibilitaFlotta flotta;
+    private final Clock orologio;
+    private final Map<Long, Contatori> perMezzo = new ConcurrentHashMap<>();
+
+    public OccupazioneMezzi(DisponibilitaFlotta flotta) {
+        this(flotta, Clock.systemDefaultZone());
+    }
+
+    OccupazioneMezzi(DisponibilitaFlotta flotta, Clock orologio) {
+        this.flotta = flotta;
+        this.orologio = orologio;
+    }
+
+    public void registraSalita(long mezzoId) {
+        long minuto = orologio.millis() / MILLIS_MINUTO;
+        long giorno = LocalDate.now(orologio).toEpochDay();
+        Contatori contatori = perMezzo.computeIfAbsent(mezzoId, id -> new Contatori());
+        secchioMinuto(contatori, minuto).salite().increment();
+        secchioGiorno(contatori, giorno).salite().increment();
+    }
+
+    public long salite(long mezzoId, FinestraOccupazione finestra) {
+        Contatori contatori = perMezzo.get(mezzoId);
+        if (contatori == null) {
+            return 0;
+        }
+        if (finestra == FinestraOccupazione.OGGI) {
+            Secchio oggi = contatori.giorno.get();
+            return oggi != null && oggi.periodo() == LocalDate.now(orologio).toEpochDay() ? oggi.salite().sum() : 0;
+        }
+        int ampiezza = finestra == FinestraOccupazione.ULTIMI_5_MINUTI ? 5 : MINUTI_ANELLO;
+        long minuto = orologio.millis() / MILLIS_MINUTO;
+        long totale = 0;
+        for (long m = minuto - ampiezza + 1; m <= minuto; m++) {
+            Secchio secchio = contatori.minuti.get(slot(m));
+            if (secchio != null && secchio.periodo() == m) {
+                totale += secchio.salite().sum();
+            }
+        }
+        return totale;
+    }
+
+    // senza timbrature in uscita le salite nella finestra approssimano i passeggeri a bordo
+    public double fattoreCarico(long mezzoId, FinestraOccupazione finestra) {
+        int capienza = flotta.capienza(mezzoId);
+        return capienza > 0 ? (double) salite(mezzoId, finestra) / capienza : 0;
+    }
+
+    public List<Long> mezziOltreSoglia(FinestraOccupazione finestra, double soglia) {
+        Map<Long, Double> carichi = new HashMap<>();
+        for (Long mezzoId : perMezzo.keySet()) {
+            double carico = fattoreCarico(mezzoId, finestra);
+            if (carico >= soglia) {
+                carichi.put(mezzoId, carico);
+            }
+        }
+        List<Long> affollati = new ArrayList<>(carichi.keySet());
+        affollati.sort(Comparator.comparing(carichi::get, Comparator.reverseOrder()));
+        return affollati;
+    }
+
+    private static Secchio secchioMinuto(Contatori contatori, long minuto) {
+        int slot = slot(minuto);
+        while (true) {
+            Secchio attuale = contatori.minuti.get(slot);
+            if (attuale != null && attuale.periodo() >= minuto) {
+                return attuale.periodo() == minuto ? attuale : new Secchio(minuto);
+            }
+            Secchio nuovo = new Secchio(minuto);
+            if (contatori.minuti.compareAndSet(slot, attuale, nuovo)) {
+                return nuovo;
+            }
+        }
+    }
+
+    private static Secchio secchioGiorno(Contatori contatori, long giorno) {
+        while (true) {
+            Secchio attuale = contatori.giorno.get();
+            if (attuale != null && attuale.periodo() >= giorno) {
+                return attuale.periodo() == giorno ? attuale : new Secchio(giorno);
+            }
+            Secchio nuovo = new Secchio(giorno);
+            if (contatori.giorno.compareAndSet(attuale, nuovo)) {
+                return nuovo;
+            }
+        }
+    }
+
+    private static int slot(long minuto) {
+        return (int) Math.floorMod(minuto, (long) MINUTI_ANELLO);
+    }
+}
@@ -0,0 +1,88 @@
+package services;
+
+import dao.BigliettoDAO;
+import dto.VenditaRegistrata;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class RiproduttoreGiornale implements AutoCloseable {
+
+    private static final long ATTESA_MASSIMA_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final GiornaleVendite giornale;
+    private final BigliettoDAO bigliettoDAO;
+    private final int dimensioneLotto;
+    private final long intervalloNanos;
+    private final Thread riproduttore;
+    private final LongAdder riversate = new LongAdder();
+    private volatile boolean attivo = true;
+
+    public RiproduttoreGiornale(GiornaleVendite giornale, BigliettoDAO bigliettoDAO, int dimensioneLotto, Duration intervallo) {
+        this.giornale = giornale;
+        this.bigliettoDAO = bigliettoDAO;
+        this.dimensioneLotto = dimensioneLotto;
+        this.intervalloNanos = intervallo.toNanos();
+        this.riproduttore = new Thread(this::esegui, "riproduttore-giornale");
+        this.riproduttore.setDaemon(true);
+    }
+
+    public void avvia() {
+        riproduttore.start();
+    }
+
+    public long getRiversate() {
+        return riversate.sum();
+    }
+
+    @Override
+    public void close() {
+        attivo = false;
+        LockSupport.unpark(riproduttore);
+        try {
+            riproduttore.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            while (riversa() > 0) {
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Vendite non riversate, verranno riprese al prossimo avvio: " + giornale.inSospeso());
+        }
+    }
+
+    private void esegui() {
+        long attesa = intervalloNanos;
+        boolean segnalato = false;
+        while (attivo) {
+            try {
+                if (riversa() == 0) {
+                    LockSupport.parkNanos(this, intervalloNanos);
+                }
+                attesa = intervalloNanos;
+                segnalato = false;
+            } catch (RuntimeException e) {
+                if (!segnalato) {
+                    System.err.println("Database non raggiungibile, vendite trattenute nel giornale: " + e.getMessage());
+                    segnalato = true;
+                }
+                attesa = Math.min(attesa * 2, ATTESA_MASSIMA_NANOS);
+                LockSupport.parkNanos(this, attesa);
+            }
+        }
+    }
+
+    private int riversa() {
+        List<VenditaRegistrata> lotto = giornale.daApplicare(dimensioneLotto);
+        if (lotto.isEmpty()) {
+            return 0;
+        }
+        riversate.add(bigliettoDAO.salvaVendite(lotto));
+        giornale.conferma(lotto.size());
+        return lotto.size();
+    }
+}
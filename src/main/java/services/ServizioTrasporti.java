@@ -0,0 +1,162 @@
+package services;
+
+import dao.AbbonamentoDAO;
+import dao.BigliettoDAO;
+import dao.TesseraDAO;
+import dao.UnitOfWork;
+import dto.EsitoAccesso;
+import entities.Abbonamento;
+import entities.Biglietto;
+import entities.DistributoreAutomatico;
+import entities.Tessera;
+import enums.EsitoValidazione;
+import exceptions.NotFoundException;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+public class ServizioTrasporti implements AutoCloseable {
+
+    // connessioni del pool lasciate a chi non passa dal semaforo: committer delle validazioni,
+    // riproduttore del giornale, pianificatore e thread del menu
+    private static final int CONNESSIONI_DI_SERVIZIO = 4;
+
+    private final BigliettoDAO bigliettoDAO;
+    private final AbbonamentoDAO abbonamentoDAO;
+    private final TesseraDAO tesseraDAO;
+    private final IngestoreValidazioni ingestoreValidazioni;
+    private final GiornaleVendite giornaleVendite;
+    private final OccupazioneMezzi occupazione;
+    private final Semaphore connessioni;
+    private final ThreadFactory fabbricaSottocompiti = Thread.ofVirtual().name("servizio-sottocompito-", 0).factory();
+    private final ExecutorService esecutore = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("servizio-", 0).factory());
+
+    public ServizioTrasporti(UnitOfWork uow, BigliettoDAO bigliettoDAO, AbbonamentoDAO abbonamentoDAO,
+                             TesseraDAO tesseraDAO, IngestoreValidazioni ingestoreValidazioni, GiornaleVendite giornaleVendite,
+                             OccupazioneMezzi occupazione) {
+        this.bigliettoDAO = bigliettoDAO;
+        this.abbonamentoDAO = abbonamentoDAO;
+        this.tesseraDAO = tesseraDAO;
+        this.ingestoreValidazioni = ingestoreValidazioni;
+        this.giornaleVendite = giornaleVendite;
+        this.occupazione = occupazione;
+        this.connessioni = new Semaphore(Math.max(1, uow.getDimensionePool() - CONNESSIONI_DI_SERVIZIO), true);
+    }
+
+    public <T> CompletableFuture<T> esegui(Supplier<T> operazione) {
+        return CompletableFuture.supplyAsync(() -> conConnessione(operazione), esecutore);
+    }
+
+    // le vendite dei distributori diventano righe solo quando il giornale viene riversato: l'id non esiste ancora,
+    // quindi il biglietto si identifica sempre con il codice di vendita (BigliettoDAO.findByCodiceVendita)
+    public CompletableFuture<UUID> emettiBiglietto(Biglietto biglietto) {
+        if (biglietto.getCodiceVendita() == null) {
+            biglietto.setCodiceVendita(UUID.randomUUID());
+        }
+        if (biglietto.getPuntoEmissione() instanceof DistributoreAutomatico) {
+            return giornaleVendite.registra(biglietto);
+        }
+        return esegui(() -> {
+            bigliettoDAO.save(biglietto);
+            return biglietto.getCodiceVendita();
+        });
+    }
+
+    public CompletableFuture<Abbonamento> emettiAbbonamento(Abbonamento abbonamento) {
+        return esegui(() -> {
+            abbonamentoDAO.save(abbonamento);
+            return abbonamento;
+        });
+    }
+
+    public CompletableFuture<EsitoValidazione> validaBiglietto(long bigliettoId, long mezzoId) {
+        return ingestoreValidazioni.invia(bigliettoId, mezzoId).thenApply(esito -> {
+            if (esito == EsitoValidazione.VALIDATO) {
+                occupazione.registraSalita(mezzoId);
+            }
+            return esito;
+        });
+    }
+
+    public CompletableFuture<Tessera> trovaTessera(long tesseraId) {
+        return esegui(() -> tesseraDAO.findById(tesseraId));
+    }
+
+    public CompletableFuture<Long> contaBigliettiPerPeriodo(LocalDate dataInizio, LocalDate dataFine) {
+        return esegui(() -> bigliettoDAO.countBigliettiByPeriodo(dataInizio, dataFine));
+    }
+
+    public CompletableFuture<Long> contaBigliettiVidimatiPerMezzo(long mezzoId, LocalDate dataInizio, LocalDate dataFine) {
+        return esegui(() -> bigliettoDAO.countBigliettiVidimatiByMezzo(mezzoId, dataInizio, dataFine));
+    }
+
+    public CompletableFuture<Long> contaAbbonamentiPerPeriodo(LocalDate dataInizio, LocalDate dataFine) {
+        return esegui(() -> abbonamentoDAO.countAbbonamentiByPeriodo(dataInizio, dataFine));
+    }
+
+    public CompletableFuture<EsitoAccesso> verificaTessera(long tesseraId) {
+        return controllaAccesso(tesseraId, null, null);
+    }
+
+    public CompletableFuture<EsitoAccesso> controllaAccesso(long tesseraId, Long bigliettoId, Long mezzoId) {
+        return CompletableFuture.supplyAsync(() -> {
+            Tessera tessera;
+            Abbonamento abbonamento;
+            try (AmbitoStrutturato ambito = new AmbitoStrutturato(fabbricaSottocompiti)) {
+                Future<Tessera> tesseraTrovata = ambito.fork(() -> conConnessione(() -> tesseraDAO.findById(tesseraId)));
+                Future<Abbonamento> abbonamentoValido = ambito.fork(() -> conConnessione(() -> tesseraDAO.findAbbonamentoValidoByTessera(tesseraId)));
+                ambito.join();
+                tessera = tesseraTrovata.resultNow();
+                abbonamento = abbonamentoValido.resultNow();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Controllo della tessera " + tesseraId + " interrotto");
+            } catch (ExecutionException e) {
+                throw new CompletionException(e.getCause());
+            }
+            if (tessera == null) {
+                throw new NotFoundException("Id " + tesseraId + " non trovato");
+            }
+            if (abbonamento != null || bigliettoId == null) {
+                if (abbonamento != null && mezzoId != null) {
+                    occupazione.registraSalita(mezzoId);
+                }
+                return new EsitoAccesso(tessera, abbonamento, null);
+            }
+            return new EsitoAccesso(tessera, null, validaBiglietto(bigliettoId, mezzoId).join());
+        }, esecutore);
+    }
+
+    public int connessioniDisponibili() {
+        return connessioni.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        esecutore.close();
+    }
+
+    private <T> T conConnessione(Supplier<T> operazione) {
+        try {
+            connessioni.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Operazione interrotta in attesa di una connessione");
+        }
+        try {
+            return operazione.get();
+        } finally {
+            connessioni.release();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package services;
+
+import cache.RegistroBiglietti;
+import dao.UnitOfWork;
+import dto.RichiestaValidazione;
+import enums.EsitoValidazione;
+import org.hibernate.Session;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ValidatoreBiglietti {
+
+    private static final int DIMENSIONE_BLOCCO = 500;
+
+    public static final String UPDATE_CONDIZIONALE =
+            "UPDATE biglietto b SET \"Data validazione\" = ?, id_mezzo_validante = v.mezzo " +
+                    "FROM unnest(?::bigint[], ?::bigint[]) AS v(id, mezzo) " +
+                    "WHERE b.id = v.id AND b.\"Data validazione\" IS NULL " +
+                    "RETURNING b.id";
+
+    public static final String SELECT_ESISTENTI =
+            "SELECT b.id FROM biglietto b WHERE b.id = ANY (?::bigint[])";
+
+    public static final String SELECT_GIA_VALIDATI =
+            "SELECT b.id FROM biglietto b WHERE b.id = ANY (?::bigint[]) AND b.\"Data validazione\" IS NOT NULL";
+
+    // solo le validazioni del giorno corrente: dal giorno dopo i duplicati li respinge l'update condizionale
+    private record ValidatiDelGiorno(LocalDate giorno, Set<Long> ids) {
+    }
+
+    private final UnitOfWork uow;
+    private final RegistroBiglietti registro;
+    private final AtomicReference<ValidatiDelGiorno> validati =
+            new AtomicReference<>(new ValidatiDelGiorno(LocalDate.now(), ConcurrentHashMap.newKeySet()));
+
+    public ValidatoreBiglietti(UnitOfWork uow, RegistroBiglietti registro) {
+        this.uow = uow;
+        this.registro = registro;
+    }
+
+    public EsitoValidazione valida(long bigliettoId, long mezzoId) {
+        return validaBatch(List.of(new RichiestaValidazione(bigliettoId, mezzoId))).get(bigliettoId);
+    }
+
+    public Map<Long, EsitoValidazione> validaBatch(Collection<RichiestaValidazione> richieste) {
+        Map<Long, EsitoValidazione> esiti = new HashMap<>();
+        Map<Long, Long> daValidare = new LinkedHashMap<>();
+        LocalDate oggi = LocalDate.now();
+        Set<Long> validatiOggi = validatiDel(oggi);
+
+        for (RichiestaValidazione richiesta : richieste) {
+            long id = richiesta.bigliettoId();
+            if (esiti.containsKey(id) || daValidare.containsKey(id)) {
+                continue;
+            }
+            if (registro.sicuramenteNonEmesso(id)) {
+                esiti.put(id, EsitoValidazione.NON_TROVATO);
+            } else if (validatiOggi.add(id)) {
+                daValidare.put(id, richiesta.mezzoId());
+            } else {
+                esiti.put(id, EsitoValidazione.GIA_VALIDATO);
+            }
+        }
+
+        if (daValidare.isEmpty()) {
+            return esiti;
+        }
+
+        try {
+            esiti.putAll(applica(daValidare, oggi));
+        } catch (RuntimeException e) {
+            validatiOggi.removeAll(daValidare.keySet());
+            throw e;
+        }
+
+        esiti.forEach((id, esito) -> {
+            if (esito == EsitoValidazione.NON_TROVATO) {
+                validatiOggi.remove(id);
+            } else {
+                registro.registraEmissione(id);
+                registro.registraValidazione(id);
+            }
+        });
+        return esiti;
+    }
+
+    public boolean isValidato(long bigliettoId) {
+        return validatiDel(LocalDate.now()).contains(bigliettoId);
+    }
+
+    private Set<Long> validatiDel(LocalDate giorno) {
+        while (true) {
+            ValidatiDelGiorno attuali = validati.get();
+            if (!attuali.giorno().isBefore(giorno)) {
+                return attuali.ids();
+            }
+            ValidatiDelGiorno nuovi = new ValidatiDelGiorno(giorno, ConcurrentHashMap.newKeySet());
+            if (validati.compareAndSet(attuali, nuovi)) {
+                return nuovi.ids();
+            }
+        }
+    }
+
+    private Map<Long, EsitoValidazione> applica(Map<Long, Long> daValidare, LocalDate oggi) {
+        return uow.inTransazione(em -> {
+            Map<Long, EsitoValidazione> esiti = new HashMap<>();
+            List<Map.Entry<Long, Long>> voci = new ArrayList<>(daValidare.entrySet());
+            for (int i = 0; i < voci.size(); i += DIMENSIONE_BLOCCO) {
+                List<Map.Entry<Long, Long>> blocco = voci.subList(i, Math.min(i + DIMENSIONE_BLOCCO, voci.size()));
+                em.unwrap(Session.class).doWork(connection -> esiti.putAll(applicaBlocco(connection, blocco, oggi)));
+            }
+            return esiti;
+        });
+    }
+
+    private Map<Long, EsitoValidazione> applicaBlocco(Connection connection, List<Map.Entry<Long, Long>> blocco, LocalDate oggi) throws SQLException {
+        Map<Long, EsitoValidazione> esiti = new HashMap<>();
+        List<Long> probabiliDuplicati = new ArrayList<>();
+        for (Map.Entry<Long, Long> voce : blocco) {
+            if (registro.forseValidato(voce.getKey())) {
+                probabiliDuplicati.add(voce.getKey());
+            }
+        }
+        // i positivi del filtro dei validati si confermano con una lettura, senza tentare l'update che blocca le righe
+        if (!probabiliDuplicati.isEmpty()) {
+            try (PreparedStatement select = connection.prepareStatement(SELECT_GIA_VALIDATI)) {
+                select.setArray(1, connection.createArrayOf("bigint", probabiliDuplicati.toArray()));
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        esiti.put(rs.getLong(1), EsitoValidazione.GIA_VALIDATO);
+                    }
+                }
+            }
+            if (esiti.size() == blocco.size()) {
+                return esiti;
+            }
+        }
+
+        List<Long> idDaAggiornare = new ArrayList<>(blocco.size() - esiti.size());
+        List<Long> mezziDaAggiornare = new ArrayList<>(blocco.size() - esiti.size());
+        for (Map.Entry<Long, Long> voce : blocco) {
+            if (!esiti.containsKey(voce.getKey())) {
+                idDaAggiornare.add(voce.getKey());
+                mezziDaAggiornare.add(voce.getValue());
+            }
+        }
+        Long[] ids = idDaAggiornare.toArray(new Long[0]);
+        Long[] mezzi = mezziDaAggiornare.toArray(new Long[0]);
+        int giaValidati = esiti.size();
+
+        Array arrayIds = connection.createArrayOf("bigint", ids);
+        try (PreparedStatement update = connection.prepareStatement(UPDATE_CONDIZIONALE)) {
+            update.setDate(1, Date.valueOf(oggi));
+            update.setArray(2, arrayIds);
+            update.setArray(3, connection.createArrayOf("bigint", mezzi));
+            try (ResultSet rs = update.executeQuery()) {
+                while (rs.next()) {
+                    esiti.put(rs.getLong(1), EsitoValidazione.VALIDATO);
+                }
+            }
+        }
+
+        if (esiti.size() - giaValidati == ids.length) {
+            return esiti;
+        }
+
+        try (PreparedStatement select = connection.prepareStatement(SELECT_ESISTENTI)) {
+            select.setArray(1, arrayIds);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    esiti.putIfAbsent(rs.getLong(1), EsitoValidazione.GIA_VALIDATO);
+                }
+            }
+        }
+        for (Long id : ids) {
+            esiti.putIfAbsent(id, EsitoValidazione.NON_TROVATO);
+        }
+        return esiti;
+    }
+}
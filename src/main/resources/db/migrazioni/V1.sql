@@ -0,0 +1,28 @@
+-- Indici per biglietti e abbonamenti
+
+CREATE INDEX IF NOT EXISTS idx_biglietto_emissione
+    ON biglietto ("Data Emissione") INCLUDE (id);
+
+CREATE INDEX IF NOT EXISTS idx_biglietto_punto_emissione
+    ON biglietto (id_punto_emissione, "Data Emissione") INCLUDE (id);
+
+CREATE INDEX IF NOT EXISTS idx_biglietto_validazione
+    ON biglietto ("Data validazione") INCLUDE (id)
+    WHERE "Data validazione" IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_biglietto_mezzo_validante
+    ON biglietto (id_mezzo_validante, "Data validazione") INCLUDE (id)
+    WHERE "Data validazione" IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_abbonamento_emissione
+    ON abbonamento ("Data Emissione") INCLUDE (id);
+
+CREATE INDEX IF NOT EXISTS idx_abbonamento_punto_emissione
+    ON abbonamento (id_punto_emissione, "Data Emissione") INCLUDE (id);
+
+CREATE INDEX IF NOT EXISTS idx_abbonamento_tessera_validita
+    ON abbonamento (id_tessera, "Data scadenza validità", "Data inizio validità") INCLUDE (id);
+
+CREATE INDEX IF NOT EXISTS idx_abbonamento_scadenza
+    ON abbonamento ("Data scadenza validità") INCLUDE (id_tessera, id, "Data inizio validità")
+    WHERE id_tessera IS NOT NULL;
@@ -0,0 +1,22 @@
+-- Indici per tratte, manutenzioni, percorrenze e vendite giornaliere
+
+CREATE INDEX IF NOT EXISTS idx_tratta_partenza_arrivo
+    ON tratta (partenza, arrivo) INCLUDE (id_mezzo);
+
+CREATE INDEX IF NOT EXISTS idx_manutenzione_mezzo
+    ON manutenzione (id_mezzo, dataInizio, dataFine);
+
+CREATE INDEX IF NOT EXISTS idx_percorrenza_tratta
+    ON tempoMedioPercorrenza (idtratta) INCLUDE (tempoEffettivo);
+
+CREATE INDEX IF NOT EXISTS idx_percorrenza_mezzo
+    ON tempoMedioPercorrenza (id_mezzo) INCLUDE (tempoEffettivo);
+
+CREATE INDEX IF NOT EXISTS idx_vendite_punto_prodotto
+    ON vendite_giornaliere (id_punto_emissione, prodotto, giorno) INCLUDE (quantita);
+
+CREATE INDEX IF NOT EXISTS idx_vendite_prodotto
+    ON vendite_giornaliere (prodotto, giorno) INCLUDE (quantita);
+
+CREATE INDEX IF NOT EXISTS idx_mezzo_stato
+    ON mezzo ("Stato Mezzo");
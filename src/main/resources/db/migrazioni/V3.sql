@@ -0,0 +1,7 @@
+-- Codice univoco delle vendite registrate nel giornale dei distributori
+
+ALTER TABLE biglietto ADD COLUMN IF NOT EXISTS codice_vendita uuid;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_biglietto_codice_vendita
+    ON biglietto (codice_vendita)
+    WHERE codice_vendita IS NOT NULL;
@@ -0,0 +1,9 @@
+-- Indici per la paginazione keyset dei mezzi per stato e delle manutenzioni per mezzo
+
+CREATE INDEX IF NOT EXISTS idx_mezzo_stato_id
+    ON mezzo ("Stato Mezzo", "id mezzo");
+
+DROP INDEX IF EXISTS idx_mezzo_stato;
+
+CREATE INDEX IF NOT EXISTS idx_manutenzione_mezzo_id
+    ON manutenzione (id_mezzo, id_manutenzione);
@@ -0,0 +1,50 @@
+-- Dizionario delle fermate: la tratta referenzia partenza e arrivo per id invece che per nome
+
+CREATE TABLE IF NOT EXISTS fermata (
+    id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nome varchar(255) NOT NULL,
+    CONSTRAINT uk_fermata_nome UNIQUE (nome)
+);
+
+ALTER TABLE tratta ADD COLUMN IF NOT EXISTS partenza varchar(255);
+
+ALTER TABLE tratta ADD COLUMN IF NOT EXISTS arrivo varchar(255);
+
+ALTER TABLE tratta ADD COLUMN IF NOT EXISTS id_fermata_partenza integer;
+
+ALTER TABLE tratta ADD COLUMN IF NOT EXISTS id_fermata_arrivo integer;
+
+INSERT INTO fermata (nome)
+SELECT partenza FROM tratta WHERE partenza IS NOT NULL
+UNION
+SELECT arrivo FROM tratta WHERE arrivo IS NOT NULL
+ON CONFLICT (nome) DO NOTHING;
+
+UPDATE tratta t SET id_fermata_partenza = f.id
+FROM fermata f
+WHERE f.nome = t.partenza AND t.id_fermata_partenza IS NULL;
+
+UPDATE tratta t SET id_fermata_arrivo = f.id
+FROM fermata f
+WHERE f.nome = t.arrivo AND t.id_fermata_arrivo IS NULL;
+
+ALTER TABLE tratta ALTER COLUMN id_fermata_partenza SET NOT NULL;
+
+ALTER TABLE tratta ALTER COLUMN id_fermata_arrivo SET NOT NULL;
+
+ALTER TABLE tratta DROP CONSTRAINT IF EXISTS fk_tratta_fermata_partenza;
+
+ALTER TABLE tratta ADD CONSTRAINT fk_tratta_fermata_partenza
+    FOREIGN KEY (id_fermata_partenza) REFERENCES fermata (id);
+
+ALTER TABLE tratta DROP CONSTRAINT IF EXISTS fk_tratta_fermata_arrivo;
+
+ALTER TABLE tratta ADD CONSTRAINT fk_tratta_fermata_arrivo
+    FOREIGN KEY (id_fermata_arrivo) REFERENCES fermata (id);
+
+ALTER TABLE tratta DROP COLUMN IF EXISTS partenza;
+
+ALTER TABLE tratta DROP COLUMN IF EXISTS arrivo;
+
+CREATE INDEX IF NOT EXISTS idx_tratta_fermate
+    ON tratta (id_fermata_partenza, id_fermata_arrivo) INCLUDE (id_mezzo);
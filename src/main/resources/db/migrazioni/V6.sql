@@ -0,0 +1,5 @@
+-- Allinea le sequenze di biglietti e abbonamenti agli id già presenti, assegnati prima del passaggio a SEQUENCE
+
+SELECT setval('biglietto_seq', COALESCE(MAX(id), 0) + 1) FROM biglietto;
+
+SELECT setval('abbonamento_seq', COALESCE(MAX(id), 0) + 1) FROM abbonamento;
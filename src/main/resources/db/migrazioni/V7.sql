@@ -0,0 +1,57 @@
+-- Transazione che ha emesso o validato ogni riga, per esportare lo storico in ordine di commit anziché per data
+
+ALTER TABLE biglietto ADD COLUMN IF NOT EXISTS xid_emissione bigint;
+
+ALTER TABLE biglietto ADD COLUMN IF NOT EXISTS xid_validazione bigint;
+
+ALTER TABLE abbonamento ADD COLUMN IF NOT EXISTS xid_emissione bigint;
+
+-- le righe già presenti precedono qualsiasi orizzonte di esportazione
+UPDATE biglietto SET xid_emissione = 0 WHERE xid_emissione IS NULL;
+
+UPDATE biglietto SET xid_validazione = 0 WHERE xid_validazione IS NULL AND "Data validazione" IS NOT NULL;
+
+UPDATE abbonamento SET xid_emissione = 0 WHERE xid_emissione IS NULL;
+
+CREATE OR REPLACE FUNCTION biglietto_xid() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        NEW.xid_emissione := pg_current_xact_id()::text::bigint;
+        IF NEW."Data validazione" IS NOT NULL THEN
+            NEW.xid_validazione := NEW.xid_emissione;
+        END IF;
+    ELSIF NEW."Data validazione" IS NOT NULL AND OLD."Data validazione" IS NULL THEN
+        NEW.xid_validazione := pg_current_xact_id()::text::bigint;
+    END IF;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_biglietto_xid ON biglietto;
+
+CREATE TRIGGER trg_biglietto_xid
+    BEFORE INSERT OR UPDATE OF "Data validazione" ON biglietto
+    FOR EACH ROW EXECUTE FUNCTION biglietto_xid();
+
+CREATE OR REPLACE FUNCTION abbonamento_xid() RETURNS trigger AS $$
+BEGIN
+    NEW.xid_emissione := pg_current_xact_id()::text::bigint;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_abbonamento_xid ON abbonamento;
+
+CREATE TRIGGER trg_abbonamento_xid
+    BEFORE INSERT ON abbonamento
+    FOR EACH ROW EXECUTE FUNCTION abbonamento_xid();
+
+CREATE INDEX IF NOT EXISTS idx_biglietto_xid_emissione
+    ON biglietto (xid_emissione);
+
+CREATE INDEX IF NOT EXISTS idx_biglietto_xid_validazione
+    ON biglietto (xid_validazione)
+    WHERE xid_validazione IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_abbonamento_xid_emissione
+    ON abbonamento (xid_emissione);
@@ -0,0 +1,9 @@
+-- Mezzo delle percorrenze registrate prima che la colonna id_mezzo venisse valorizzata
+
+UPDATE tempoMedioPercorrenza pm SET id_mezzo = t.id_mezzo
+FROM tratta t
+WHERE pm.idtratta = t.id AND pm.id_mezzo IS NULL;
+
+-- gli aggregati vanno ricalcolati includendo le righe appena completate: con la tabella vuota
+-- PercorrenzaMediaDAO.inizializza li ricostruisce all'avvio, dopo le migrazioni
+DELETE FROM percorrenze_aggregate;
@@ -0,0 +1,100 @@
+package cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CacheLimitataTest {
+
+    private static CacheLimitata<Long, StringBuilder> cache(int capacita) {
+        return new CacheLimitata<>("test", capacita, StringBuilder::new);
+    }
+
+    @Test
+    public void caricaUnaVoltaPoiServeDallaCache() {
+        CacheLimitata<Long, StringBuilder> cache = cache(10);
+        AtomicInteger caricamenti = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("uno", cache.getOppureCarica(1L, k -> {
+                caricamenti.incrementAndGet();
+                return new StringBuilder("uno");
+            }).toString());
+        }
+
+        assertEquals(1, caricamenti.get());
+        assertEquals(2, cache.getHit());
+        assertEquals(1, cache.getMiss());
+    }
+
+    @Test
+    public void leModificheDelChiamanteNonRaggiungonoLaCache() {
+        CacheLimitata<Long, StringBuilder> cache = cache(10);
+        StringBuilder originale = new StringBuilder("valore");
+        cache.put(1L, originale);
+        originale.append("-modificato");
+
+        StringBuilder letto = cache.getOppureCarica(1L, k -> null);
+        letto.append("-anche-questo");
+
+        assertEquals("valore", cache.getOppureCarica(1L, k -> null).toString());
+        assertNotSame(letto, cache.getOppureCarica(1L, k -> null));
+    }
+
+    @Test
+    public void unaInvalidazioneDuranteIlCaricamentoScartaIlValoreLetto() throws Exception {
+        CacheLimitata<Long, StringBuilder> cache = cache(10);
+        CountDownLatch inCaricamento = new CountDownLatch(1);
+        CountDownLatch invalidata = new CountDownLatch(1);
+
+        CompletableFuture<StringBuilder> lettura = CompletableFuture.supplyAsync(() -> cache.getOppureCarica(1L, k -> {
+            inCaricamento.countDown();
+            try {
+                invalidata.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new StringBuilder("vecchio");
+        }));
+        assertEquals(true, inCaricamento.await(5, TimeUnit.SECONDS));
+        cache.invalida(1L);
+        invalidata.countDown();
+
+        assertEquals("vecchio", lettura.get(5, TimeUnit.SECONDS).toString());
+        assertEquals(0, cache.dimensione());
+        assertEquals("nuovo", cache.getOppureCarica(1L, k -> new StringBuilder("nuovo")).toString());
+    }
+
+    @Test
+    public void unCaricamentoFallitoNonLasciaTracce() {
+        CacheLimitata<Long, StringBuilder> cache = cache(10);
+
+        assertThrows(IllegalStateException.class, () -> cache.getOppureCarica(1L, k -> {
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(0, cache.dimensione());
+        assertEquals("dopo", cache.getOppureCarica(1L, k -> new StringBuilder("dopo")).toString());
+        assertEquals(1, cache.dimensione());
+    }
+
+    @Test
+    public void espelleLaVoceUsataMenoDiRecente() {
+        CacheLimitata<Long, StringBuilder> cache = cache(2);
+        cache.put(1L, new StringBuilder("uno"));
+        cache.put(2L, new StringBuilder("due"));
+        cache.getOppureCarica(1L, k -> null);
+        cache.put(3L, new StringBuilder("tre"));
+
+        assertEquals(2, cache.dimensione());
+        assertEquals(1, cache.getEspulsioni());
+        assertEquals("uno", cache.getOppureCarica(1L, k -> null).toString());
+        assertEquals(null, cache.getOppureCarica(2L, k -> null));
+    }
+}
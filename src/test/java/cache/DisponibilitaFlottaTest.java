@@ -0,0 +1,97 @@
+package cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import enums.StatoMezzo;
+import enums.TipoMezzo;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+
+public class DisponibilitaFlottaTest {
+
+    private static final LocalDate INIZIO = LocalDate.of(2025, 9, 10);
+    private static final LocalDate FINE = LocalDate.of(2025, 9, 20);
+
+    @Test
+    public void estremiDellaManutenzioneInclusi() {
+        DisponibilitaFlotta flotta = new DisponibilitaFlotta();
+        flotta.registraMezzo(1, TipoMezzo.AUTOBUS, 50);
+        flotta.aggiungiManutenzione(1, 100, INIZIO, FINE);
+
+        assertTrue(flotta.isInManutenzione(1, INIZIO));
+        assertTrue(flotta.isInManutenzione(1, FINE));
+        assertFalse(flotta.isInManutenzione(1, INIZIO.minusDays(1)));
+        assertFalse(flotta.isInManutenzione(1, FINE.plusDays(1)));
+
+        assertFalse(flotta.isDisponibile(1, INIZIO.minusDays(5), INIZIO));
+        assertFalse(flotta.isDisponibile(1, FINE, FINE.plusDays(5)));
+        assertFalse(flotta.isDisponibile(1, INIZIO.plusDays(2), INIZIO.plusDays(3)));
+        assertFalse(flotta.isDisponibile(1, INIZIO.minusDays(1), FINE.plusDays(1)));
+        assertTrue(flotta.isDisponibile(1, INIZIO.minusDays(5), INIZIO.minusDays(1)));
+        assertTrue(flotta.isDisponibile(1, FINE.plusDays(1), FINE.plusDays(5)));
+    }
+
+    @Test
+    public void intervalloLungoCopreQuelliSuccessivi() {
+        DisponibilitaFlotta flotta = new DisponibilitaFlotta();
+        flotta.registraMezzo(1, TipoMezzo.TRAM, 200);
+        flotta.aggiungiManutenzione(1, 100, INIZIO, FINE.plusDays(30));
+        flotta.aggiungiManutenzione(1, 101, INIZIO.plusDays(1), INIZIO.plusDays(2));
+
+        // l'intervallo che inizia dopo finisce prima: la sovrapposizione viene dal primo
+        assertTrue(flotta.isInManutenzione(1, FINE.plusDays(10)));
+
+        flotta.rimuoviManutenzione(1, 100);
+        assertFalse(flotta.isInManutenzione(1, FINE.plusDays(10)));
+        assertTrue(flotta.isInManutenzione(1, INIZIO.plusDays(2)));
+        assertFalse(flotta.isInManutenzione(1, INIZIO.plusDays(3)));
+    }
+
+    @Test
+    public void estremiApertiEAggiornamento() {
+        DisponibilitaFlotta flotta = new DisponibilitaFlotta();
+        flotta.registraMezzo(1, TipoMezzo.AUTOBUS, 50);
+        flotta.aggiungiManutenzione(1, 100, FINE, null);
+
+        assertFalse(flotta.isInManutenzione(1, FINE.minusDays(1)));
+        assertTrue(flotta.isInManutenzione(1, LocalDate.of(2100, 1, 1)));
+
+        flotta.aggiungiManutenzione(1, 100, null, INIZIO);
+        assertTrue(flotta.isInManutenzione(1, LocalDate.of(1990, 1, 1)));
+        assertTrue(flotta.isInManutenzione(1, INIZIO));
+        assertFalse(flotta.isInManutenzione(1, FINE));
+    }
+
+    @Test
+    public void disponibiliEPerStato() {
+        DisponibilitaFlotta flotta = new DisponibilitaFlotta();
+        flotta.registraMezzo(1, TipoMezzo.AUTOBUS, 50);
+        flotta.registraMezzo(2, TipoMezzo.AUTOBUS, 50);
+        flotta.registraMezzo(3, TipoMezzo.TRAM, 200);
+        flotta.registraMezzo(4, TipoMezzo.AUTOBUS, 50);
+        flotta.aggiungiManutenzione(2, 100, INIZIO, FINE);
+        flotta.aggiungiManutenzione(4, 101, FINE.plusDays(1), FINE.plusDays(3));
+        // manutenzione registrata prima del mezzo: non compare finché il mezzo non ha un tipo
+        flotta.aggiungiManutenzione(5, 102, INIZIO, FINE);
+
+        assertArrayEquals(new long[]{1, 4}, flotta.disponibili(TipoMezzo.AUTOBUS, INIZIO, FINE));
+        assertArrayEquals(new long[]{1}, flotta.disponibili(TipoMezzo.AUTOBUS, FINE, FINE.plusDays(1)));
+        assertArrayEquals(new long[]{3}, flotta.disponibili(TipoMezzo.TRAM, INIZIO, FINE));
+
+        assertArrayEquals(new long[]{2}, flotta.perStato(StatoMezzo.IN_MANUTENZIONE, FINE, Long.MIN_VALUE, 10));
+        assertArrayEquals(new long[]{1, 3}, flotta.perStato(StatoMezzo.IN_SERVIZIO, FINE, Long.MIN_VALUE, 2));
+        assertArrayEquals(new long[]{4}, flotta.perStato(StatoMezzo.IN_SERVIZIO, FINE, 3, 2));
+
+        flotta.registraMezzo(5, TipoMezzo.TRAM, 200);
+        assertTrue(flotta.isInManutenzione(5, INIZIO));
+        assertEquals(200, flotta.capienza(5));
+        assertEquals(5, flotta.dimensione());
+
+        flotta.rimuoviMezzo(5);
+        assertFalse(flotta.isDisponibile(5, INIZIO, FINE));
+        assertEquals(0, flotta.capienza(5));
+    }
+}
@@ -0,0 +1,71 @@
+package cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class FiltroBloomScalabileTest {
+
+    @Test
+    public void nessunFalsoNegativoMentreCresce() {
+        FiltroBloomScalabile filtro = new FiltroBloomScalabile(1_000, 0.01);
+        for (long i = 0; i < 50_000; i++) {
+            filtro.aggiungi(i * 7919);
+        }
+
+        for (long i = 0; i < 50_000; i++) {
+            assertTrue(filtro.puoContenere(i * 7919), "falso negativo per " + i * 7919);
+        }
+        assertTrue(filtro.livelli() > 1);
+    }
+
+    @Test
+    public void crescitaALivelliConErroreSottoSoglia() {
+        FiltroBloomScalabile filtro = new FiltroBloomScalabile(1_000, 0.01);
+        long byteIniziali = filtro.byteOccupati();
+        for (long i = 0; i < 1_000; i++) {
+            filtro.aggiungi(i);
+        }
+        assertEquals(1, filtro.livelli());
+
+        for (long i = 1_000; i < 15_000; i++) {
+            filtro.aggiungi(i);
+        }
+        // 1000 + 2000 + 4000 + 8000: il quarto livello contiene gli ultimi elementi
+        assertEquals(4, filtro.livelli());
+        assertTrue(filtro.elementi() <= 15_000);
+        assertTrue(filtro.byteOccupati() > byteIniziali * 15);
+
+        int falsiPositivi = 0;
+        for (long i = 1_000_000; i < 1_100_000; i++) {
+            if (filtro.puoContenere(i)) {
+                falsiPositivi++;
+            }
+        }
+        assertTrue(falsiPositivi < 1_000, "falsi positivi: " + falsiPositivi);
+    }
+
+    @Test
+    public void iLivelliSmettonoDiCrescereAlLimite() {
+        FiltroBloomScalabile filtro = new FiltroBloomScalabile(1_000, 0.01, 1024);
+        for (long i = 0; i < 30_000; i++) {
+            filtro.aggiungi(i);
+        }
+
+        for (int livello = 0; livello < filtro.livelli(); livello++) {
+            assertTrue(filtro.byteDelLivello(livello) <= 1024 * 8);
+        }
+        assertEquals(1024 * 8, filtro.byteDelLivello(filtro.livelli() - 1));
+        for (long i = 0; i < 30_000; i++) {
+            assertTrue(filtro.puoContenere(i), "falso negativo per " + i);
+        }
+    }
+
+    @Test
+    public void dimensioneDelLivelloLimitata() {
+        assertEquals(1, FiltroBloomScalabile.paroleNecessarie(1, 0.5, 1 << 24));
+        assertEquals(1 << 24, FiltroBloomScalabile.paroleNecessarie(1L << 40, 1e-9, 1 << 24));
+        assertEquals(1 << 24, FiltroBloomScalabile.paroleNecessarie(Long.MAX_VALUE / 2, Double.MIN_NORMAL, 1 << 24));
+    }
+}
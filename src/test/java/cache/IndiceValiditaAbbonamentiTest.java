@@ -0,0 +1,70 @@
+package cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+
+public class IndiceValiditaAbbonamentiTest {
+
+    private static final LocalDate INIZIO = LocalDate.of(2025, 9, 1);
+    private static final LocalDate FINE = LocalDate.of(2025, 9, 30);
+
+    @Test
+    public void validoSoloDentroLIntervalloEstremiInclusi() {
+        IndiceValiditaAbbonamenti indice = new IndiceValiditaAbbonamenti();
+        indice.aggiungi(7, 100, INIZIO, FINE);
+
+        assertTrue(indice.isValida(7, INIZIO));
+        assertTrue(indice.isValida(7, FINE));
+        assertFalse(indice.isValida(7, INIZIO.minusDays(1)));
+        assertFalse(indice.isValida(7, FINE.plusDays(1)));
+        assertFalse(indice.isValida(8, INIZIO));
+        assertEquals(100, indice.abbonamentoValido(7, INIZIO.plusDays(10)));
+        assertEquals(-1, indice.abbonamentoValido(8, INIZIO.plusDays(10)));
+    }
+
+    @Test
+    public void piuAbbonamentiPerTesseraERiaggiunta() {
+        IndiceValiditaAbbonamenti indice = new IndiceValiditaAbbonamenti();
+        indice.aggiungi(7, 100, INIZIO, FINE);
+        indice.aggiungi(7, 101, FINE.plusDays(1), FINE.plusDays(7));
+
+        assertEquals(100, indice.abbonamentoValido(7, FINE));
+        assertEquals(101, indice.abbonamentoValido(7, FINE.plusDays(1)));
+
+        indice.aggiungi(7, 100, INIZIO, INIZIO.plusDays(6));
+        assertFalse(indice.isValida(7, FINE));
+        assertEquals(1, indice.dimensione());
+    }
+
+    @Test
+    public void rimuoviEScaduti() {
+        IndiceValiditaAbbonamenti indice = new IndiceValiditaAbbonamenti();
+        indice.aggiungi(1, 10, INIZIO, FINE);
+        indice.aggiungi(2, 20, INIZIO, INIZIO.plusDays(6));
+        indice.aggiungi(2, 21, INIZIO, FINE);
+
+        indice.rimuovi(1, 10);
+        assertFalse(indice.isValida(1, INIZIO));
+
+        assertEquals(1, indice.rimuoviScaduti(INIZIO.plusDays(7)));
+        assertEquals(21, indice.abbonamentoValido(2, INIZIO));
+        assertEquals(1, indice.dimensione());
+    }
+
+    @Test
+    public void sopravviveAlRidimensionamento() {
+        IndiceValiditaAbbonamenti indice = new IndiceValiditaAbbonamenti();
+        for (long tessera = 1; tessera <= 10_000; tessera++) {
+            indice.aggiungi(tessera, tessera * 10, INIZIO, FINE);
+        }
+
+        assertEquals(10_000, indice.dimensione());
+        for (long tessera = 1; tessera <= 10_000; tessera++) {
+            assertEquals(tessera * 10, indice.abbonamentoValido(tessera, INIZIO));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package cache;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class RegistroBigliettiTest {
+
+    @Test
+    public void primaDelCaricamentoDecideIlDatabase() {
+        RegistroBiglietti registro = new RegistroBiglietti();
+        registro.registraEmissione(1);
+
+        assertFalse(registro.sicuramenteNonEmesso(2));
+    }
+
+    @Test
+    public void dopoIlCaricamentoRespingeGliIdSconosciutiFinoAlMassimo() {
+        RegistroBiglietti registro = new RegistroBiglietti();
+        for (long id = 1; id <= 1_000; id += 2) {
+            registro.registraEmissione(id);
+        }
+        registro.caricamentoCompletato(999);
+
+        assertFalse(registro.sicuramenteNonEmesso(1));
+        assertFalse(registro.sicuramenteNonEmesso(999));
+        assertTrue(registro.sicuramenteNonEmesso(-5));
+        // oltre il massimo caricato l'id può essere stato emesso da un altro processo
+        assertFalse(registro.sicuramenteNonEmesso(1_001));
+        assertFalse(registro.sicuramenteNonEmesso(50_000));
+
+        int respinti = 0;
+        for (long id = 2; id <= 1_000; id += 2) {
+            if (registro.sicuramenteNonEmesso(id)) {
+                respinti++;
+            }
+        }
+        assertTrue(respinti > 490);
+    }
+}
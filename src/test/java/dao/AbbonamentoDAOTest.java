@@ -0,0 +1,131 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cache.IndiceValiditaAbbonamenti;
+import entities.Abbonamento;
+import entities.Tessera;
+import enums.TipoAbbonamento;
+import exceptions.CaricamentoParzialeException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.RollbackException;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AbbonamentoDAOTest {
+
+    private static final LocalDate INIZIO = LocalDate.of(2025, 9, 1);
+    private static final LocalDate FINE = LocalDate.of(2025, 9, 30);
+
+    // ogni transazione riceve il proprio numero; quella indicata fallisce al commit
+    private static EntityManagerFactory emf(int commitFallito) {
+        AtomicInteger transazioni = new AtomicInteger();
+        AtomicLong sequenza = new AtomicLong();
+        return proxy(EntityManagerFactory.class, (metodo, argomenti) -> switch (metodo) {
+            case "getProperties" -> Map.of();
+            case "createEntityManager" -> {
+                int numero = transazioni.incrementAndGet();
+                EntityTransaction transazione = transazione(numero == commitFallito);
+                yield proxy(EntityManager.class, (m, a) -> switch (m) {
+                    case "getTransaction" -> transazione;
+                    case "persist" -> {
+                        imposta(a[0], "id", sequenza.incrementAndGet());
+                        yield null;
+                    }
+                    default -> null;
+                });
+            }
+            default -> null;
+        });
+    }
+
+    private static EntityTransaction transazione(boolean fallisce) {
+        boolean[] attiva = {false};
+        return proxy(EntityTransaction.class, (metodo, argomenti) -> switch (metodo) {
+            case "begin" -> {
+                attiva[0] = true;
+                yield null;
+            }
+            case "commit" -> {
+                if (fallisce) {
+                    throw new RollbackException("commit fallito");
+                }
+                attiva[0] = false;
+                yield null;
+            }
+            case "rollback" -> {
+                attiva[0] = false;
+                yield null;
+            }
+            case "isActive" -> attiva[0];
+            default -> null;
+        });
+    }
+
+    private interface Risposta {
+        Object rispondi(String metodo, Object[] argomenti);
+    }
+
+    private static <T> T proxy(Class<T> tipo, Risposta risposta) {
+        return tipo.cast(Proxy.newProxyInstance(AbbonamentoDAOTest.class.getClassLoader(), new Class<?>[]{tipo},
+                (p, metodo, argomenti) -> risposta.rispondi(metodo.getName(), argomenti)));
+    }
+
+    private static void imposta(Object oggetto, String campo, long valore) {
+        try {
+            Field field = oggetto.getClass().getDeclaredField(campo);
+            field.setAccessible(true);
+            field.setLong(oggetto, valore);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Abbonamento> abbonamenti(int quanti) {
+        List<Abbonamento> abbonamenti = new ArrayList<>(quanti);
+        for (int i = 0; i < quanti; i++) {
+            Tessera tessera = new Tessera();
+            imposta(tessera, "id", i + 1);
+            abbonamenti.add(new Abbonamento(TipoAbbonamento.MENSILE, INIZIO, FINE, null, 35, null, tessera));
+        }
+        return abbonamenti;
+    }
+
+    @Test
+    public void unBloccoNonConfermatoNonFinisceNellIndice() {
+        IndiceValiditaAbbonamenti indice = new IndiceValiditaAbbonamenti();
+        AbbonamentoDAO dao = new AbbonamentoDAO(new UnitOfWork(emf(2)), indice);
+        List<Abbonamento> abbonamenti = abbonamenti(15_000);
+
+        CaricamentoParzialeException e = assertThrows(CaricamentoParzialeException.class, () -> dao.saveAll(abbonamenti));
+
+        assertEquals(10_000, e.getSalvati());
+        assertEquals(10_000, indice.dimensione());
+        assertTrue(indice.isValida(1, INIZIO));
+        assertTrue(indice.isValida(10_000, INIZIO));
+        assertFalse(indice.isValida(10_001, INIZIO));
+        assertFalse(indice.isValida(15_000, INIZIO));
+    }
+
+    @Test
+    public void senzaErroriTuttiIBlocchiIndicizzati() {
+        IndiceValiditaAbbonamenti indice = new IndiceValiditaAbbonamenti();
+        AbbonamentoDAO dao = new AbbonamentoDAO(new UnitOfWork(emf(0)), indice);
+
+        assertEquals(15_000, dao.saveAll(abbonamenti(15_000)));
+        assertEquals(15_000, indice.dimensione());
+        assertTrue(indice.isValida(15_000, FINE));
+    }
+}
@@ -0,0 +1,47 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AnnullamentoTest {
+
+    private static Session sessione(AtomicInteger annullate) {
+        return (Session) Proxy.newProxyInstance(AnnullamentoTest.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, metodo, argomenti) -> {
+                    if (metodo.getName().equals("cancelQuery")) {
+                        annullate.incrementAndGet();
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    public void annullareDuranteLaQueryLaCancellaSulDatabase() {
+        AtomicInteger annullate = new AtomicInteger();
+        Annullamento annullamento = new Annullamento();
+
+        annullamento.esegui(sessione(annullate), s -> {
+            annullamento.annulla();
+            return null;
+        });
+        annullamento.annulla();
+
+        assertEquals(1, annullate.get());
+    }
+
+    @Test
+    public void dopoLAnnullamentoLaQueryNonParte() {
+        AtomicInteger annullate = new AtomicInteger();
+        Annullamento annullamento = new Annullamento();
+        annullamento.annulla();
+
+        assertThrows(CancellationException.class, () -> annullamento.esegui(sessione(annullate), s -> 1));
+        assertEquals(0, annullate.get());
+    }
+}
@@ -0,0 +1,71 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dto.Pagina;
+import exceptions.InvalidDataException;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+public class CursoreTest {
+
+    @Test
+    public void senzaCursoreSiParteDallInizio() {
+        assertEquals(Cursore.INIZIO, Cursore.decodifica(null));
+        assertEquals(Cursore.INIZIO, Cursore.decodifica(""));
+    }
+
+    @Test
+    public void codificaEDecodificaSonoInverse() {
+        for (long chiave : new long[]{0, 1, -1, 42, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(chiave, Cursore.decodifica(Cursore.codifica(chiave)));
+        }
+    }
+
+    @Test
+    public void rifiutaCursoriMalformati() {
+        assertThrows(InvalidDataException.class, () -> Cursore.decodifica("non base64!"));
+        assertThrows(InvalidDataException.class, () -> Cursore.decodifica("AAAA"));
+    }
+
+    @Test
+    public void limitiDellaDimensioneDiPagina() {
+        assertEquals(2, Cursore.righeDaLeggere(1));
+        assertEquals(Cursore.PAGINA_MASSIMA + 1, Cursore.righeDaLeggere(Cursore.PAGINA_MASSIMA));
+        assertThrows(InvalidDataException.class, () -> Cursore.righeDaLeggere(0));
+        assertThrows(InvalidDataException.class, () -> Cursore.righeDaLeggere(Cursore.PAGINA_MASSIMA + 1));
+    }
+
+    @Test
+    public void laRigaInPiuSegnalaLaPaginaSuccessiva() {
+        Pagina<Long> piena = Cursore.pagina(List.of(10L, 20L, 30L), 2, Long::longValue);
+        assertEquals(List.of(10L, 20L), piena.elementi());
+        assertTrue(piena.haSuccessiva());
+        assertEquals(20L, Cursore.decodifica(piena.cursoreSuccessivo()));
+
+        Pagina<Long> ultima = Cursore.pagina(List.of(10L, 20L), 2, Long::longValue);
+        assertEquals(List.of(10L, 20L), ultima.elementi());
+        assertFalse(ultima.haSuccessiva());
+    }
+
+    @Test
+    public void scorrereLePagineVisitaOgniChiaveUnaVolta() {
+        List<Long> chiavi = LongStream.rangeClosed(1, 23).map(i -> i * 3).boxed().toList();
+        List<Long> visitate = new ArrayList<>();
+        String cursore = null;
+        do {
+            long dopo = Cursore.decodifica(cursore);
+            List<Long> righe = chiavi.stream().filter(k -> k > dopo).limit(Cursore.righeDaLeggere(5)).toList();
+            Pagina<Long> pagina = Cursore.pagina(righe, 5, Long::longValue);
+            visitate.addAll(pagina.elementi());
+            cursore = pagina.cursoreSuccessivo();
+        } while (cursore != null);
+
+        assertEquals(chiavi, visitate);
+    }
+}
@@ -0,0 +1,52 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import exceptions.MigrazioneException;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+public class MigrazioniSchemaTest {
+
+    @Test
+    public void divideSuiPuntiEVirgolaDiPrimoLivello() {
+        List<String> istruzioni = MigrazioniSchema.istruzioni(1, """
+                -- descrizione; con punto e virgola
+                CREATE TABLE a (id int);
+                /* commento; su più
+                   righe */
+                INSERT INTO a VALUES (1);
+                """);
+
+        assertEquals(List.of("CREATE TABLE a (id int)", "INSERT INTO a VALUES (1)"), istruzioni);
+    }
+
+    @Test
+    public void nonDivideDentroStringheEIdentificatori() {
+        List<String> istruzioni = MigrazioniSchema.istruzioni(1,
+                "INSERT INTO b (\"nome;strano\") VALUES ('x;y', 'l''a;b');\nSELECT 1;");
+
+        assertEquals(List.of("INSERT INTO b (\"nome;strano\") VALUES ('x;y', 'l''a;b')", "SELECT 1"), istruzioni);
+    }
+
+    @Test
+    public void nonDivideDentroICorpiDollaro() {
+        String blocco = """
+                DO $corpo$
+                BEGIN
+                    PERFORM 1;
+                    RAISE NOTICE '$$;';
+                END
+                $corpo$""";
+        List<String> istruzioni = MigrazioniSchema.istruzioni(1, blocco + ";\nCREATE FUNCTION f() RETURNS int AS $$ SELECT 1; $$ LANGUAGE sql;");
+
+        assertEquals(List.of(blocco, "CREATE FUNCTION f() RETURNS int AS $$ SELECT 1; $$ LANGUAGE sql"), istruzioni);
+    }
+
+    @Test
+    public void rifiutaQuotatureNonChiuse() {
+        assertThrows(MigrazioneException.class, () -> MigrazioniSchema.istruzioni(3, "SELECT 'aperta;"));
+        assertThrows(MigrazioneException.class, () -> MigrazioniSchema.istruzioni(3, "DO $$ BEGIN END;"));
+    }
+}
@@ -0,0 +1,100 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import entities.Biglietto;
+import entities.PuntoDiEmissione;
+import entities.Rivenditore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class VenditaGiornalieraDAOTest {
+
+    private static final LocalDate GIORNO = LocalDate.of(2025, 9, 10);
+
+    // registra i parametri di ogni upsert nell'ordine in cui viene eseguito
+    private static EntityManager em(List<String> upsert) {
+        return (EntityManager) Proxy.newProxyInstance(VenditaGiornalieraDAOTest.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class}, (proxy, metodo, argomenti) -> {
+                    if (!metodo.getName().equals("createNativeQuery")) {
+                        return null;
+                    }
+                    Map<String, Object> parametri = new LinkedHashMap<>();
+                    return Proxy.newProxyInstance(VenditaGiornalieraDAOTest.class.getClassLoader(), new Class<?>[]{Query.class},
+                            (q, m, a) -> {
+                                if (m.getName().equals("setParameter")) {
+                                    parametri.put((String) a[0], a[1]);
+                                    return q;
+                                }
+                                if (m.getName().equals("executeUpdate")) {
+                                    upsert.add(parametri.get("giorno") + "/" + parametri.get("puntoId") + "/" + parametri.get("quantita"));
+                                    return 1;
+                                }
+                                return null;
+                            });
+                });
+    }
+
+    private static PuntoDiEmissione punto(long id) {
+        Rivenditore rivenditore = new Rivenditore();
+        try {
+            Field field = PuntoDiEmissione.class.getDeclaredField("idPuntoEmissione");
+            field.setAccessible(true);
+            field.set(rivenditore, id);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return rivenditore;
+    }
+
+    @Test
+    public void spostareUnaVenditaAggiornaIGiorniInOrdineDiLock() {
+        List<String> upsert = new ArrayList<>();
+        Biglietto precedente = new Biglietto(90, 2.0, GIORNO, punto(2), null, null);
+        Biglietto aggiornato = new Biglietto(90, 2.0, GIORNO.minusDays(2), punto(1), null, null);
+
+        new VenditaGiornalieraDAO.Variazioni()
+                .biglietti(List.of(precedente), -1)
+                .biglietti(List.of(aggiornato), 1)
+                .registra(em(upsert));
+
+        assertEquals(List.of(GIORNO.minusDays(2) + "/1/1", GIORNO + "/2/-1"), upsert);
+    }
+
+    @Test
+    public void stessoPuntoStessoGiornoStessoPrezzoNonScriveNulla() {
+        List<String> upsert = new ArrayList<>();
+        Biglietto precedente = new Biglietto(90, 2.0, GIORNO, punto(2), null, null);
+        Biglietto aggiornato = new Biglietto(90, 2.0, GIORNO, punto(2), GIORNO, null);
+
+        new VenditaGiornalieraDAO.Variazioni()
+                .biglietti(List.of(precedente), -1)
+                .biglietti(List.of(aggiornato), 1)
+                .registra(em(upsert));
+
+        assertEquals(List.of(), upsert);
+    }
+
+    @Test
+    public void ordinePerGiornoPoiPuntoDiEmissione() {
+        List<String> upsert = new ArrayList<>();
+        List<Biglietto> biglietti = List.of(
+                new Biglietto(90, 2.0, GIORNO, punto(3), null, null),
+                new Biglietto(90, 2.0, GIORNO, punto(1), null, null),
+                new Biglietto(90, 2.0, GIORNO.minusDays(1), punto(5), null, null),
+                new Biglietto(90, 2.0, GIORNO, punto(1), null, null),
+                new Biglietto(90, 2.0, null, punto(1), null, null));
+
+        VenditaGiornalieraDAO.registraBiglietti(em(upsert), biglietti, 1);
+
+        assertEquals(List.of(GIORNO.minusDays(1) + "/5/1", GIORNO + "/1/2", GIORNO + "/3/1"), upsert);
+    }
+}
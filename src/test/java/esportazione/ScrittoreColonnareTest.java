@@ -0,0 +1,77 @@
+package esportazione;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class ScrittoreColonnareTest {
+
+    @TempDir
+    Path cartella;
+
+    private List<long[]> rileggi(Path file, List<String> colonneAttese) throws IOException {
+        List<long[]> righe = new ArrayList<>();
+        try (LettoreColonnare lettore = new LettoreColonnare(file)) {
+            assertEquals(colonneAttese, lettore.getColonne());
+            long lette = lettore.leggi(riga -> righe.add(riga.clone()));
+            assertEquals(righe.size(), lette);
+        }
+        return righe;
+    }
+
+    @Test
+    public void andataERitornoSuPiuGruppi() throws IOException {
+        Path file = cartella.resolve("biglietti.bwc");
+        List<String> colonne = List.of("id", "giorno", "prezzo_centesimi");
+        SplittableRandom random = new SplittableRandom(7);
+        List<long[]> scritte = new ArrayList<>();
+        int totale = ScrittoreColonnare.RIGHE_PER_GRUPPO * 2 + 123;
+        try (ScrittoreColonnare scrittore = new ScrittoreColonnare(file, colonne)) {
+            for (int i = 0; i < totale; i++) {
+                long[] riga = {1_000L + i, 20_000 + random.nextInt(365), random.nextInt(1_000)};
+                scrittore.aggiungi(riga);
+                scritte.add(riga);
+            }
+            assertEquals(totale, scrittore.getTotaleRighe());
+        }
+
+        List<long[]> lette = rileggi(file, colonne);
+        assertEquals(totale, lette.size());
+        for (int i = 0; i < totale; i++) {
+            assertArrayEquals(scritte.get(i), lette.get(i), "riga " + i);
+        }
+    }
+
+    @Test
+    public void valoriEstremiEDeltaNegativi() throws IOException {
+        Path file = cartella.resolve("estremi.bwc");
+        long[][] scritte = {{Long.MIN_VALUE}, {Long.MAX_VALUE}, {0}, {-1}, {Long.MIN_VALUE}, {5}, {4}};
+        try (ScrittoreColonnare scrittore = new ScrittoreColonnare(file, List.of("valore"))) {
+            for (long[] riga : scritte) {
+                scrittore.aggiungi(riga);
+            }
+        }
+
+        assertArrayEquals(scritte, rileggi(file, List.of("valore")).toArray(long[][]::new));
+    }
+
+    @Test
+    public void fileVuotoEFileNonValido() throws IOException {
+        Path vuoto = cartella.resolve("vuoto.bwc");
+        new ScrittoreColonnare(vuoto, List.of("a", "b")).close();
+        assertEquals(List.of(), rileggi(vuoto, List.of("a", "b")));
+
+        Path altro = cartella.resolve("altro.bwc");
+        Files.write(altro, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> new LettoreColonnare(altro));
+    }
+}
@@ -0,0 +1,56 @@
+package metriche;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class IstogrammaLatenzeTest {
+
+    @Test
+    public void vuotoRestituisceZero() {
+        IstogrammaLatenze istogramma = new IstogrammaLatenze();
+
+        assertEquals(0, istogramma.percentile(0.99));
+        assertEquals(0, istogramma.conteggio());
+    }
+
+    @Test
+    public void valoriPiccoliSonoEsatti() {
+        IstogrammaLatenze istogramma = new IstogrammaLatenze();
+        for (long v = 1; v <= 50; v++) {
+            istogramma.registra(v);
+        }
+
+        assertEquals(25, istogramma.percentile(0.5));
+        assertEquals(50, istogramma.percentile(1.0));
+        assertEquals(50, istogramma.conteggio());
+        assertEquals(1275, istogramma.somma());
+    }
+
+    @Test
+    public void percentiliEntroLErroreRelativoDichiarato() {
+        IstogrammaLatenze istogramma = new IstogrammaLatenze();
+        int n = 1_000_000;
+        for (long v = 1; v <= n; v++) {
+            istogramma.registra(v * 1_000);
+        }
+
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double esatto = Math.ceil(q * n) * 1_000;
+            double errore = Math.abs(istogramma.percentile(q) - esatto) / esatto;
+            assertTrue(errore <= 1.0 / 64, "quantile " + q + " errore " + errore);
+        }
+        assertEquals(n * 1_000L, istogramma.massimo());
+    }
+
+    @Test
+    public void valoriFuoriScalaNonSuperanoIlMassimo() {
+        IstogrammaLatenze istogramma = new IstogrammaLatenze();
+        istogramma.registra(-5);
+        istogramma.registra(Long.MAX_VALUE / 2);
+
+        assertEquals(0, istogramma.percentile(0.5));
+        assertEquals(Long.MAX_VALUE / 2, istogramma.percentile(1.0));
+    }
+}
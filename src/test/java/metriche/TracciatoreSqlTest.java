@@ -0,0 +1,62 @@
+package metriche;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+public class TracciatoreSqlTest {
+
+    private static Connection connessioneFinta() {
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(TracciatoreSqlTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, metodo, argomenti) ->
+                        metodo.getReturnType() == int.class ? 1 : metodo.getReturnType() == boolean.class ? false : null);
+        return (Connection) Proxy.newProxyInstance(TracciatoreSqlTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, metodo, argomenti) ->
+                        metodo.getName().equals("prepareStatement") ? statement : null);
+    }
+
+    private static RegistroMetriche.OperazioneLenta esegui(RegistroMetriche metriche, Object parametri) {
+        metriche.misura("op", parametri, () -> {
+            TracciatoreSql tracciatore = new TracciatoreSql();
+            try (Connection connessione = TracciatoreSql.avvolgi(connessioneFinta())) {
+                PreparedStatement statement = connessione.prepareStatement(tracciatore.inspect("SELECT ? , ?"));
+                statement.setLong(1, 42L);
+                statement.setObject(2, LocalDate.of(2025, 9, 1));
+                statement.addBatch();
+                statement.setLong(1, 43L);
+                statement.addBatch();
+                statement.executeBatch();
+                PreparedStatement secondo = connessione.prepareStatement(tracciatore.inspect("SELECT ?"));
+                secondo.setString(1, "Roma");
+                secondo.setNull(2, java.sql.Types.INTEGER);
+                secondo.executeQuery();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        }, r -> 0);
+        List<RegistroMetriche.OperazioneLenta> lente = metriche.getOperazioniLente();
+        return lente.get(lente.size() - 1);
+    }
+
+    @Test
+    public void leOperazioniLenteRiportanoIParametriLegati() {
+        RegistroMetriche.OperazioneLenta lenta = esegui(new RegistroMetriche(0), null);
+
+        assertEquals(List.of("SELECT ? , ?", "SELECT ?"), lenta.sql());
+        assertEquals("[42, 2025-09-01] ['Roma', null]", lenta.parametri());
+    }
+
+    @Test
+    public void iParametriEsplicitiHannoPrecedenza() {
+        RegistroMetriche.OperazioneLenta lenta = esegui(new RegistroMetriche(0), "{tratta=7}");
+
+        assertEquals("{tratta=7}", lenta.parametri());
+    }
+}
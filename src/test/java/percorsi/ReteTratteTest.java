@@ -0,0 +1,99 @@
+package percorsi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import cache.DizionarioFermate;
+import dto.Viaggio;
+import entities.Fermata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class ReteTratteTest {
+
+    private static final int ROMA = 0, FIRENZE = 1, BOLOGNA = 2, MILANO = 3, NAPOLI = 4;
+
+    private ReteTratte rete;
+
+    private static Fermata fermata(int id, String nome) throws ReflectiveOperationException {
+        Fermata fermata = new Fermata(nome);
+        Field campo = Fermata.class.getDeclaredField("id");
+        campo.setAccessible(true);
+        campo.set(fermata, id);
+        return fermata;
+    }
+
+    private static LocalTime ore(int ore) {
+        return LocalTime.of(ore, 0);
+    }
+
+    @BeforeEach
+    public void prepara() throws ReflectiveOperationException {
+        DizionarioFermate dizionario = new DizionarioFermate();
+        for (Fermata f : List.of(fermata(ROMA, "Roma"), fermata(FIRENZE, "Firenze"), fermata(BOLOGNA, "Bologna"),
+                fermata(MILANO, "Milano"), fermata(NAPOLI, "Napoli"))) {
+            dizionario.registra(f);
+        }
+        rete = new ReteTratte(dizionario);
+        rete.aggiorna(1, ROMA, MILANO, ore(7));
+        rete.aggiorna(2, ROMA, FIRENZE, ore(2));
+        rete.aggiorna(3, FIRENZE, BOLOGNA, ore(1));
+        rete.aggiorna(4, BOLOGNA, MILANO, ore(1));
+    }
+
+    @Test
+    public void preferisceIlPercorsoPiuBreveConPiuTratte() {
+        Viaggio viaggio = rete.viaggioPiuBreve("Roma", "Milano", false);
+
+        assertEquals(List.of("Roma", "Firenze", "Bologna", "Milano"), viaggio.fermate());
+        assertEquals(List.of(2L, 3L, 4L), viaggio.tratte());
+        assertEquals(Duration.ofHours(4), viaggio.durata());
+    }
+
+    @Test
+    public void iTempiMisuratiCambianoIlPercorso() {
+        rete.impostaTempoMisurato(3, (int) Duration.ofHours(6).toSeconds());
+
+        assertEquals(List.of(2L, 3L, 4L), rete.viaggioPiuBreve("Roma", "Milano", false).tratte());
+        Viaggio misurato = rete.viaggioPiuBreve("Roma", "Milano", true);
+        assertEquals(List.of(1L), misurato.tratte());
+        assertEquals(Duration.ofHours(7), misurato.durata());
+    }
+
+    @Test
+    public void aggiornamentiERimozioniSiVedonoNellaRicercaSuccessiva() {
+        rete.viaggioPiuBreve("Roma", "Milano", false);
+        rete.aggiorna(1, ROMA, MILANO, ore(3));
+        assertEquals(List.of(1L), rete.viaggioPiuBreve("Roma", "Milano", false).tratte());
+
+        rete.rimuovi(1);
+        rete.rimuovi(4);
+        assertNull(rete.viaggioPiuBreve("Roma", "Milano", false));
+        assertEquals(2, rete.numeroTratte());
+    }
+
+    @Test
+    public void fermateSconosciuteOIsolate() {
+        assertNull(rete.viaggioPiuBreve("Roma", "Torino", false));
+        assertNull(rete.viaggioPiuBreve("Roma", "Napoli", false));
+        assertNull(rete.viaggioPiuBreve("Milano", "Roma", false));
+        assertEquals(List.of("Roma"), rete.viaggioPiuBreve("Roma", "Roma", false).fermate());
+    }
+
+    @Test
+    public void unaRicostruzioneConcorrenteNonNascondeLUltimoAggiornamento() throws Exception {
+        for (int i = 1; i <= 500; i++) {
+            int ore = 2 + i % 5;
+            CompletableFuture<Void> lettore = CompletableFuture.runAsync(() -> rete.viaggioPiuBreve("Roma", "Milano", false));
+            rete.aggiorna(1, ROMA, MILANO, ore(ore));
+            lettore.get();
+
+            assertEquals(Duration.ofHours(Math.min(ore, 4)), rete.viaggioPiuBreve("Roma", "Milano", false).durata());
+        }
+    }
+}
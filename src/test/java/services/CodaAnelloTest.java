@@ -0,0 +1,139 @@
+package services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class CodaAnelloTest {
+
+    private static final int PRODUTTORI = 3;
+    private static final int PER_PRODUTTORE = 50_000;
+
+    @Test
+    public void capacitaDeveEssereUnaPotenzaDiDue() {
+        assertThrows(IllegalArgumentException.class, () -> new CodaAnello<Integer>(6));
+        assertThrows(IllegalArgumentException.class, () -> new CodaAnello<Integer>(1));
+    }
+
+    @Test
+    public void pienaEVuota() {
+        CodaAnello<Integer> coda = new CodaAnello<>(4);
+        assertTrue(coda.isVuota());
+        assertNull(coda.preleva());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(coda.offri(i));
+        }
+        assertFalse(coda.offri(4));
+        assertEquals(4, coda.dimensione());
+
+        assertEquals(0, coda.preleva());
+        assertTrue(coda.offri(4));
+
+        List<Integer> prelevati = new ArrayList<>();
+        assertEquals(4, coda.svuotaIn(prelevati, 10));
+        assertEquals(List.of(1, 2, 3, 4), prelevati);
+        assertTrue(coda.isVuota());
+    }
+
+    @Test
+    public void fifoAttraversoIGiriDellAnello() {
+        CodaAnello<Integer> coda = new CodaAnello<>(8);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(coda.offri(i));
+            assertTrue(coda.offri(-i));
+            assertEquals(i, coda.preleva());
+            assertEquals(-i, coda.preleva());
+        }
+        assertTrue(coda.isVuota());
+    }
+
+    @Test
+    public void piuProduttoriUnConsumatoreMantieneLOrdineDiOgniProduttore() throws Exception {
+        CodaAnello<long[]> coda = new CodaAnello<>(1024);
+        ExecutorService produttori = Executors.newFixedThreadPool(PRODUTTORI);
+        try {
+            for (int p = 0; p < PRODUTTORI; p++) {
+                int produttore = p;
+                produttori.submit(() -> {
+                    for (long i = 0; i < PER_PRODUTTORE; i++) {
+                        while (!coda.offri(new long[]{produttore, i})) {
+                            Thread.yield();
+                        }
+                    }
+                });
+            }
+            long[] attesi = new long[PRODUTTORI];
+            for (int ricevuti = 0; ricevuti < PRODUTTORI * PER_PRODUTTORE; ) {
+                long[] elemento = coda.preleva();
+                if (elemento == null) {
+                    Thread.yield();
+                    continue;
+                }
+                assertEquals(attesi[(int) elemento[0]]++, elemento[1]);
+                ricevuti++;
+            }
+        } finally {
+            produttori.shutdownNow();
+        }
+    }
+
+    @Test
+    public void piuProduttoriPiuConsumatoriConsegnanoOgniElementoUnaVolta() throws Exception {
+        CodaAnello<Integer> coda = new CodaAnello<>(256);
+        int totale = PRODUTTORI * PER_PRODUTTORE;
+        AtomicLongArray visti = new AtomicLongArray(totale);
+        AtomicBoolean finito = new AtomicBoolean();
+        ExecutorService thread = Executors.newFixedThreadPool(PRODUTTORI * 2);
+        try {
+            List<Future<?>> produzioni = new ArrayList<>();
+            for (int p = 0; p < PRODUTTORI; p++) {
+                int base = p * PER_PRODUTTORE;
+                produzioni.add(thread.submit(() -> {
+                    for (int i = 0; i < PER_PRODUTTORE; i++) {
+                        while (!coda.offri(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            List<Future<?>> consumi = new ArrayList<>();
+            for (int c = 0; c < PRODUTTORI; c++) {
+                consumi.add(thread.submit(() -> {
+                    while (!finito.get() || !coda.isVuota()) {
+                        Integer elemento = coda.preleva();
+                        if (elemento != null) {
+                            visti.incrementAndGet(elemento);
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : produzioni) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+            finito.set(true);
+            for (Future<?> f : consumi) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            thread.shutdownNow();
+        }
+        for (int i = 0; i < totale; i++) {
+            assertEquals(1, visti.get(i), "elemento " + i);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dto.VenditaRegistrata;
+import entities.Biglietto;
+import exceptions.GiornalePienoException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class GiornaleVenditeTest {
+
+    private static final int INTESTAZIONE = 16;
+    private static final int RECORD = 60;
+    private static final int QUATTRO_POSIZIONI = INTESTAZIONE + 4 * RECORD;
+
+    @TempDir
+    Path cartella;
+
+    private GiornaleVendite apri(int capacita) {
+        return new GiornaleVendite(cartella.resolve("giornale.dat"), capacita, Duration.ofMillis(10));
+    }
+
+    private static Biglietto biglietto(int durata) {
+        return new Biglietto(durata, durata / 10.0, LocalDate.of(2025, 9, 1).plusDays(durata), null, null, null);
+    }
+
+    private static List<UUID> registra(GiornaleVendite giornale, int... durate) {
+        List<UUID> codici = new ArrayList<>();
+        for (int durata : durate) {
+            Biglietto biglietto = biglietto(durata);
+            giornale.registra(biglietto);
+            codici.add(biglietto.getCodiceVendita());
+        }
+        return codici;
+    }
+
+    private static List<UUID> codici(List<VenditaRegistrata> vendite) {
+        return vendite.stream().map(VenditaRegistrata::codiceVendita).toList();
+    }
+
+    @Test
+    public void registraSincronizzaERilegge() throws Exception {
+        try (GiornaleVendite giornale = apri(64 * 1024)) {
+            Biglietto biglietto = biglietto(90);
+            CompletableFuture<UUID> durevole = giornale.registra(biglietto);
+            giornale.sincronizza();
+
+            assertEquals(biglietto.getCodiceVendita(), durevole.get(1, TimeUnit.SECONDS));
+            List<VenditaRegistrata> vendite = giornale.daApplicare(10);
+            assertEquals(List.of(new VenditaRegistrata(biglietto.getCodiceVendita(), 90, 9.0, LocalDate.of(2025, 11, 30), null)), vendite);
+
+            giornale.conferma(1);
+            assertEquals(0, giornale.inSospeso());
+            assertEquals(List.of(), giornale.daApplicare(10));
+        }
+    }
+
+    @Test
+    public void allaRiaperturaRiprendeDopoLUltimaConferma() {
+        List<UUID> codici;
+        try (GiornaleVendite giornale = apri(64 * 1024)) {
+            codici = registra(giornale, 1, 2, 3, 4, 5);
+            giornale.conferma(2);
+        }
+        try (GiornaleVendite giornale = apri(64 * 1024)) {
+            assertEquals(3, giornale.inSospeso());
+            assertEquals(codici.subList(2, 5), codici(giornale.daApplicare(10)));
+        }
+    }
+
+    @Test
+    public void unRecordCorrottoTroncaLaCoda() throws Exception {
+        List<UUID> codici;
+        try (GiornaleVendite giornale = apri(64 * 1024)) {
+            codici = registra(giornale, 1, 2, 3, 4, 5);
+        }
+        try (FileChannel canale = FileChannel.open(cartella.resolve("giornale.dat"), StandardOpenOption.WRITE)) {
+            canale.write(ByteBuffer.wrap(new byte[]{0x7f}), INTESTAZIONE + 3L * RECORD + 40);
+        }
+        try (GiornaleVendite giornale = apri(64 * 1024)) {
+            assertEquals(codici.subList(0, 3), codici(giornale.daApplicare(10)));
+        }
+    }
+
+    @Test
+    public void pienoSoloSeIlRiversamentoRestaIndietro() {
+        try (GiornaleVendite giornale = apri(QUATTRO_POSIZIONI)) {
+            registra(giornale, 1, 2, 3, 4);
+            assertThrows(GiornalePienoException.class, () -> registra(giornale, 5));
+
+            giornale.conferma(2);
+            List<UUID> nuovi = registra(giornale, 5, 6);
+            assertEquals(4, giornale.inSospeso());
+            assertEquals(nuovi, codici(giornale.daApplicare(10)).subList(2, 4));
+        }
+    }
+
+    @Test
+    public void iRecordDiUnGiroPrecedenteNonVengonoRiapplicati() {
+        List<UUID> ultimo;
+        try (GiornaleVendite giornale = apri(QUATTRO_POSIZIONI)) {
+            for (int giro = 0; giro < 3; giro++) {
+                registra(giornale, 1, 2, 3, 4);
+                giornale.conferma(4);
+            }
+            ultimo = registra(giornale, 5);
+        }
+        try (GiornaleVendite giornale = apri(QUATTRO_POSIZIONI)) {
+            assertEquals(1, giornale.inSospeso());
+            assertEquals(ultimo, codici(giornale.daApplicare(10)));
+        }
+    }
+}
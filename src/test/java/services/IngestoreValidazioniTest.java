@@ -0,0 +1,96 @@
+package services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dao.UnitOfWork;
+import dto.RichiestaValidazione;
+import enums.EsitoValidazione;
+import exceptions.CodaPienaException;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class IngestoreValidazioniTest {
+
+    private static final int PRODUTTORI = 3;
+    private static final int ROUND = 20;
+
+    private static final class ValidaTutto extends ValidatoreBiglietti {
+        ValidaTutto() {
+            super(new UnitOfWork((EntityManagerFactory) Proxy.newProxyInstance(IngestoreValidazioniTest.class.getClassLoader(),
+                    new Class<?>[]{EntityManagerFactory.class},
+                    (proxy, metodo, argomenti) -> metodo.getName().equals("getProperties") ? Map.of() : null)), null);
+        }
+
+        @Override
+        public Map<Long, EsitoValidazione> validaBatch(Collection<RichiestaValidazione> richieste) {
+            Map<Long, EsitoValidazione> esiti = new HashMap<>();
+            richieste.forEach(richiesta -> esiti.put(richiesta.bigliettoId(), EsitoValidazione.VALIDATO));
+            return esiti;
+        }
+    }
+
+    @Test
+    public void nessunaRichiestaRestaSenzaEsitoDopoLaChiusura() throws Exception {
+        ExecutorService esecutore = Executors.newFixedThreadPool(PRODUTTORI);
+        try {
+            for (int round = 0; round < ROUND; round++) {
+                IngestoreValidazioni ingestore = new IngestoreValidazioni(new ValidaTutto(), 1 << 16, Duration.ofMillis(1), 64);
+                ingestore.avvia();
+                Queue<CompletableFuture<EsitoValidazione>> esiti = new ConcurrentLinkedQueue<>();
+                AtomicBoolean rifiutata = new AtomicBoolean();
+                List<Future<?>> produttori = new ArrayList<>();
+                for (int p = 0; p < PRODUTTORI; p++) {
+                    long base = p * 1_000_000L;
+                    produttori.add(esecutore.submit(() -> {
+                        for (long id = base; !rifiutata.get(); id++) {
+                            CompletableFuture<EsitoValidazione> esito = ingestore.invia(id, 1);
+                            esiti.add(esito);
+                            if (esito.isCompletedExceptionally()) {
+                                rifiutata.set(true);
+                            }
+                        }
+                    }));
+                }
+                Thread.sleep(2);
+                ingestore.close();
+                for (Future<?> produttore : produttori) {
+                    produttore.get(5, TimeUnit.SECONDS);
+                }
+
+                long validate = 0;
+                for (CompletableFuture<EsitoValidazione> esito : esiti) {
+                    assertTrue(esito.isDone());
+                    if (esito.isCompletedExceptionally()) {
+                        CompletionException e = assertThrows(CompletionException.class, esito::join);
+                        assertInstanceOf(CodaPienaException.class, e.getCause());
+                    } else {
+                        assertEquals(EsitoValidazione.VALIDATO, esito.join());
+                        validate++;
+                    }
+                }
+                assertEquals(ingestore.getAccettate(), validate);
+            }
+        } finally {
+            esecutore.shutdownNow();
+        }
+    }
+}
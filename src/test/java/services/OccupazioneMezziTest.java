@@ -0,0 +1,125 @@
+package services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import cache.DisponibilitaFlotta;
+import enums.FinestraOccupazione;
+import enums.TipoMezzo;
+import org.junit.jupiter.api.Test;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+public class OccupazioneMezziTest {
+
+    private static final class OrologioManuale extends Clock {
+        private Instant adesso;
+
+        OrologioManuale(Instant adesso) {
+            this.adesso = adesso;
+        }
+
+        void avanza(Duration durata) {
+            adesso = adesso.plus(durata);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return adesso;
+        }
+    }
+
+    private static OccupazioneMezzi occupazione(OrologioManuale orologio) {
+        DisponibilitaFlotta flotta = new DisponibilitaFlotta();
+        flotta.registraMezzo(1, TipoMezzo.AUTOBUS, 10);
+        flotta.registraMezzo(2, TipoMezzo.TRAM, 100);
+        return new OccupazioneMezzi(flotta, orologio);
+    }
+
+    @Test
+    public void finestraDeiCinqueMinutiScorre() {
+        OrologioManuale orologio = new OrologioManuale(Instant.parse("2025-09-10T10:00:30Z"));
+        OccupazioneMezzi occupazione = occupazione(orologio);
+        occupazione.registraSalita(1);
+        orologio.avanza(Duration.ofMinutes(2));
+        occupazione.registraSalita(1);
+        occupazione.registraSalita(1);
+
+        assertEquals(3, occupazione.salite(1, FinestraOccupazione.ULTIMI_5_MINUTI));
+
+        orologio.avanza(Duration.ofMinutes(3));
+        assertEquals(2, occupazione.salite(1, FinestraOccupazione.ULTIMI_5_MINUTI));
+        assertEquals(3, occupazione.salite(1, FinestraOccupazione.ULTIMA_ORA));
+
+        orologio.avanza(Duration.ofMinutes(2));
+        assertEquals(0, occupazione.salite(1, FinestraOccupazione.ULTIMI_5_MINUTI));
+    }
+
+    @Test
+    public void loSlotRiusatoDopoUnOraNonSommaLeSaliteVecchie() {
+        OrologioManuale orologio = new OrologioManuale(Instant.parse("2025-09-10T10:00:00Z"));
+        OccupazioneMezzi occupazione = occupazione(orologio);
+        occupazione.registraSalita(1);
+        occupazione.registraSalita(1);
+
+        orologio.avanza(Duration.ofMinutes(59));
+        assertEquals(2, occupazione.salite(1, FinestraOccupazione.ULTIMA_ORA));
+
+        orologio.avanza(Duration.ofMinutes(1));
+        assertEquals(0, occupazione.salite(1, FinestraOccupazione.ULTIMA_ORA));
+
+        occupazione.registraSalita(1);
+        assertEquals(1, occupazione.salite(1, FinestraOccupazione.ULTIMA_ORA));
+        assertEquals(1, occupazione.salite(1, FinestraOccupazione.ULTIMI_5_MINUTI));
+        assertEquals(3, occupazione.salite(1, FinestraOccupazione.OGGI));
+    }
+
+    @Test
+    public void ilGiornoRiparteAMezzanotte() {
+        OrologioManuale orologio = new OrologioManuale(Instant.parse("2025-09-10T23:59:00Z"));
+        OccupazioneMezzi occupazione = occupazione(orologio);
+        occupazione.registraSalita(1);
+        occupazione.registraSalita(1);
+        assertEquals(2, occupazione.salite(1, FinestraOccupazione.OGGI));
+
+        orologio.avanza(Duration.ofMinutes(1));
+        assertEquals(0, occupazione.salite(1, FinestraOccupazione.OGGI));
+        assertEquals(2, occupazione.salite(1, FinestraOccupazione.ULTIMI_5_MINUTI));
+
+        occupazione.registraSalita(1);
+        assertEquals(1, occupazione.salite(1, FinestraOccupazione.OGGI));
+    }
+
+    @Test
+    public void mezziOltreSogliaOrdinatiPerCarico() {
+        OrologioManuale orologio = new OrologioManuale(Instant.parse("2025-09-10T10:00:00Z"));
+        OccupazioneMezzi occupazione = occupazione(orologio);
+        for (int i = 0; i < 9; i++) {
+            occupazione.registraSalita(1);
+        }
+        for (int i = 0; i < 95; i++) {
+            occupazione.registraSalita(2);
+        }
+        occupazione.registraSalita(3);
+
+        assertEquals(0.9, occupazione.fattoreCarico(1, FinestraOccupazione.ULTIMA_ORA), 1e-9);
+        assertEquals(0, occupazione.fattoreCarico(3, FinestraOccupazione.ULTIMA_ORA));
+        assertEquals(List.of(2L, 1L), occupazione.mezziOltreSoglia(FinestraOccupazione.ULTIMA_ORA, 0.9));
+
+        orologio.avanza(Duration.ofMinutes(6));
+        assertEquals(List.of(), occupazione.mezziOltreSoglia(FinestraOccupazione.ULTIMI_5_MINUTI, 0.1));
+    }
+}